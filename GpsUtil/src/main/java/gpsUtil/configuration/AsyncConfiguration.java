@@ -0,0 +1,33 @@
+package gpsUtil.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfiguration {
+
+    public static final String LOCATION_EXECUTOR = "locationExecutor";
+
+    /**
+     * Get the executor running the location requests, the library sleeping 30 to 100 ms on each of them.
+     * The servlet threads are released as soon as a request is handed over, so the concurrent callers are
+     * bounded by the queue capacity rather than by the Tomcat thread pool.
+     *
+     * @param threads       number of threads computing locations
+     * @param queueCapacity number of location requests waiting for a thread beyond which requests are rejected
+     * @return the executor of the location requests
+     */
+    @Bean(LOCATION_EXECUTOR)
+    public ThreadPoolTaskExecutor locationExecutor(@Value("${gps.util.location.executor.threads:256}") int threads,
+                                                   @Value("${gps.util.location.executor.queue.capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("location-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -0,0 +1,29 @@
+package gpsUtil.configuration;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.util.List;
+
+@Configuration
+public class WireFormatConfiguration {
+
+    /**
+     * Encode the user locations as Smile for TourGuide, whose tracker asks for one location per user and cycle.
+     * Its object mapper also pre-serializes the Smile attraction catalog answered by /attractions.
+     * Replaces the default Smile converter of Spring MVC, which ignores the Spring Boot Jackson configuration,
+     * so that the Smile locations carry the same properties and date format as the JSON ones.
+     *
+     * @param customizers the object mapper customizations of Spring Boot
+     * @return the Smile message converter of the locations and the catalog
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(List<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+        Jackson2ObjectMapperBuilder smileBuilder = Jackson2ObjectMapperBuilder.smile();
+        customizers.forEach(customizer -> customizer.customize(smileBuilder));
+        return new MappingJackson2SmileHttpMessageConverter(smileBuilder.build());
+    }
+}
@@ -1,47 +1,85 @@
 package gpsUtil.controller;
 
-import gpsUtil.location.Attraction;
+import gpsUtil.configuration.AsyncConfiguration;
 import gpsUtil.location.VisitedLocation;
 import gpsUtil.service.GpsUtilService;
+import gpsUtil.service.SerializedAttractions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 public class GpsUtilController {
     private final Logger logger = LoggerFactory.getLogger(GpsUtilController.class);
 
     private GpsUtilService gpsUtilService;
+    private Executor locationExecutor;
 
-    public GpsUtilController(GpsUtilService gpsUtilService) {
+    public GpsUtilController(GpsUtilService gpsUtilService, @Qualifier(AsyncConfiguration.LOCATION_EXECUTOR) Executor locationExecutor) {
         this.gpsUtilService = gpsUtilService;
+        this.locationExecutor = locationExecutor;
     }
 
     /**
-     * Get the actual user location
+     * Get the actual user location, computed on the location executor so that the servlet thread is released meanwhile
      * @param userId id of the user whose location is sought
      * @return a visited location composed of a userId, a location with longitude and latitude and a date
      */
     @GetMapping("/location")
-    public VisitedLocation getUserLocation(@RequestParam UUID userId) {
+    public CompletableFuture<VisitedLocation> getUserLocation(@RequestParam UUID userId) {
         logger.info("GpsUtil : Get user location " + userId);
-        return gpsUtilService.getUserLocation(userId);
+        return CompletableFuture.supplyAsync(() -> gpsUtilService.getUserLocation(userId), locationExecutor);
     }
 
     /**
-     * Get a list of all attractions
+     * Get a list of all attractions, serialized once and answered with 304 when the client already has the same version
+     * @param accept the media types accepted by the client, Smile being served only when preferred to JSON
+     * @param webRequest the request whose If-None-Match header is checked against the ETag of the attractions
      * @return a list of all attractions with for each a name, a city, a state, a latitude and a longitude
      */
     @GetMapping("/attractions")
-    public List<Attraction> getAttractions() {
+    public ResponseEntity<byte[]> getAttractions(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, WebRequest webRequest) {
         logger.info("GpsUtil : Get all attractions");
-        return gpsUtilService.getAttractions();
+        SerializedAttractions attractions = gpsUtilService.getSerializedAttractions(prefersSmile(accept) ? GpsUtilService.APPLICATION_SMILE : MediaType.APPLICATION_JSON);
+        if (webRequest.checkNotModified(attractions.getETag())) {
+            logger.debug("GpsUtil : Attractions not modified");
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(attractions.getContentType())
+                .eTag(attractions.getETag())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(attractions.getBody());
+    }
+
+    private boolean prefersSmile(String accept) {
+        if (accept == null) return false;
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(mediaTypes);
+            for (MediaType mediaType : mediaTypes) {
+                if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) return false;
+                if (mediaType.isCompatibleWith(GpsUtilService.APPLICATION_SMILE)) return true;
+            }
+        } catch (InvalidMediaTypeException e) {
+            logger.debug("GpsUtil : Invalid Accept header " + accept);
+        }
+        return false;
     }
 }
@@ -2,12 +2,15 @@ package gpsUtil.service;
 
 import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
+import org.springframework.http.MediaType;
 
 import java.util.List;
 import java.util.UUID;
 
 public interface GpsUtilService {
 
+    MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
     /**
      * Get the actual user location
      * @param userId id of the user whose location is sought
@@ -20,4 +23,11 @@ public interface GpsUtilService {
      * @return a list of all attractions with for each a name, a city, a state, a latitude and a longitude
      */
     List<Attraction> getAttractions();
+
+    /**
+     * Get the list of all attractions already serialized
+     * @param mediaType the encoding sought, JSON or Smile
+     * @return the bytes of the attractions response in the given encoding with their ETag
+     */
+    SerializedAttractions getSerializedAttractions(MediaType mediaType);
 }
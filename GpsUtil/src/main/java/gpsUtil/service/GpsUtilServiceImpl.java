@@ -1,20 +1,43 @@
 package gpsUtil.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class GpsUtilServiceImpl implements GpsUtilService {
 
     private final GpsUtil gpsUtil;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    private final long refreshInterval;
+    private volatile AttractionCatalog attractionCatalog;
 
-    public GpsUtilServiceImpl(GpsUtil gpsUtil) {
+    /**
+     * @param refreshInterval the age in ms after which the attractions are reloaded on the next request, their ETag changing only with their content
+     */
+    public GpsUtilServiceImpl(GpsUtil gpsUtil, ObjectMapper objectMapper, MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter,
+                              @Value("${gps.util.attractions.refresh.ms:300000}") long refreshInterval) {
         this.gpsUtil = gpsUtil;
+        this.jsonMapper = objectMapper;
+        this.smileMapper = smileHttpMessageConverter.getObjectMapper();
+        this.refreshInterval = TimeUnit.MILLISECONDS.toNanos(refreshInterval);
     }
 
     /**
@@ -28,11 +51,99 @@ public class GpsUtilServiceImpl implements GpsUtilService {
     }
 
     /**
-     * Get a list of all attractions
+     * Get a list of all attractions, reloaded once the refresh interval elapsed as the catalog seldom changes
      * @return a list of all attractions with for each a name, a city, a state, a latitude and a longitude
      */
     @Override
     public List<Attraction> getAttractions() {
-        return gpsUtil.getAttractions();
+        return getAttractionCatalog().attractions;
+    }
+
+    /**
+     * Get the list of all attractions already serialized
+     * @param mediaType the encoding sought, JSON or Smile
+     * @return the bytes of the attractions response in the given encoding with their ETag
+     */
+    @Override
+    public SerializedAttractions getSerializedAttractions(MediaType mediaType) {
+        AttractionCatalog catalog = getAttractionCatalog();
+        return GpsUtilService.APPLICATION_SMILE.equals(mediaType) ? catalog.smile : catalog.json;
+    }
+
+    private AttractionCatalog getAttractionCatalog() {
+        AttractionCatalog catalog = attractionCatalog;
+        if (catalog == null || System.nanoTime() - catalog.loadedAt > refreshInterval) {
+            synchronized (this) {
+                catalog = attractionCatalog;
+                if (catalog == null || System.nanoTime() - catalog.loadedAt > refreshInterval) {
+                    catalog = loadAttractionCatalog(catalog);
+                    attractionCatalog = catalog;
+                }
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Load the attractions, keeping the previous serialized forms and ETags when they are unchanged
+     * @param previous the catalog loaded before, null if none
+     * @return the catalog of the attractions currently known by the library
+     */
+    private AttractionCatalog loadAttractionCatalog(AttractionCatalog previous) {
+        List<Attraction> loaded = gpsUtil.getAttractions();
+        if (previous == null) {
+            List<Attraction> attractions = Collections.unmodifiableList(loaded);
+            return new AttractionCatalog(attractions,
+                    serialize(attractions, jsonMapper, MediaType.APPLICATION_JSON),
+                    serialize(attractions, smileMapper, GpsUtilService.APPLICATION_SMILE));
+        }
+        // the library gives new random ids on every call, an unchanged attraction keeps the id it was first given
+        Map<String, Attraction> known = new HashMap<>();
+        previous.attractions.forEach(attraction -> known.put(attraction.attractionName, attraction));
+        List<Attraction> attractions = new ArrayList<>(loaded.size());
+        boolean changed = loaded.size() != previous.attractions.size();
+        for (Attraction attraction : loaded) {
+            Attraction previousAttraction = known.get(attraction.attractionName);
+            if (previousAttraction != null && sameAttraction(previousAttraction, attraction)) {
+                attractions.add(previousAttraction);
+            } else {
+                attractions.add(attraction);
+                changed = true;
+            }
+        }
+        if (!changed && attractions.equals(previous.attractions)) {
+            return new AttractionCatalog(previous.attractions, previous.json, previous.smile);
+        }
+        attractions = Collections.unmodifiableList(attractions);
+        return new AttractionCatalog(attractions,
+                serialize(attractions, jsonMapper, MediaType.APPLICATION_JSON),
+                serialize(attractions, smileMapper, GpsUtilService.APPLICATION_SMILE));
+    }
+
+    private boolean sameAttraction(Attraction previous, Attraction loaded) {
+        return Objects.equals(previous.city, loaded.city) && Objects.equals(previous.state, loaded.state)
+                && previous.latitude == loaded.latitude && previous.longitude == loaded.longitude;
+    }
+
+    private SerializedAttractions serialize(List<Attraction> attractions, ObjectMapper objectMapper, MediaType mediaType) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(attractions);
+            return new SerializedAttractions(mediaType, body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize the attractions as " + mediaType, e);
+        }
+    }
+
+    private static class AttractionCatalog {
+        private final List<Attraction> attractions;
+        private final SerializedAttractions json;
+        private final SerializedAttractions smile;
+        private final long loadedAt = System.nanoTime();
+
+        private AttractionCatalog(List<Attraction> attractions, SerializedAttractions json, SerializedAttractions smile) {
+            this.attractions = attractions;
+            this.json = json;
+            this.smile = smile;
+        }
     }
 }
@@ -0,0 +1,31 @@
+package gpsUtil.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * The attractions response encoded once in a given media type, with the strong ETag of its bytes
+ */
+public class SerializedAttractions {
+
+    private final MediaType contentType;
+    private final byte[] body;
+    private final String eTag;
+
+    public SerializedAttractions(MediaType contentType, byte[] body, String eTag) {
+        this.contentType = contentType;
+        this.body = body;
+        this.eTag = eTag;
+    }
+
+    public MediaType getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+}
@@ -0,0 +1,16 @@
+package rewardCentral.configuration;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Memoizes the reward points of each (attraction, user) pair so that every caller, whichever TourGuide node it comes from,
+ * gets the same points within the time to live without paying the library's delay again.
+ * The Caffeine cache is bounded and timed by spring.cache.caffeine.spec, its hits and misses are exported as cache.gets metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    public static final String REWARD_POINTS = "rewardPoints";
+}
@@ -1,7 +1,9 @@
 package rewardCentral.service;
 
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import rewardCentral.RewardCentral;
+import rewardCentral.configuration.CacheConfiguration;
 
 import java.util.UUID;
 
@@ -15,12 +17,14 @@ public class RewardCentralServiceImpl implements RewardCentralService {
     }
 
     /**
-     * Get points awarded to a user for a given attraction
+     * Get points awarded to a user for a given attraction, memoized for the pair
+     * and computed once when several callers ask for the same pair concurrently
      * @param attractionId the id of the attraction concerned
      * @param userId the id of the user concerned
      * @return the number of points assigned to the user for this attraction
      */
     @Override
+    @Cacheable(cacheNames = CacheConfiguration.REWARD_POINTS, sync = true)
     public int getRewardPoints(UUID attractionId, UUID userId) {
         return rewardCentral.getAttractionRewardPoints(attractionId, userId);
     }
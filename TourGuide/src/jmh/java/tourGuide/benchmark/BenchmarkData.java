@@ -0,0 +1,62 @@
+package tourGuide.benchmark;
+
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Seeded generators of attraction catalogs and location histories, so every run and fork benchmarks the same data
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Get attractions spread over the continental United States
+     *
+     * @param catalogSize the number of attractions
+     * @return the attraction catalog
+     */
+    static List<AttractionBean> attractions(int catalogSize) {
+        Random random = new Random(SEED);
+        List<AttractionBean> attractions = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            attractions.add(new AttractionBean("attraction" + i, "city", "state",
+                    25 + random.nextDouble() * 24, -124 + random.nextDouble() * 57));
+        }
+        return attractions;
+    }
+
+    /**
+     * Get locations of a user, one visit in ten being close to an attraction of the catalog
+     *
+     * @param userId        the id of the user located
+     * @param attractions   the attraction catalog
+     * @param historyLength the number of visited locations
+     * @return the location history in visit order
+     */
+    static List<VisitedLocationBean> history(UUID userId, List<AttractionBean> attractions, int historyLength) {
+        Random random = new Random(SEED + 1);
+        List<VisitedLocationBean> history = new ArrayList<>(historyLength);
+        for (int i = 0; i < historyLength; i++) {
+            LocationBean location;
+            if (i % 10 == 0) {
+                AttractionBean attraction = attractions.get(random.nextInt(attractions.size()));
+                location = new LocationBean(attraction.getLatitude() + 0.01, attraction.getLongitude() - 0.01);
+            } else {
+                location = new LocationBean(25 + random.nextDouble() * 24, -124 + random.nextDouble() * 57);
+            }
+            history.add(new VisitedLocationBean(userId, location, new Date(i * 1000L)));
+        }
+        return history;
+    }
+}
@@ -0,0 +1,54 @@
+package tourGuide.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.service.RewardsServiceImpl;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single distance computation and proximity check
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class DistanceBenchmark {
+
+    private RewardsServiceImpl rewardsService;
+    private AttractionBean attraction;
+    private VisitedLocationBean visitedLocation;
+
+    @Setup
+    public void setUp() {
+        rewardsService = new RewardsServiceImpl(new StubGpsUtilProxy(Collections.emptyList(), null), new StubRewardCentralProxy());
+        attraction = new AttractionBean("Disneyland", "Anaheim", "CA", 33.817595D, -117.922008D);
+        visitedLocation = new VisitedLocationBean(UUID.randomUUID(), new LocationBean(33.917595D, -117.822008D), new Date());
+    }
+
+    @TearDown
+    public void tearDown() {
+        rewardsService.shutdown();
+    }
+
+    @Benchmark
+    public double getDistance() {
+        return rewardsService.getDistance(attraction, visitedLocation.locationBean);
+    }
+
+    @Benchmark
+    public boolean nearAttraction() {
+        return rewardsService.nearAttraction(visitedLocation, attraction);
+    }
+}
@@ -0,0 +1,74 @@
+package tourGuide.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.model.Dto.NearbyAttractionListByUserDto;
+import tourGuide.model.user.User;
+import tourGuide.service.RewardsServiceImpl;
+import tourGuide.service.TourGuideServiceImpl;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selection of the five closest attractions and serialization of the /getNearbyAttractions response
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class NearbyAttractionsBenchmark {
+
+    @Param({"26", "1000", "10000"})
+    public int catalogSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private RewardsServiceImpl rewardsService;
+    private TourGuideServiceImpl tourGuideService;
+    private VisitedLocationBean visitedLocation;
+    private NearbyAttractionListByUserDto nearbyAttractionListByUserDto;
+
+    @Setup
+    public void setUp() {
+        List<AttractionBean> attractions = BenchmarkData.attractions(catalogSize);
+        LocationBean location = new LocationBean(33.817595D, -117.922008D);
+        StubGpsUtilProxy gpsUtil = new StubGpsUtilProxy(attractions, location);
+        InternalTestHelper.setInternalUserNumber(0);
+        rewardsService = new RewardsServiceImpl(gpsUtil, new StubRewardCentralProxy());
+        tourGuideService = new TourGuideServiceImpl(gpsUtil, rewardsService);
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        tourGuideService.addUser(user);
+        visitedLocation = new VisitedLocationBean(user.getUserId(), location, new Date());
+        nearbyAttractionListByUserDto = tourGuideService.nearbyAttractionListByUserDto(visitedLocation);
+    }
+
+    @TearDown
+    public void tearDown() {
+        tourGuideService.tracker.stopTracking();
+        rewardsService.shutdown();
+    }
+
+    @Benchmark
+    public List<AttractionBean> getNearByAttractions() {
+        return tourGuideService.getNearByAttractions(visitedLocation);
+    }
+
+    @Benchmark
+    public byte[] serializeNearbyAttractions() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(nearbyAttractionListByUserDto);
+    }
+}
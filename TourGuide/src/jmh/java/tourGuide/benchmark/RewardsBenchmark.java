@@ -0,0 +1,73 @@
+package tourGuide.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.model.user.User;
+import tourGuide.service.RewardsServiceImpl;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reward evaluation of a user who has never been rewarded, from the call to calculateRewards until every reward is added
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RewardsBenchmark {
+
+    @Param({"26", "1000"})
+    public int catalogSize;
+
+    @Param({"10", "100", "1000"})
+    public int historyLength;
+
+    private RewardsServiceImpl rewardsService;
+    private UUID userId;
+    private List<VisitedLocationBean> history;
+    private int expectedRewards;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        List<AttractionBean> attractions = BenchmarkData.attractions(catalogSize);
+        rewardsService = new RewardsServiceImpl(new StubGpsUtilProxy(attractions, null), new StubRewardCentralProxy());
+        userId = UUID.randomUUID();
+        history = BenchmarkData.history(userId, attractions, historyLength);
+        expectedRewards = (int) attractions.stream()
+                .filter(attraction -> history.stream().anyMatch(visitedLocation -> rewardsService.nearAttraction(visitedLocation, attraction)))
+                .count();
+    }
+
+    @TearDown
+    public void tearDown() {
+        rewardsService.shutdown();
+    }
+
+    @Setup(Level.Invocation)
+    public void newUser() {
+        user = new User(userId, "jon", "000", "jon@tourGuide.com");
+        history.forEach(user::addToVisitedLocations);
+    }
+
+    @Benchmark
+    public int calculateRewards() {
+        rewardsService.calculateRewards(user);
+        // every stubbed reward is worth one point
+        while (user.getRewardPointsTotal() < expectedRewards) {
+            Thread.yield();
+        }
+        return user.getRewardPointsTotal();
+    }
+}
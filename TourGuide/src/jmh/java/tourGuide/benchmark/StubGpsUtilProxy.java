@@ -0,0 +1,40 @@
+package tourGuide.benchmark;
+
+import feign.Response;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.proxies.GpsUtilProxy;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * GpsUtil stand-in answering from memory so that benchmarks measure TourGuide code only
+ */
+class StubGpsUtilProxy implements GpsUtilProxy {
+
+    private final List<AttractionBean> attractions;
+    private final LocationBean location;
+
+    StubGpsUtilProxy(List<AttractionBean> attractions, LocationBean location) {
+        this.attractions = attractions;
+        this.location = location;
+    }
+
+    @Override
+    public VisitedLocationBean getUserLocation(UUID userId) {
+        return new VisitedLocationBean(userId, location, new Date());
+    }
+
+    @Override
+    public List<AttractionBean> getAttractions() {
+        return attractions;
+    }
+
+    @Override
+    public Response getAttractionsIfNoneMatch(String eTag) {
+        throw new UnsupportedOperationException("Conditional requests are not benchmarked");
+    }
+}
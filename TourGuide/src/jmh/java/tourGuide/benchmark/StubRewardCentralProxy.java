@@ -0,0 +1,16 @@
+package tourGuide.benchmark;
+
+import tourGuide.proxies.RewardCentralProxy;
+
+import java.util.UUID;
+
+/**
+ * RewardCentral stand-in awarding one point per attraction, so a user's reward total counts its rewards
+ */
+class StubRewardCentralProxy implements RewardCentralProxy {
+
+    @Override
+    public int getRewards(UUID attractionId, UUID userId) {
+        return 1;
+    }
+}
@@ -0,0 +1,63 @@
+package tourGuide.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.model.user.User;
+import tourGuide.model.user.UserReward;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of User.addUserReward as the reward list grows, each add first checking every existing reward
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class UserRewardBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int rewardCount;
+
+    private List<UserReward> rewards;
+    private User rewardedUser;
+
+    @Setup
+    public void setUp() {
+        UUID userId = UUID.randomUUID();
+        List<AttractionBean> attractions = BenchmarkData.attractions(rewardCount);
+        VisitedLocationBean visitedLocation = BenchmarkData.history(userId, attractions, 1).get(0);
+        rewards = new ArrayList<>(rewardCount);
+        attractions.forEach(attraction -> rewards.add(new UserReward(visitedLocation, attraction, 1)));
+        rewardedUser = new User(userId, "jon", "000", "jon@tourGuide.com");
+        rewards.forEach(rewardedUser::addUserReward);
+    }
+
+    /**
+     * Reward a new user for every attraction, the list growing from empty to rewardCount
+     */
+    @Benchmark
+    public User fillRewards() {
+        User user = new User(rewardedUser.getUserId(), "jon", "000", "jon@tourGuide.com");
+        rewards.forEach(user::addUserReward);
+        return user;
+    }
+
+    /**
+     * Reward a user again for an attraction it already has, the worst case scanning the whole list
+     */
+    @Benchmark
+    public boolean addDuplicateReward() {
+        return rewardedUser.addUserReward(rewards.get(rewards.size() - 1));
+    }
+}
@@ -0,0 +1,91 @@
+package tourGuide.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding and decoding the payloads exchanged with GpsUtil and RewardCentral in JSON and in Smile,
+ * the size of the encoded payload being reported as the payloadBytes counter
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"json", "smile"})
+    public String format;
+
+    @Param({"location", "attractions", "rewardPoints"})
+    public String payload;
+
+    private ObjectMapper mapper;
+    private Object value;
+    private JavaType type;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        // configured as the proxies' decoders, beans being built through their constructor parameter names
+        mapper = ("smile".equals(format) ? new ObjectMapper(new SmileFactory()) : new ObjectMapper())
+                .registerModule(new ParameterNamesModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        switch (payload) {
+            case "location":
+                value = new VisitedLocationBean(UUID.randomUUID(), new LocationBean(33.817595D, -117.922008D), new Date());
+                type = mapper.constructType(VisitedLocationBean.class);
+                break;
+            case "attractions":
+                // the size of the GpsUtil catalog
+                value = BenchmarkData.attractions(26);
+                type = mapper.getTypeFactory().constructCollectionType(List.class, AttractionBean.class);
+                break;
+            default:
+                value = 732;
+                type = mapper.constructType(Integer.class);
+        }
+        encoded = mapper.writeValueAsBytes(value);
+    }
+
+    /**
+     * The size of the encoded payload, assigned by every call rather than accumulated
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadSize {
+        public long payloadBytes;
+    }
+
+    @Benchmark
+    public byte[] encode(PayloadSize payloadSize) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(value);
+        payloadSize.payloadBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Object decode(PayloadSize payloadSize) throws IOException {
+        payloadSize.payloadBytes = encoded.length;
+        return mapper.readValue(encoded, type);
+    }
+}
@@ -0,0 +1,52 @@
+package tourGuide.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import tourGuide.exceptions.UserNotFoundException;
+import tourGuide.service.TourGuideService;
+import tourGuide.tracker.TripDealsPrecomputer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@Configuration
+@Profile("!reactive")
+public class ActivityConfiguration implements WebMvcConfigurer {
+
+    private final TourGuideService tourGuideService;
+    private final TripDealsPrecomputer tripDealsPrecomputer;
+
+    // lazy, the services depend on the Feign clients which depend on the Spring MVC message converters configured here
+    public ActivityConfiguration(@Lazy TourGuideService tourGuideService, @Lazy TripDealsPrecomputer tripDealsPrecomputer) {
+        this.tourGuideService = tourGuideService;
+        this.tripDealsPrecomputer = tripDealsPrecomputer;
+    }
+
+    /**
+     * Mark the user named by the userName parameter of each request as recently active,
+     * so that its trip deals are precomputed before it asks for them
+     *
+     * @param registry the registry of the Spring MVC interceptors
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                String userName = request.getParameter("userName");
+                if (userName != null) {
+                    try {
+                        tripDealsPrecomputer.markActive(tourGuideService.getUser(userName));
+                    } catch (UserNotFoundException e) {
+                        // answered by the controller
+                    }
+                }
+                return true;
+            }
+        });
+    }
+}
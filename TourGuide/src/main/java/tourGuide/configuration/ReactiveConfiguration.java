@@ -0,0 +1,66 @@
+package tourGuide.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.server.WebFilter;
+import tourGuide.exceptions.UserNotFoundException;
+import tourGuide.service.TourGuideService;
+import tourGuide.tracker.TripDealsPrecomputer;
+
+/**
+ * Configuration of the reactive profile, where the REST API is served by Spring WebFlux on Netty
+ * instead of Spring MVC on Tomcat
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfiguration {
+
+    private final TourGuideService tourGuideService;
+    private final TripDealsPrecomputer tripDealsPrecomputer;
+
+    // lazy, the services depend on the Feign clients which depend on the message converters configured here
+    public ReactiveConfiguration(@Lazy TourGuideService tourGuideService, @Lazy TripDealsPrecomputer tripDealsPrecomputer) {
+        this.tourGuideService = tourGuideService;
+        this.tripDealsPrecomputer = tripDealsPrecomputer;
+    }
+
+    /**
+     * Get the message converters of the proxies' encoder and decoder.
+     * Spring Boot only configures them for Spring MVC, the Feign clients still need them in a reactive application.
+     *
+     * @param objectMapper              the object mapper of Spring Boot
+     * @param smileHttpMessageConverter the Smile converter of the proxies
+     * @return the JSON and Smile converters followed by the Spring defaults
+     */
+    @Bean
+    public HttpMessageConverters messageConverters(ObjectMapper objectMapper, MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter) {
+        return new HttpMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper), smileHttpMessageConverter);
+    }
+
+    /**
+     * Mark the user named by the userName parameter of each request as recently active,
+     * so that its trip deals are precomputed before it asks for them
+     *
+     * @return the filter run before the reactive controller
+     */
+    @Bean
+    public WebFilter activityWebFilter() {
+        return (exchange, chain) -> {
+            String userName = exchange.getRequest().getQueryParams().getFirst("userName");
+            if (userName != null) {
+                try {
+                    tripDealsPrecomputer.markActive(tourGuideService.getUser(userName));
+                } catch (UserNotFoundException e) {
+                    // answered by the controller
+                }
+            }
+            return chain.filter(exchange);
+        };
+    }
+}
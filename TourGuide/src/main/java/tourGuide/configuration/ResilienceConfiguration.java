@@ -0,0 +1,128 @@
+package tourGuide.configuration;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tourGuide.proxies.AdaptiveConcurrencyLimiter;
+
+import java.time.Duration;
+
+@Configuration
+public class ResilienceConfiguration {
+
+    public static final String GPS_UTIL = "gps-util";
+    public static final String REWARD_CENTRAL = "reward-central";
+    public static final String GPS_UTIL_LIMITER = "gpsUtilConcurrencyLimiter";
+    public static final String REWARD_CENTRAL_LIMITER = "rewardCentralConcurrencyLimiter";
+
+    /**
+     * Get the circuit breakers of the downstream services, their state being exported as resilience4j.circuitbreaker.* metrics
+     *
+     * @param failureRateThreshold    percentage of failed calls above which a breaker opens
+     * @param slidingWindowSize       number of recent calls used to compute the failure rate
+     * @param waitDurationInOpenState milliseconds a breaker stays open before letting trial calls through
+     * @param meterRegistry           the registry the breakers' metrics are bound to
+     * @return the registry holding one circuit breaker per downstream service
+     */
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(@Value("${tour.guide.proxy.circuit.breaker.failure.rate.threshold:50}") float failureRateThreshold,
+                                                         @Value("${tour.guide.proxy.circuit.breaker.sliding.window.size:100}") int slidingWindowSize,
+                                                         @Value("${tour.guide.proxy.circuit.breaker.wait.duration.ms:10000}") long waitDurationInOpenState,
+                                                         MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .waitDurationInOpenState(Duration.ofMillis(waitDurationInOpenState))
+                .build());
+        circuitBreakerRegistry.circuitBreaker(GPS_UTIL);
+        circuitBreakerRegistry.circuitBreaker(REWARD_CENTRAL);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        return circuitBreakerRegistry;
+    }
+
+    /**
+     * Get the bulkheads of the downstream services, their saturation being exported as resilience4j.bulkhead.* metrics
+     *
+     * @param gpsUtilMaxConcurrentCalls       maximum number of calls in flight to GpsUtil
+     * @param rewardCentralMaxConcurrentCalls maximum number of calls in flight to RewardCentral
+     * @param maxWaitDuration                 milliseconds a call waits for a free slot before being rejected
+     * @param meterRegistry                   the registry the bulkheads' metrics are bound to
+     * @return the registry holding one bulkhead per downstream service
+     */
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(@Value("${tour.guide.proxy.gps.util.max.concurrent.calls:1000}") int gpsUtilMaxConcurrentCalls,
+                                             @Value("${tour.guide.proxy.reward.central.max.concurrent.calls:1000}") int rewardCentralMaxConcurrentCalls,
+                                             @Value("${tour.guide.proxy.bulkhead.max.wait.ms:500}") long maxWaitDuration,
+                                             MeterRegistry meterRegistry) {
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+        bulkheadRegistry.bulkhead(GPS_UTIL, bulkheadConfig(gpsUtilMaxConcurrentCalls, maxWaitDuration));
+        bulkheadRegistry.bulkhead(REWARD_CENTRAL, bulkheadConfig(rewardCentralMaxConcurrentCalls, maxWaitDuration));
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+        return bulkheadRegistry;
+    }
+
+    /**
+     * Get the adaptive concurrency limiter of GpsUtil, its limit being exported as the tour.guide.proxy.concurrency.limit metric
+     *
+     * @param initialLimit  the number of calls allowed in flight before any latency is measured
+     * @param maxLimit      the highest number of calls allowed in flight
+     * @param targetLatency the round-trip latency in milliseconds the limiter keeps the GpsUtil calls near
+     * @param maxWait       milliseconds a call waits for a free slot before being rejected
+     * @param meterRegistry the registry the limiter's metrics are bound to
+     * @return the limiter of the calls sent to GpsUtil
+     */
+    @Bean(GPS_UTIL_LIMITER)
+    public AdaptiveConcurrencyLimiter gpsUtilConcurrencyLimiter(@Value("${tour.guide.proxy.gps.util.limiter.initial.limit:20}") int initialLimit,
+                                                                @Value("${tour.guide.proxy.gps.util.limiter.max.limit:500}") int maxLimit,
+                                                                @Value("${tour.guide.proxy.gps.util.limiter.target.latency.ms:200}") long targetLatency,
+                                                                @Value("${tour.guide.proxy.limiter.max.wait.ms:5000}") long maxWait,
+                                                                MeterRegistry meterRegistry) {
+        return bindTo(new AdaptiveConcurrencyLimiter(GPS_UTIL, initialLimit, 1, maxLimit, targetLatency, maxWait), meterRegistry);
+    }
+
+    /**
+     * Get the adaptive concurrency limiter of RewardCentral, its limit being exported as the tour.guide.proxy.concurrency.limit metric
+     *
+     * @param initialLimit  the number of calls allowed in flight before any latency is measured
+     * @param maxLimit      the highest number of calls allowed in flight
+     * @param targetLatency the round-trip latency in milliseconds the limiter keeps the RewardCentral calls near
+     * @param maxWait       milliseconds a call waits for a free slot before being rejected
+     * @param meterRegistry the registry the limiter's metrics are bound to
+     * @return the limiter of the calls sent to RewardCentral
+     */
+    @Bean(REWARD_CENTRAL_LIMITER)
+    public AdaptiveConcurrencyLimiter rewardCentralConcurrencyLimiter(@Value("${tour.guide.proxy.reward.central.limiter.initial.limit:20}") int initialLimit,
+                                                                      @Value("${tour.guide.proxy.reward.central.limiter.max.limit:500}") int maxLimit,
+                                                                      @Value("${tour.guide.proxy.reward.central.limiter.target.latency.ms:1500}") long targetLatency,
+                                                                      @Value("${tour.guide.proxy.limiter.max.wait.ms:5000}") long maxWait,
+                                                                      MeterRegistry meterRegistry) {
+        return bindTo(new AdaptiveConcurrencyLimiter(REWARD_CENTRAL, initialLimit, 1, maxLimit, targetLatency, maxWait), meterRegistry);
+    }
+
+    private AdaptiveConcurrencyLimiter bindTo(AdaptiveConcurrencyLimiter concurrencyLimiter, MeterRegistry meterRegistry) {
+        Gauge.builder("tour.guide.proxy.concurrency.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Calls allowed in flight to the downstream service")
+                .tag("name", concurrencyLimiter.getName())
+                .register(meterRegistry);
+        Gauge.builder("tour.guide.proxy.concurrency.in.flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Calls in flight to the downstream service")
+                .tag("name", concurrencyLimiter.getName())
+                .register(meterRegistry);
+        return concurrencyLimiter;
+    }
+
+    private BulkheadConfig bulkheadConfig(int maxConcurrentCalls, long maxWaitDuration) {
+        return BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ofMillis(maxWaitDuration))
+                .build();
+    }
+}
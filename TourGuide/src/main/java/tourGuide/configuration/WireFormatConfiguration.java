@@ -0,0 +1,47 @@
+package tourGuide.configuration;
+
+import feign.RequestInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.util.List;
+
+@Configuration
+public class WireFormatConfiguration {
+
+    public static final String SMILE = "smile";
+    private static final String SMILE_OR_JSON = "application/x-jackson-smile, " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9";
+
+    /**
+     * Decode the Smile responses of GpsUtil and RewardCentral, Smile being a binary encoding of the JSON model.
+     * Replaces the default Smile converter of Spring MVC, which ignores the Spring Boot Jackson configuration
+     * (the proxies' beans are built through their constructor parameter names), and keeps its place after the JSON converter.
+     *
+     * @param customizers the object mapper customizations of Spring Boot, so that both formats share the same modules
+     * @return the Smile message converter used by the proxies' decoder
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(List<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+        Jackson2ObjectMapperBuilder smileBuilder = Jackson2ObjectMapperBuilder.smile();
+        customizers.forEach(customizer -> customizer.customize(smileBuilder));
+        return new MappingJackson2SmileHttpMessageConverter(smileBuilder.build());
+    }
+
+    /**
+     * Ask the downstream services for Smile, falling back to JSON if a service doesn't offer it
+     *
+     * @param wireFormat the format requested from the downstream services, smile or json
+     * @return the interceptor setting the Accept header of every proxy call
+     */
+    @Bean
+    public RequestInterceptor wireFormatRequestInterceptor(@Value("${tour.guide.proxy.wire.format:" + SMILE + "}") String wireFormat) {
+        String accept = SMILE.equalsIgnoreCase(wireFormat) ? SMILE_OR_JSON : MediaType.APPLICATION_JSON_VALUE;
+        return template -> template.header(HttpHeaders.ACCEPT, accept);
+    }
+}
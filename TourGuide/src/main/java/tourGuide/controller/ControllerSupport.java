@@ -0,0 +1,81 @@
+package tourGuide.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.service.TourGuideService;
+
+/**
+ * Validation and response headers shared by the servlet and the reactive controllers, so both stacks answer alike
+ */
+final class ControllerSupport {
+    static final int MAX_PAGE_SIZE = 100;
+    // RFC 7234 warning of a response served while its refresh is pending
+    static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    private ControllerSupport() {
+    }
+
+    /**
+     * Answer a body computed from a user location, with the age of the location
+     * and a warning when it is stale and being refreshed
+     */
+    static <T> ResponseEntity<T> withFreshness(TourGuideService tourGuideService, VisitedLocationBean visitedLocation, T body) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (visitedLocation.timeVisited != null) {
+            long ageSeconds = Math.max(0, System.currentTimeMillis() - visitedLocation.timeVisited.getTime()) / 1000;
+            response.header(HttpHeaders.AGE, String.valueOf(ageSeconds));
+        }
+        if (tourGuideService.isStale(visitedLocation)) response.header(HttpHeaders.WARNING, STALE_WARNING);
+        return response.body(body);
+    }
+
+    static void checkPage(int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The page must be positive and the size between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    static void checkBoundingBox(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+        if (!isLatitude(minLatitude) || !isLatitude(maxLatitude) || minLatitude > maxLatitude
+                || !isLongitude(minLongitude) || !isLongitude(maxLongitude)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The latitudes must be ordered between -90 and 90 and the longitudes between -180 and 180");
+        }
+    }
+
+    static void checkRadius(double latitude, double longitude, double radiusMiles) {
+        if (!isLatitude(latitude) || !isLongitude(longitude) || !(radiusMiles > 0)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The latitude must be between -90 and 90, the longitude between -180 and 180 and the radius positive");
+        }
+    }
+
+    /**
+     * Get the bounding box of an update stream from its optional limits, checked as the users within a bounding box
+     *
+     * @return {minLatitude, maxLatitude, minLongitude, maxLongitude}, null when no limit is given
+     */
+    static double[] streamBoundingBox(Double minLatitude, Double maxLatitude, Double minLongitude, Double maxLongitude) {
+        if (minLatitude == null && maxLatitude == null && minLongitude == null && maxLongitude == null) return null;
+        if (minLatitude == null || maxLatitude == null || minLongitude == null || maxLongitude == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The four bounding box limits are required");
+        }
+        checkBoundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        return new double[]{minLatitude, maxLatitude, minLongitude, maxLongitude};
+    }
+
+    static void checkBulkBatchSize(int batchSize, int maxBulkBatchSize) {
+        if (batchSize > maxBulkBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxBulkBatchSize + " usernames can be sent in one call");
+        }
+    }
+
+    private static boolean isLatitude(double latitude) {
+        return latitude >= -90 && latitude <= 90;
+    }
+
+    private static boolean isLongitude(double longitude) {
+        return longitude >= -180 && longitude <= 180;
+    }
+}
@@ -0,0 +1,377 @@
+package tourGuide.controller;
+
+import com.jsoniter.output.JsonStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.exceptions.AttractionNotFoundException;
+import tourGuide.exceptions.UserNotFoundException;
+import tourGuide.model.Dto.AttractionOccupancyDto;
+import tourGuide.model.Dto.BulkResultDto;
+import tourGuide.model.Dto.CurrentLocationsDto;
+import tourGuide.model.Dto.LeaderboardDto;
+import tourGuide.model.Dto.NearbyAttractionListByUserDto;
+import tourGuide.model.Dto.UserLocationsPageDto;
+import tourGuide.model.user.User;
+import tourGuide.model.user.UserPreferences;
+import tourGuide.model.user.UserReward;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.service.TripPricerService;
+import tourGuide.stream.OverflowPolicy;
+import tourGuide.stream.UpdateEvent;
+import tourGuide.stream.UpdateEventBroadcaster;
+import tripPricer.Provider;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static tourGuide.controller.ControllerSupport.checkBoundingBox;
+import static tourGuide.controller.ControllerSupport.checkBulkBatchSize;
+import static tourGuide.controller.ControllerSupport.checkPage;
+import static tourGuide.controller.ControllerSupport.checkRadius;
+import static tourGuide.controller.ControllerSupport.streamBoundingBox;
+import static tourGuide.controller.ControllerSupport.withFreshness;
+
+/**
+ * The REST API of TourGuideController served by Spring WebFlux, selected by the reactive profile.
+ * The calls to GpsUtil and RewardCentral are composed from the services' futures, so no request thread waits for them:
+ * the Feign clients only block the services' downstream executors, and the few calls still blocking run on the elastic scheduler
+ * instead of the event loop.
+ * Streamed responses are produced as the client reads them: the bulk lookups are started as the results are written
+ * and the updates are only emitted when requested.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveTourGuideController {
+    private final Logger logger = LoggerFactory.getLogger(ReactiveTourGuideController.class);
+
+    @Autowired
+    TourGuideService tourGuideService;
+    @Autowired
+    TripPricerService tripPricerService;
+    @Autowired
+    private RewardsService rewardsService;
+    @Autowired
+    private UpdateEventBroadcaster updateEventBroadcaster;
+    @Value("${tour.guide.bulk.max.batch.size:1000}")
+    private int maxBulkBatchSize;
+    @Value("${tour.guide.bulk.max.concurrent.lookups:256}")
+    private int maxConcurrentBulkLookups;
+
+    @GetMapping("/")
+    public String index() {
+        return "Greetings from TourGuide!";
+    }
+
+    /**
+     * Get a location by username
+     *
+     * @param userName the username whose location is sought
+     * @return a user location (latitude and longitude), with its age and a warning when it is stale
+     */
+    @GetMapping("/getLocation")
+    public Mono<ResponseEntity<LocationBean>> getLocation(@RequestParam String userName) {
+        logger.info("REST : Get user location");
+        return userLocation(userName)
+                .map(visitedLocation -> withFreshness(tourGuideService, visitedLocation, visitedLocation.locationBean))
+                .onErrorMap(UserNotFoundException.class, this::notFound);
+    }
+
+    /**
+     * Get the closest five tourist attractions to the user sorted in ascending order with user location information (longitude and latitude),
+     * the reward points of the five attractions being looked up side by side
+     *
+     * @param userName the username whose five nearest tourist attractions are searched
+     * @return the closest five tourist attractions to the user sorted in ascending order with all user and attractions information
+     */
+    @GetMapping("/getNearbyAttractions")
+    public Mono<ResponseEntity<NearbyAttractionListByUserDto>> getNearbyAttractions(@RequestParam String userName) {
+        logger.info("REST : Get nearby attractions");
+        return userLocation(userName)
+                .flatMap(visitedLocation -> Mono.fromFuture(tourGuideService.nearbyAttractionListByUserDtoAsync(visitedLocation))
+                        .map(nearbyAttractions -> withFreshness(tourGuideService, visitedLocation, nearbyAttractions)))
+                .onErrorMap(UserNotFoundException.class, this::notFound);
+    }
+
+    /**
+     * Get a list of rewards per user
+     *
+     * @param userName the username whose rewards are sought
+     * @return a list of user reward
+     */
+    @GetMapping("/getRewards")
+    public ResponseEntity<List<UserReward>> getRewards(@RequestParam String userName) {
+        logger.info("REST : Get user rewards");
+        try {
+            return ResponseEntity.ok(rewardsService.getUserRewards(tourGuideService.getUser(userName)));
+        } catch (UserNotFoundException e) {
+            throw notFound(e);
+        }
+    }
+
+    /**
+     * Get the locations of many users in one call.
+     * The results are streamed as JSON lines in the order they are found, at most tour.guide.bulk.max.concurrent.lookups
+     * lookups being in flight and no more being started than the client is ready to read.
+     *
+     * @param userNames the usernames whose locations are sought, at most tour.guide.bulk.max.batch.size
+     * @return a stream of one result per username
+     */
+    @PostMapping(value = "/locations/bulk", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<BulkResultDto<LocationBean>> getLocations(@RequestBody List<String> userNames) {
+        logger.info("REST : Get user locations in bulk");
+        return bulkResults(userNames, userName -> userLocation(userName).map(visitedLocation -> visitedLocation.locationBean));
+    }
+
+    /**
+     * Get the rewards of many users in one call, streamed as JSON lines
+     *
+     * @param userNames the usernames whose rewards are sought, at most tour.guide.bulk.max.batch.size
+     * @return a stream of one result per username
+     */
+    @PostMapping(value = "/rewards/bulk", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<BulkResultDto<List<UserReward>>> getRewards(@RequestBody List<String> userNames) {
+        logger.info("REST : Get user rewards in bulk");
+        return bulkResults(userNames, userName -> Mono.fromCallable(() -> rewardsService.getUserRewards(tourGuideService.getUser(userName))));
+    }
+
+    /**
+     * Get a page of the users ranked by total reward points, highest first
+     *
+     * @param page the index of the page, starting at 0
+     * @param size the number of users per page, between 1 and 100
+     * @return the ranked users of the page with their rank and reward points
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<LeaderboardDto> getLeaderboard(@RequestParam(defaultValue = "0") int page,
+                                                         @RequestParam(defaultValue = "10") int size) {
+        logger.info("REST : Get leaderboard page {}", page);
+        checkPage(page, size);
+        return ResponseEntity.ok(rewardsService.getLeaderboard(page, size));
+    }
+
+    /**
+     * Get a list of every user's most recent location as JSON
+     *
+     * @return a map with for each user key = userId and value = {latitude, longitude}
+     */
+    @GetMapping("/getAllCurrentLocations")
+    public String getAllCurrentLocations() {
+        logger.info("REST : Get all current user location");
+        return JsonStream.serialize(tourGuideService.getAllCurrentLocations());
+    }
+
+    /**
+     * Get the most recent location of every user whose location changed since a previous call
+     *
+     * @param since the cursor of the previous call, 0 for every user's location
+     * @return the updated locations and the cursor for the next call
+     */
+    @GetMapping("/getCurrentLocations")
+    public ResponseEntity<CurrentLocationsDto> getCurrentLocations(@RequestParam long since) {
+        logger.info("REST : Get current user locations updated since {}", since);
+        return ResponseEntity.ok(tourGuideService.getCurrentLocationsSince(since));
+    }
+
+    /**
+     * Get a page of the users whose most recent location is inside a bounding box, ordered by user id
+     *
+     * @param minLatitude  the south limit of the bounding box
+     * @param maxLatitude  the north limit of the bounding box
+     * @param minLongitude the west limit of the bounding box, greater than the east limit when the box crosses the antimeridian
+     * @param maxLongitude the east limit of the bounding box
+     * @param page         the index of the page, starting at 0
+     * @param size         the number of users per page, between 1 and 100
+     * @return the users of the page with for each user its id and location, and the number of users found
+     */
+    @GetMapping("/users/withinBoundingBox")
+    public ResponseEntity<UserLocationsPageDto> getUsersWithinBoundingBox(@RequestParam double minLatitude,
+                                                                          @RequestParam double maxLatitude,
+                                                                          @RequestParam double minLongitude,
+                                                                          @RequestParam double maxLongitude,
+                                                                          @RequestParam(defaultValue = "0") int page,
+                                                                          @RequestParam(defaultValue = "10") int size) {
+        logger.info("REST : Get users within bounding box");
+        checkPage(page, size);
+        checkBoundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        return ResponseEntity.ok(tourGuideService.getUsersWithinBoundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude, page, size));
+    }
+
+    /**
+     * Get a page of the users whose most recent location is within a distance of a point, closest first
+     *
+     * @param latitude    the latitude of the point
+     * @param longitude   the longitude of the point
+     * @param radiusMiles the distance in miles
+     * @param page        the index of the page, starting at 0
+     * @param size        the number of users per page, between 1 and 100
+     * @return the users of the page with for each user its id, location and distance in miles, and the number of users found
+     */
+    @GetMapping("/users/withinRadius")
+    public ResponseEntity<UserLocationsPageDto> getUsersWithinRadius(@RequestParam double latitude,
+                                                                     @RequestParam double longitude,
+                                                                     @RequestParam double radiusMiles,
+                                                                     @RequestParam(defaultValue = "0") int page,
+                                                                     @RequestParam(defaultValue = "10") int size) {
+        logger.info("REST : Get users within radius");
+        checkPage(page, size);
+        checkRadius(latitude, longitude, radiusMiles);
+        return ResponseEntity.ok(tourGuideService.getUsersWithinRadius(latitude, longitude, radiusMiles, page, size));
+    }
+
+    /**
+     * Get a page of the users whose most recent location is near an attraction, closest first
+     *
+     * @param attractionName the name of the attraction
+     * @param page           the index of the page, starting at 0
+     * @param size           the number of users per page, between 1 and 100
+     * @return the users of the page with for each user its id, location and distance in miles to the attraction, and the number of users near it
+     */
+    @GetMapping("/attractions/{attractionName}/nearbyUsers")
+    public Mono<ResponseEntity<UserLocationsPageDto>> getUsersNearAttraction(@PathVariable String attractionName,
+                                                                             @RequestParam(defaultValue = "0") int page,
+                                                                             @RequestParam(defaultValue = "10") int size) {
+        logger.info("REST : Get users near attraction");
+        checkPage(page, size);
+        // an unknown attraction refreshes the catalog from GpsUtil
+        return Mono.fromCallable(() -> ResponseEntity.ok(tourGuideService.getUsersNearAttraction(attractionName, page, size)))
+                .subscribeOn(Schedulers.elastic())
+                .onErrorMap(AttractionNotFoundException.class, this::notFound);
+    }
+
+    /**
+     * Get the number of users whose most recent location is near each attraction, most crowded first
+     *
+     * @return for each attraction its name, city, state and number of nearby users
+     */
+    @GetMapping("/attractions/occupancy")
+    public Mono<ResponseEntity<List<AttractionOccupancyDto>>> getAttractionOccupancy() {
+        logger.info("REST : Get attraction occupancy");
+        // the first call loads the catalog from GpsUtil
+        return Mono.fromCallable(() -> ResponseEntity.ok(tourGuideService.getAttractionOccupancy()))
+                .subscribeOn(Schedulers.elastic());
+    }
+
+    /**
+     * Subscribe to a server-sent events stream of location and reward updates.
+     * Updates are filtered by user when a username is given, otherwise by bounding box when its four limits are given.
+     * The updates are sent as the connection can take them, the overflow policy applying to the ones the client isn't ready for.
+     *
+     * @param userName       the username whose updates are sent
+     * @param minLatitude    the south limit of the bounding box
+     * @param maxLatitude    the north limit of the bounding box
+     * @param minLongitude   the west limit of the bounding box
+     * @param maxLongitude   the east limit of the bounding box
+     * @param overflowPolicy what to do with new updates when the client doesn't keep up
+     * @return a stream of LOCATION and REWARD events
+     */
+    @GetMapping(value = "/streamUpdates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<UpdateEvent>> streamUpdates(@RequestParam(required = false) String userName,
+                                                            @RequestParam(required = false) Double minLatitude,
+                                                            @RequestParam(required = false) Double maxLatitude,
+                                                            @RequestParam(required = false) Double minLongitude,
+                                                            @RequestParam(required = false) Double maxLongitude,
+                                                            @RequestParam(defaultValue = "COALESCE") OverflowPolicy overflowPolicy) {
+        logger.info("REST : Stream updates");
+        double[] boundingBox = streamBoundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        try {
+            User user = userName == null ? null : tourGuideService.getUser(userName);
+            return updateEventBroadcaster.stream(user == null ? null : user.getUserId(), boundingBox, overflowPolicy)
+                    .map(event -> ServerSentEvent.builder(event).event(event.getType().name()).build());
+        } catch (UserNotFoundException e) {
+            throw notFound(e);
+        }
+    }
+
+    /**
+     * Get a list of provider with price offer by user
+     *
+     * @param userName       the userName whose providers are sought
+     * @param attractionName the name of the attraction for which the deals are requested
+     * @return a list of providers with price offer
+     */
+    @GetMapping("/getTripDeals")
+    public Mono<ResponseEntity<List<Provider>>> getTripDeals(@RequestParam String userName, @RequestParam String attractionName) {
+        logger.info("REST : Get user trip deal");
+        // the deals are priced on a cache miss and the attraction is looked up in GpsUtil
+        return Mono.fromCallable(() -> ResponseEntity.ok(tripPricerService.getTripDeals(tourGuideService.getUser(userName), tourGuideService.getAttraction(attractionName))))
+                .subscribeOn(Schedulers.elastic())
+                .onErrorMap(this::notFound);
+    }
+
+    /**
+     * Update user's preferences
+     *
+     * @param userName           the username of user whose preferences are to be updated
+     * @param preferencesUpdated the preferences to update
+     * @return updated user preferences
+     */
+    @PutMapping("/updateUserPreferences")
+    public ResponseEntity<UserPreferences> updateUserPreferences(@RequestParam String userName, @RequestBody UserPreferences preferencesUpdated) {
+        logger.info("REST : Update user preferences");
+        try {
+            return ResponseEntity.ok(tripPricerService.updateUserPreferences(tourGuideService.getUser(userName), preferencesUpdated));
+        } catch (UserNotFoundException e) {
+            throw notFound(e);
+        }
+    }
+
+    /**
+     * Get a user by userName
+     *
+     * @param userName of user sought
+     * @return the user found
+     */
+    @GetMapping("/getUser")
+    public ResponseEntity<User> getUser(@RequestParam String userName) {
+        logger.info("REST : Get user by name");
+        try {
+            return ResponseEntity.ok(tourGuideService.getUser(userName));
+        } catch (UserNotFoundException e) {
+            throw notFound(e);
+        }
+    }
+
+    /**
+     * Get the location of a user, subscribing looks the user up so that an unknown user is signalled as an error
+     */
+    private Mono<VisitedLocationBean> userLocation(String userName) {
+        return Mono.defer(() -> Mono.fromFuture(tourGuideService.getUserLocationAsync(tourGuideService.getUser(userName))));
+    }
+
+    private <T> Flux<BulkResultDto<T>> bulkResults(List<String> userNames, Function<String, Mono<T>> lookup) {
+        checkBulkBatchSize(userNames.size(), maxBulkBatchSize);
+        return Flux.fromIterable(userNames)
+                .flatMap(userName -> Mono.defer(() -> lookup.apply(userName))
+                        .map(result -> BulkResultDto.<T>builder().userName(userName).result(result).build())
+                        .onErrorResume(error -> Mono.just(BulkResultDto.<T>builder().userName(userName).error(lookupError(error)).build())),
+                        maxConcurrentBulkLookups);
+    }
+
+    private String lookupError(Throwable error) {
+        if (!(error instanceof UserNotFoundException)) logger.error("REST : Bulk lookup failed", error);
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    /**
+     * Get the 404 error of a missing user or attraction, its message being rendered by the WebFlux error handler
+     */
+    private ResponseStatusException notFound(Throwable e) {
+        logger.error("REST : " + e.getMessage());
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+    }
+}
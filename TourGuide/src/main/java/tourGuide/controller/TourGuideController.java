@@ -1,28 +1,64 @@
 package tourGuide.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jsoniter.output.JsonStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import tourGuide.beans.LocationBean;
 import tourGuide.beans.VisitedLocationBean;
+import tourGuide.exceptions.AttractionNotFoundException;
 import tourGuide.exceptions.UserNotFoundException;
+import tourGuide.model.Dto.AttractionOccupancyDto;
+import tourGuide.model.Dto.BulkResultDto;
+import tourGuide.model.Dto.CurrentLocationsDto;
+import tourGuide.model.Dto.LeaderboardDto;
 import tourGuide.model.Dto.NearbyAttractionListByUserDto;
+import tourGuide.model.Dto.UserLocationsPageDto;
 import tourGuide.model.user.User;
 import tourGuide.model.user.UserPreferences;
 import tourGuide.model.user.UserReward;
 import tourGuide.service.RewardsService;
 import tourGuide.service.TourGuideService;
 import tourGuide.service.TripPricerService;
+import tourGuide.stream.OverflowPolicy;
+import tourGuide.stream.UpdateEventBroadcaster;
 import tripPricer.Provider;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static tourGuide.controller.ControllerSupport.checkBoundingBox;
+import static tourGuide.controller.ControllerSupport.checkBulkBatchSize;
+import static tourGuide.controller.ControllerSupport.checkPage;
+import static tourGuide.controller.ControllerSupport.checkRadius;
+import static tourGuide.controller.ControllerSupport.streamBoundingBox;
+import static tourGuide.controller.ControllerSupport.withFreshness;
 
 @RestController
+@Profile("!reactive")
 public class TourGuideController {
     private final Logger logger = LoggerFactory.getLogger(TourGuideController.class);
 
@@ -32,6 +68,16 @@ public class TourGuideController {
     TripPricerService tripPricerService;
     @Autowired
     private RewardsService rewardsService;
+    @Autowired
+    private UpdateEventBroadcaster updateEventBroadcaster;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Value("${tour.guide.bulk.max.batch.size:1000}")
+    private int maxBulkBatchSize;
+    @Value("${tour.guide.bulk.max.concurrent.lookups:256}")
+    private int maxConcurrentBulkLookups;
+    @Value("${tour.guide.bulk.timeout.ms:30000}")
+    private long bulkTimeoutMs;
 
     @GetMapping("/")
     public String index() {
@@ -42,7 +88,7 @@ public class TourGuideController {
      * Get a location by username
      *
      * @param userName the username whose location is sought
-     * @return a user location (latitude and longitude)
+     * @return a user location (latitude and longitude), with its age and a warning when it is stale
      * @throws ExecutionException   can be thrown when attempting to retrieve the result of getUserLocation that aborted by throwing an exception.
      * @throws InterruptedException can be thrown when a thread is waiting, sleeping, or otherwise occupied, and the thread is interrupted, either before or during the activity.
      */
@@ -51,7 +97,7 @@ public class TourGuideController {
         logger.info("REST : Get user location");
         try {
             VisitedLocationBean visitedLocation = tourGuideService.getUserLocation(tourGuideService.getUser(userName));
-            return ResponseEntity.ok(visitedLocation.locationBean);
+            return withFreshness(tourGuideService, visitedLocation, visitedLocation.locationBean);
         } catch (UserNotFoundException e) {
             logger.error("REST : " + e.getMessage());
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
@@ -76,7 +122,7 @@ public class TourGuideController {
         logger.info("REST : Get nearby attractions");
         try {
             VisitedLocationBean visitedLocation = tourGuideService.getUserLocation(tourGuideService.getUser(userName));
-            return ResponseEntity.ok(tourGuideService.nearbyAttractionListByUserDto(visitedLocation));
+            return withFreshness(tourGuideService, visitedLocation, tourGuideService.nearbyAttractionListByUserDto(visitedLocation));
         } catch (UserNotFoundException e) {
             logger.error("REST : " + e.getMessage());
             return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
@@ -106,6 +152,53 @@ public class TourGuideController {
         }
     }
 
+    /**
+     * Get the locations of many users in one call.
+     * The locations are looked up in parallel, at most tour.guide.bulk.max.concurrent.lookups at a time,
+     * and streamed as JSON lines in the order they are found,
+     * each line holds the username and either its location or the error of its lookup.
+     * A lookup still running after tour.guide.bulk.timeout.ms is written as a timed out error.
+     *
+     * @param userNames the usernames whose locations are sought, at most tour.guide.bulk.max.batch.size
+     * @return a stream of one result per username
+     */
+    @PostMapping(value = "/locations/bulk", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getLocations(@RequestBody List<String> userNames) {
+        logger.info("REST : Get user locations in bulk");
+        return streamBulkResults(userNames, userName -> tourGuideService.getUserLocationAsync(tourGuideService.getUser(userName))
+                .thenApply(visitedLocation -> visitedLocation.locationBean), maxConcurrentBulkLookups, bulkTimeoutMs);
+    }
+
+    /**
+     * Get the rewards of many users in one call.
+     * The rewards are streamed as JSON lines, each line holds the username and either its rewards or the error of its lookup.
+     * A lookup still running after tour.guide.bulk.timeout.ms is written as a timed out error.
+     *
+     * @param userNames the usernames whose rewards are sought, at most tour.guide.bulk.max.batch.size
+     * @return a stream of one result per username
+     */
+    @PostMapping(value = "/rewards/bulk", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getRewards(@RequestBody List<String> userNames) {
+        logger.info("REST : Get user rewards in bulk");
+        // in memory, a thread hop would cost more than the lookup itself
+        return streamBulkResults(userNames, userName -> CompletableFuture.completedFuture(rewardsService.getUserRewards(tourGuideService.getUser(userName))), maxConcurrentBulkLookups, bulkTimeoutMs);
+    }
+
+    /**
+     * Get a page of the users ranked by total reward points, highest first
+     *
+     * @param page the index of the page, starting at 0
+     * @param size the number of users per page, between 1 and 100
+     * @return the ranked users of the page with their rank and reward points
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<LeaderboardDto> getLeaderboard(@RequestParam(defaultValue = "0") int page,
+                                                         @RequestParam(defaultValue = "10") int size) {
+        logger.info("REST : Get leaderboard page {}", page);
+        checkPage(page, size);
+        return ResponseEntity.ok(rewardsService.getLeaderboard(page, size));
+    }
+
     /**
      * Get a list of every user's most recent location as JSON
      *
@@ -117,6 +210,127 @@ public class TourGuideController {
         return JsonStream.serialize(tourGuideService.getAllCurrentLocations());
     }
 
+    /**
+     * Get the most recent location of every user whose location changed since a previous call
+     *
+     * @param since the cursor of the previous call, 0 for every user's location
+     * @return the updated locations with for each user key = userId and value = {latitude, longitude} and the cursor for the next call
+     */
+    @GetMapping("/getCurrentLocations")
+    public ResponseEntity<CurrentLocationsDto> getCurrentLocations(@RequestParam long since) {
+        logger.info("REST : Get current user locations updated since {}", since);
+        return ResponseEntity.ok(tourGuideService.getCurrentLocationsSince(since));
+    }
+
+    /**
+     * Get a page of the users whose most recent location is inside a bounding box, ordered by user id
+     *
+     * @param minLatitude  the south limit of the bounding box
+     * @param maxLatitude  the north limit of the bounding box
+     * @param minLongitude the west limit of the bounding box, greater than the east limit when the box crosses the antimeridian
+     * @param maxLongitude the east limit of the bounding box
+     * @param page         the index of the page, starting at 0
+     * @param size         the number of users per page, between 1 and 100
+     * @return the users of the page with for each user its id and location, and the number of users found
+     */
+    @GetMapping("/users/withinBoundingBox")
+    public ResponseEntity<UserLocationsPageDto> getUsersWithinBoundingBox(@RequestParam double minLatitude,
+                                                                          @RequestParam double maxLatitude,
+                                                                          @RequestParam double minLongitude,
+                                                                          @RequestParam double maxLongitude,
+                                                                          @RequestParam(defaultValue = "0") int page,
+                                                                          @RequestParam(defaultValue = "10") int size) {
+        logger.info("REST : Get users within bounding box");
+        checkPage(page, size);
+        checkBoundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        return ResponseEntity.ok(tourGuideService.getUsersWithinBoundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude, page, size));
+    }
+
+    /**
+     * Get a page of the users whose most recent location is within a distance of a point, closest first
+     *
+     * @param latitude    the latitude of the point
+     * @param longitude   the longitude of the point
+     * @param radiusMiles the distance in miles
+     * @param page        the index of the page, starting at 0
+     * @param size        the number of users per page, between 1 and 100
+     * @return the users of the page with for each user its id, location and distance in miles, and the number of users found
+     */
+    @GetMapping("/users/withinRadius")
+    public ResponseEntity<UserLocationsPageDto> getUsersWithinRadius(@RequestParam double latitude,
+                                                                     @RequestParam double longitude,
+                                                                     @RequestParam double radiusMiles,
+                                                                     @RequestParam(defaultValue = "0") int page,
+                                                                     @RequestParam(defaultValue = "10") int size) {
+        logger.info("REST : Get users within radius");
+        checkPage(page, size);
+        checkRadius(latitude, longitude, radiusMiles);
+        return ResponseEntity.ok(tourGuideService.getUsersWithinRadius(latitude, longitude, radiusMiles, page, size));
+    }
+
+    /**
+     * Get a page of the users whose most recent location is near an attraction, closest first
+     *
+     * @param attractionName the name of the attraction
+     * @param page           the index of the page, starting at 0
+     * @param size           the number of users per page, between 1 and 100
+     * @return the users of the page with for each user its id, location and distance in miles to the attraction, and the number of users near it
+     */
+    @GetMapping("/attractions/{attractionName}/nearbyUsers")
+    public ResponseEntity<UserLocationsPageDto> getUsersNearAttraction(@PathVariable String attractionName,
+                                                                       @RequestParam(defaultValue = "0") int page,
+                                                                       @RequestParam(defaultValue = "10") int size) {
+        logger.info("REST : Get users near attraction");
+        checkPage(page, size);
+        try {
+            return ResponseEntity.ok(tourGuideService.getUsersNearAttraction(attractionName, page, size));
+        } catch (AttractionNotFoundException e) {
+            logger.error("REST : " + e.getMessage());
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Get the number of users whose most recent location is near each attraction, most crowded first
+     *
+     * @return for each attraction its name, city, state and number of nearby users
+     */
+    @GetMapping("/attractions/occupancy")
+    public ResponseEntity<List<AttractionOccupancyDto>> getAttractionOccupancy() {
+        logger.info("REST : Get attraction occupancy");
+        return ResponseEntity.ok(tourGuideService.getAttractionOccupancy());
+    }
+
+    /**
+     * Subscribe to a server-sent events stream of location and reward updates.
+     * Updates are filtered by user when a username is given, otherwise by bounding box when its four limits are given.
+     *
+     * @param userName       the username whose updates are sent
+     * @param minLatitude    the south limit of the bounding box
+     * @param maxLatitude    the north limit of the bounding box
+     * @param minLongitude   the west limit of the bounding box
+     * @param maxLongitude   the east limit of the bounding box
+     * @param overflowPolicy what to do with new updates when the client doesn't keep up
+     * @return a stream of LOCATION and REWARD events
+     */
+    @GetMapping(value = "/streamUpdates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUpdates(@RequestParam(required = false) String userName,
+                                    @RequestParam(required = false) Double minLatitude,
+                                    @RequestParam(required = false) Double maxLatitude,
+                                    @RequestParam(required = false) Double minLongitude,
+                                    @RequestParam(required = false) Double maxLongitude,
+                                    @RequestParam(defaultValue = "COALESCE") OverflowPolicy overflowPolicy) {
+        logger.info("REST : Stream updates");
+        double[] boundingBox = streamBoundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        try {
+            User user = userName == null ? null : tourGuideService.getUser(userName);
+            return updateEventBroadcaster.subscribe(user == null ? null : user.getUserId(), boundingBox, overflowPolicy);
+        } catch (UserNotFoundException e) {
+            logger.error("REST : " + e.getMessage());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
     /**
      * Get a list of provider with price offer by user.
      * Each provider contains :
@@ -159,6 +373,89 @@ public class TourGuideController {
         }
     }
 
+    <T> ResponseEntity<StreamingResponseBody> streamBulkResults(List<String> userNames, Function<String, CompletableFuture<T>> lookup,
+                                                                 int maxConcurrentLookups, long timeoutMs) {
+        checkBulkBatchSize(userNames.size(), maxBulkBatchSize);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_STREAM_JSON).body(outputStream -> {
+            // results are queued as they complete, a lookup being started each time one ends so that at most
+            // maxConcurrentLookups are in flight, as the reactive controller does
+            BlockingQueue<BulkResultDto<T>> results = new LinkedBlockingQueue<>();
+            // a lookup is queued only if it is still pending, once the deadline claimed it its late result is dropped
+            Map<Integer, String> pending = new ConcurrentHashMap<>();
+            AtomicInteger inFlight = new AtomicInteger();
+            int started = 0;
+            int written = 0;
+            try {
+                while (written < userNames.size()) {
+                    while (started < userNames.size() && inFlight.get() < maxConcurrentLookups) {
+                        startLookup(started, userNames.get(started), lookup, pending, inFlight, results);
+                        started++;
+                    }
+                    BulkResultDto<T> result = results.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (result == null) break;
+                    writeLine(outputStream, result);
+                    written++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the bulk lookups");
+            }
+            if (written == userNames.size()) return;
+            List<String> timedOut = new ArrayList<>();
+            for (Integer index : pending.keySet()) {
+                String userName = pending.remove(index);
+                if (userName != null) timedOut.add(userName);
+            }
+            timedOut.addAll(userNames.subList(started, userNames.size()));
+            // results queued before the deadline claimed the remaining lookups are still written
+            List<BulkResultDto<T>> lateResults = new ArrayList<>();
+            results.drainTo(lateResults);
+            for (BulkResultDto<T> result : lateResults) writeLine(outputStream, result);
+            logger.error("REST : Bulk lookups timed out after " + timeoutMs + " ms for " + timedOut.size() + " users");
+            for (String userName : timedOut) {
+                writeLine(outputStream, BulkResultDto.<T>builder()
+                        .userName(userName)
+                        .error("Lookup timed out after " + timeoutMs + " ms")
+                        .build());
+            }
+        });
+    }
+
+    private <T> void startLookup(int index, String userName, Function<String, CompletableFuture<T>> lookup, Map<Integer, String> pending,
+                                 AtomicInteger inFlight, BlockingQueue<BulkResultDto<T>> results) {
+        pending.put(index, userName);
+        inFlight.incrementAndGet();
+        CompletableFuture<T> result;
+        try {
+            result = lookup.apply(userName);
+        } catch (RuntimeException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((value, error) -> {
+            // released before the result is queued, the writer tops the lookups up as soon as it wakes up
+            inFlight.decrementAndGet();
+            if (pending.remove(index) != null) results.add(BulkResultDto.<T>builder()
+                    .userName(userName)
+                    .result(error == null ? value : null)
+                    .error(error == null ? null : lookupError(error))
+                    .build());
+        });
+    }
+
+    private void writeLine(OutputStream outputStream, Object line) throws IOException {
+        outputStream.write(objectMapper.writeValueAsBytes(line));
+        outputStream.write('\n');
+        outputStream.flush();
+    }
+
+    private String lookupError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (!(cause instanceof UserNotFoundException)) logger.error("REST : Bulk lookup failed", cause);
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
     /**
      * Get a user by userName
      *
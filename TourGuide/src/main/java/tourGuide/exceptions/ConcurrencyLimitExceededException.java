@@ -0,0 +1,7 @@
+package tourGuide.exceptions;
+
+public class ConcurrencyLimitExceededException extends RuntimeException {
+    public ConcurrencyLimitExceededException(String s) {
+        super(s);
+    }
+}
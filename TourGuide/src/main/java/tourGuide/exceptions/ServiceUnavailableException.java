@@ -0,0 +1,7 @@
+package tourGuide.exceptions;
+
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String s) {
+        super(s);
+    }
+}
@@ -0,0 +1,174 @@
+package tourGuide.index;
+
+import org.springframework.stereotype.Component;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the users whose most recent location is in the proximity zone of each attraction.
+ * A location update only tests the attractions whose zone overlaps its grid cell and moves the user between zones,
+ * so the number of users near an attraction is read without any distance computation.
+ * The same zones are the geofences that trigger the reward lookups.
+ */
+@Component
+public class AttractionOccupancyIndex {
+
+    // wider than any proximity zone of a few miles, a location has a handful of candidate attractions at most
+    private static final double CELL_DEGREES = 1.0;
+    private static final int LONGITUDE_CELLS = (int) (360 / CELL_DEGREES);
+    // slightly under the 69.05 miles of a degree of great circle, so the cells covered always contain the zone
+    private static final double MILES_PER_DEGREE = 69.0;
+
+    private volatile Catalog catalog = new Catalog(Collections.emptyList(), 0);
+    private final Map<UUID, List<String>> zonesByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Replace the indexed attractions when the catalog changed.
+     * The zones start empty, every user must then be assigned again to the zones of its most recent location.
+     *
+     * @param attractions the attractions of the catalog
+     * @param zoneMiles   the radius in miles of the proximity zone of an attraction
+     * @return true if the catalog changed and was replaced
+     */
+    public synchronized boolean replaceAttractions(List<AttractionBean> attractions, double zoneMiles) {
+        Catalog current = catalog;
+        if (current.zoneMiles == zoneMiles && current.sameAttractions(attractions)) return false;
+        catalog = new Catalog(attractions, zoneMiles);
+        zonesByUser.clear();
+        return true;
+    }
+
+    /**
+     * Get the indexed attractions
+     *
+     * @return the attractions of the catalog in their catalog order
+     */
+    public List<AttractionBean> getAttractions() {
+        return catalog.attractions;
+    }
+
+    /**
+     * Get the attractions whose proximity zone may contain a location
+     *
+     * @param location the location of a user
+     * @return the attractions to test against the location, a superset of the attractions near it
+     */
+    public List<AttractionBean> getCandidates(LocationBean location) {
+        List<AttractionBean> candidates = catalog.candidatesByCell.get(cell(location.getLatitude(), location.getLongitude()));
+        return candidates == null ? Collections.emptyList() : candidates;
+    }
+
+    /**
+     * Move a user to the zones of its new most recent location
+     *
+     * @param userId          the id of the user whose location changed
+     * @param visitedLocation the new most recent location of the user
+     * @param attractions     the attractions near the new location
+     */
+    public void assign(UUID userId, VisitedLocationBean visitedLocation, List<AttractionBean> attractions) {
+        List<String> zones = new ArrayList<>(attractions.size());
+        for (AttractionBean attraction : attractions) {
+            zones.add(attraction.attractionName);
+        }
+        zonesByUser.compute(userId, (id, previousZones) -> {
+            Map<String, Map<UUID, VisitedLocationBean>> usersByAttraction = catalog.usersByAttraction;
+            if (previousZones != null) {
+                for (String previousZone : previousZones) {
+                    if (!zones.contains(previousZone)) {
+                        Map<UUID, VisitedLocationBean> users = usersByAttraction.get(previousZone);
+                        if (users != null) users.remove(userId);
+                    }
+                }
+            }
+            for (String zone : zones) {
+                Map<UUID, VisitedLocationBean> users = usersByAttraction.get(zone);
+                if (users != null) users.put(userId, visitedLocation);
+            }
+            return zones;
+        });
+    }
+
+    /**
+     * Get the users near an attraction
+     *
+     * @param attractionName the name of the attraction
+     * @return the most recent location of the users near the attraction, or null if the attraction isn't indexed
+     */
+    public Collection<VisitedLocationBean> getUsersNear(String attractionName) {
+        Map<UUID, VisitedLocationBean> users = catalog.usersByAttraction.get(attractionName);
+        return users == null ? null : Collections.unmodifiableCollection(users.values());
+    }
+
+    /**
+     * Get the number of users near each attraction
+     *
+     * @return the number of users by attraction name, in the catalog order
+     */
+    public Map<String, Integer> getOccupancy() {
+        Map<String, Integer> occupancy = new LinkedHashMap<>();
+        catalog.usersByAttraction.forEach((attractionName, users) -> occupancy.put(attractionName, users.size()));
+        return occupancy;
+    }
+
+    private static long cell(double latitude, double longitude) {
+        long latitudeCell = (long) Math.floor((Math.max(-90, Math.min(90, latitude)) + 90) / CELL_DEGREES);
+        long longitudeCell = Math.floorMod((long) Math.floor((longitude + 180) / CELL_DEGREES), LONGITUDE_CELLS);
+        return latitudeCell * LONGITUDE_CELLS + longitudeCell;
+    }
+
+    private static final class Catalog {
+        private final List<AttractionBean> attractions;
+        private final double zoneMiles;
+        private final Map<Long, List<AttractionBean>> candidatesByCell = new HashMap<>();
+        private final Map<String, Map<UUID, VisitedLocationBean>> usersByAttraction = new LinkedHashMap<>();
+
+        private Catalog(List<AttractionBean> attractions, double zoneMiles) {
+            this.attractions = Collections.unmodifiableList(new ArrayList<>(attractions));
+            this.zoneMiles = zoneMiles;
+            for (AttractionBean attraction : attractions) {
+                usersByAttraction.put(attraction.attractionName, new ConcurrentHashMap<>());
+                double latitudeDelta = zoneMiles / MILES_PER_DEGREE;
+                double minLatitude = Math.max(-90, attraction.getLatitude() - latitudeDelta);
+                double maxLatitude = Math.min(90, attraction.getLatitude() + latitudeDelta);
+                double longitudeDelta = minLatitude == -90 || maxLatitude == 90 ? 180 :
+                        latitudeDelta / Math.cos(Math.toRadians(Math.max(Math.abs(minLatitude), Math.abs(maxLatitude))));
+                double minLongitude = longitudeDelta >= 180 ? -180 : attraction.getLongitude() - longitudeDelta;
+                double maxLongitude = longitudeDelta >= 180 ? 180 - CELL_DEGREES : attraction.getLongitude() + longitudeDelta;
+                // longitudes past the antimeridian wrap around to the cells on the other side
+                for (double latitude = minLatitude; latitude < maxLatitude + CELL_DEGREES; latitude += CELL_DEGREES) {
+                    for (double longitude = minLongitude; longitude < maxLongitude + CELL_DEGREES; longitude += CELL_DEGREES) {
+                        List<AttractionBean> candidates = candidatesByCell.computeIfAbsent(
+                                cell(Math.min(latitude, maxLatitude), Math.min(longitude, maxLongitude)), key -> new ArrayList<>());
+                        if (!candidates.contains(attraction)) candidates.add(attraction);
+                    }
+                }
+            }
+        }
+
+        private boolean sameAttractions(List<AttractionBean> other) {
+            if (other.size() != attractions.size()) return false;
+            for (int i = 0; i < attractions.size(); i++) {
+                AttractionBean attraction = attractions.get(i);
+                AttractionBean otherAttraction = other.get(i);
+                if (!Objects.equals(attraction.attractionName, otherAttraction.attractionName)
+                        || attraction.getLatitude() != otherAttraction.getLatitude()
+                        || attraction.getLongitude() != otherAttraction.getLongitude()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
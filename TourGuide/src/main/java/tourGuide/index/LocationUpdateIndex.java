@@ -0,0 +1,128 @@
+package tourGuide.index;
+
+import org.springframework.stereotype.Component;
+import tourGuide.beans.VisitedLocationBean;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Index of every user's most recent location ordered by update sequence.
+ * Lets the "changed since" queries walk only the users updated after a given sequence instead of every user.
+ * The sequence is assigned by the index when a location is recorded rather than taken from the location timestamp,
+ * a location fetched earlier but recorded later is still returned to a client whose cursor went past its timestamp.
+ * The sequence restarts with the server, so the cursors handed to clients carry the epoch of the index that issued them.
+ */
+@Component
+public class LocationUpdateIndex {
+
+    // the epoch above the sequence bits keeps the cursors below 2^53, exact in a JavaScript number
+    private static final int SEQUENCE_BITS = 40;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int EPOCHS = 1 << 12;
+
+    private final ConcurrentNavigableMap<Long, VisitedLocationBean> locationsBySequence = new ConcurrentSkipListMap<>();
+    private final Map<UUID, IndexedLocation> locationByUser = new ConcurrentHashMap<>();
+    private final Object updateLock = new Object();
+    // written under the update lock once its location is indexed, every sequence up to it is readable
+    private volatile long lastSequence;
+    // never 0 nor 1, the high bits of a cursor of 0 or of a timestamp in milliseconds
+    private final long epoch = 2 + ThreadLocalRandom.current().nextInt(EPOCHS - 2);
+
+    /**
+     * Replace the indexed location of a user by its new most recent location
+     *
+     * @param userId          the id of the user whose location changed
+     * @param visitedLocation the new most recent location of the user
+     */
+    public void update(UUID userId, VisitedLocationBean visitedLocation) {
+        // sequences are indexed in the order they are assigned, a reader never sees a gap it could skip
+        synchronized (updateLock) {
+            long sequence = lastSequence + 1;
+            IndexedLocation previous = locationByUser.put(userId, new IndexedLocation(sequence, visitedLocation));
+            if (previous != null) locationsBySequence.remove(previous.sequence);
+            locationsBySequence.put(sequence, visitedLocation);
+            lastSequence = sequence;
+        }
+    }
+
+    /**
+     * Get the most recent location of a user
+     *
+     * @param userId the id of the user whose location is sought
+     * @return the most recent indexed location or null if the user has never been located
+     */
+    public VisitedLocationBean getLatest(UUID userId) {
+        IndexedLocation indexedLocation = locationByUser.get(userId);
+        return indexedLocation == null ? null : indexedLocation.location;
+    }
+
+    /**
+     * Get the sequence of the last indexed update
+     *
+     * @return the sequence of the last update, 0 if nothing has been indexed
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Get the cursor of an update sequence, tagged with the epoch of this index
+     *
+     * @param sequence an update sequence, usually read from {@link #getLastSequence()}
+     * @return the cursor to hand to a client
+     */
+    public long cursorOf(long sequence) {
+        return epoch << SEQUENCE_BITS | sequence;
+    }
+
+    /**
+     * Get the update sequence of a cursor handed to a client
+     *
+     * @param cursor a cursor returned by {@link #cursorOf(long)}
+     * @return the sequence of the cursor, 0 when the cursor wasn't issued by this index (e.g. before a restart)
+     * or is ahead of the last update, so that the client starts over from every user's location
+     */
+    public long sequenceOf(long cursor) {
+        long sequence = cursor & SEQUENCE_MASK;
+        if (cursor >>> SEQUENCE_BITS != epoch || sequence > lastSequence) return 0;
+        return sequence;
+    }
+
+    /**
+     * Get the most recent location of every user updated strictly after a sequence and up to another, in ascending update order
+     *
+     * @param since the sequence after which updates are sought
+     * @param until the last sequence sought, usually read from {@link #getLastSequence()} beforehand
+     * @return the most recent locations updated in between
+     */
+    public Collection<VisitedLocationBean> getUpdatedSince(long since, long until) {
+        if (since >= until) return Collections.emptyList();
+        return locationsBySequence.subMap(since, false, until, true).values();
+    }
+
+    /**
+     * Get the number of indexed users
+     *
+     * @return the number of users having at least one location
+     */
+    public int size() {
+        return locationByUser.size();
+    }
+
+    private static final class IndexedLocation {
+        private final long sequence;
+        private final VisitedLocationBean location;
+
+        private IndexedLocation(long sequence, VisitedLocationBean location) {
+            this.sequence = sequence;
+            this.location = location;
+        }
+    }
+}
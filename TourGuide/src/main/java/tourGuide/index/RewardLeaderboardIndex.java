@@ -0,0 +1,92 @@
+package tourGuide.index;
+
+import org.springframework.stereotype.Component;
+import tourGuide.model.user.User;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Index of users ordered by their total reward points, highest first.
+ * An update moves a single user in O(log n) and a page of k users is read in O(offset + k),
+ * the skip list walking the ranks before the page since it doesn't count its entries.
+ */
+@Component
+public class RewardLeaderboardIndex {
+
+    private final ConcurrentNavigableMap<RankKey, User> usersByPoints = new ConcurrentSkipListMap<>();
+    private final Map<UUID, RankKey> rankKeyByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Move a user to the rank of its current total reward points
+     *
+     * @param user the user whose reward points changed
+     */
+    public void update(User user) {
+        rankKeyByUser.compute(user.getUserId(), (id, previousKey) -> {
+            // read under the per-user lock so a late update never re-ranks a user with a stale total
+            RankKey rankKey = new RankKey(user.getRewardPointsTotal(), id);
+            if (previousKey != null) usersByPoints.remove(previousKey);
+            usersByPoints.put(rankKey, user);
+            return rankKey;
+        });
+    }
+
+    /**
+     * Get the users ranked from a given position, highest total reward points first.
+     * The users ranked before the offset are walked, deep pages costing more than the first ones.
+     *
+     * @param offset the number of ranked users to skip
+     * @param limit  the maximum number of users returned
+     * @return the ranked users, ties ordered by user id
+     */
+    public List<User> getRanked(long offset, int limit) {
+        return usersByPoints.values().stream().skip(offset).limit(limit).collect(Collectors.toList());
+    }
+
+    /**
+     * Get the number of indexed users
+     *
+     * @return the number of users having at least one reward
+     */
+    public int size() {
+        return rankKeyByUser.size();
+    }
+
+    private static final class RankKey implements Comparable<RankKey> {
+        private static final Comparator<RankKey> ORDER = Comparator.<RankKey>comparingInt(key -> key.points).reversed()
+                .thenComparing(key -> key.userId);
+
+        private final int points;
+        private final UUID userId;
+
+        private RankKey(int points, UUID userId) {
+            this.points = points;
+            this.userId = userId;
+        }
+
+        @Override
+        public int compareTo(RankKey other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RankKey)) return false;
+            RankKey other = (RankKey) o;
+            return points == other.points && userId.equals(other.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * points + userId.hashCode();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package tourGuide.index;
+
+import org.springframework.stereotype.Component;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spatial index of every user's most recent location on a grid of fixed size cells.
+ * A bounding box query only visits the cells it overlaps, or the occupied cells when there are fewer of them,
+ * so its cost follows the number of users found rather than the number of users indexed.
+ */
+@Component
+public class UserLocationGridIndex {
+
+    // about 7 miles of latitude, a radius query of a few miles overlaps a handful of cells
+    private static final double CELL_DEGREES = 0.1;
+    private static final int LONGITUDE_CELLS = (int) Math.ceil(360 / CELL_DEGREES) + 1;
+
+    private final Map<Long, Map<UUID, VisitedLocationBean>> cells = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> cellByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Move a user to the cell of its new most recent location
+     *
+     * @param userId          the id of the user whose location changed
+     * @param visitedLocation the new most recent location of the user
+     */
+    public void update(UUID userId, VisitedLocationBean visitedLocation) {
+        LocationBean location = visitedLocation.getLocationBean();
+        long cell = cell(latitudeCell(location.getLatitude()), longitudeCell(location.getLongitude()));
+        cellByUser.compute(userId, (id, previousCell) -> {
+            if (previousCell != null && previousCell != cell) {
+                cells.computeIfPresent(previousCell, (key, users) -> {
+                    users.remove(userId);
+                    return users.isEmpty() ? null : users;
+                });
+            }
+            // added under the cell lock, a concurrent removal can't drop the cell in between
+            cells.compute(cell, (key, users) -> {
+                Map<UUID, VisitedLocationBean> cellUsers = users == null ? new ConcurrentHashMap<>() : users;
+                cellUsers.put(userId, visitedLocation);
+                return cellUsers;
+            });
+            return cell;
+        });
+    }
+
+    /**
+     * Get the most recent location of every user inside a bounding box, limits included.
+     * A box whose west limit is greater than its east limit crosses the antimeridian.
+     *
+     * @param minLatitude  the south limit of the bounding box
+     * @param maxLatitude  the north limit of the bounding box
+     * @param minLongitude the west limit of the bounding box
+     * @param maxLongitude the east limit of the bounding box
+     * @return the locations found, in no particular order
+     */
+    public List<VisitedLocationBean> getWithin(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+        List<VisitedLocationBean> found = new ArrayList<>();
+        if (minLongitude > maxLongitude) {
+            collect(minLatitude, maxLatitude, minLongitude, 180, found);
+            collect(minLatitude, maxLatitude, -180, maxLongitude, found);
+        } else {
+            collect(minLatitude, maxLatitude, minLongitude, maxLongitude, found);
+        }
+        return found;
+    }
+
+    /**
+     * Get the number of indexed users
+     *
+     * @return the number of users having at least one location
+     */
+    public int size() {
+        return cellByUser.size();
+    }
+
+    private void collect(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude, List<VisitedLocationBean> found) {
+        int minLatitudeCell = latitudeCell(minLatitude);
+        int maxLatitudeCell = latitudeCell(maxLatitude);
+        int minLongitudeCell = longitudeCell(minLongitude);
+        int maxLongitudeCell = longitudeCell(maxLongitude);
+        long overlappedCells = (long) (maxLatitudeCell - minLatitudeCell + 1) * (maxLongitudeCell - minLongitudeCell + 1);
+        if (overlappedCells > cells.size()) {
+            for (Map.Entry<Long, Map<UUID, VisitedLocationBean>> entry : cells.entrySet()) {
+                int latitudeCell = (int) (entry.getKey() / LONGITUDE_CELLS);
+                int longitudeCell = (int) (entry.getKey() % LONGITUDE_CELLS);
+                if (latitudeCell >= minLatitudeCell && latitudeCell <= maxLatitudeCell
+                        && longitudeCell >= minLongitudeCell && longitudeCell <= maxLongitudeCell) {
+                    collect(entry.getValue(), minLatitude, maxLatitude, minLongitude, maxLongitude, found);
+                }
+            }
+            return;
+        }
+        for (int latitudeCell = minLatitudeCell; latitudeCell <= maxLatitudeCell; latitudeCell++) {
+            for (int longitudeCell = minLongitudeCell; longitudeCell <= maxLongitudeCell; longitudeCell++) {
+                Map<UUID, VisitedLocationBean> users = cells.get(cell(latitudeCell, longitudeCell));
+                if (users != null) collect(users, minLatitude, maxLatitude, minLongitude, maxLongitude, found);
+            }
+        }
+    }
+
+    private static void collect(Map<UUID, VisitedLocationBean> users, double minLatitude, double maxLatitude,
+                                double minLongitude, double maxLongitude, List<VisitedLocationBean> found) {
+        for (VisitedLocationBean visitedLocation : users.values()) {
+            LocationBean location = visitedLocation.getLocationBean();
+            if (location.getLatitude() >= minLatitude && location.getLatitude() <= maxLatitude
+                    && location.getLongitude() >= minLongitude && location.getLongitude() <= maxLongitude) {
+                found.add(visitedLocation);
+            }
+        }
+    }
+
+    private static int latitudeCell(double latitude) {
+        return (int) Math.floor((Math.max(-90, Math.min(90, latitude)) + 90) / CELL_DEGREES);
+    }
+
+    private static int longitudeCell(double longitude) {
+        return (int) Math.floor((Math.max(-180, Math.min(180, longitude)) + 180) / CELL_DEGREES);
+    }
+
+    private static long cell(int latitudeCell, int longitudeCell) {
+        return (long) latitudeCell * LONGITUDE_CELLS + longitudeCell;
+    }
+}
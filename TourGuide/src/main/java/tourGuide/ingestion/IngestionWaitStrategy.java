@@ -0,0 +1,52 @@
+package tourGuide.ingestion;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * How the stages of the ingestion pipeline wait for the locations published to the ring buffer.
+ * The strategy also sets what a publisher pays to hand over a location: only BLOCKING takes a lock to wake the stages up.
+ */
+public enum IngestionWaitStrategy {
+    /**
+     * Park on a lock until a location is published, no CPU used while idle but the publishers signal under the lock
+     */
+    BLOCKING {
+        @Override
+        WaitStrategy create() {
+            return new BlockingWaitStrategy();
+        }
+    },
+    /**
+     * Spin, then yield, then sleep for short periods, lock-free publishing for a little CPU while idle
+     */
+    SLEEPING {
+        @Override
+        WaitStrategy create() {
+            return new SleepingWaitStrategy();
+        }
+    },
+    /**
+     * Spin, then yield the CPU, low latency as long as there are more cores than stage handlers
+     */
+    YIELDING {
+        @Override
+        WaitStrategy create() {
+            return new YieldingWaitStrategy();
+        }
+    },
+    /**
+     * Spin without ever releasing the CPU, the lowest latency but every stage handler keeps a core busy
+     */
+    BUSY_SPIN {
+        @Override
+        WaitStrategy create() {
+            return new BusySpinWaitStrategy();
+        }
+    };
+
+    abstract WaitStrategy create();
+}
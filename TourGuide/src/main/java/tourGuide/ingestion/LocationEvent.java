@@ -0,0 +1,67 @@
+package tourGuide.ingestion;
+
+import lombok.Getter;
+import lombok.Setter;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.model.user.User;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A slot of the ingestion ring buffer, allocated once and reused for every location published to it
+ */
+@Getter
+public class LocationEvent {
+
+    private User user;
+    private VisitedLocationBean visitedLocation;
+    /**
+     * The attractions whose zone the location is in, set by the index stage for the rewards stage
+     */
+    @Setter
+    private List<AttractionBean> nearbyAttractions = Collections.emptyList();
+    private CompletableFuture<VisitedLocationBean> recorded;
+    private Throwable failure;
+
+    void reset(User user, VisitedLocationBean visitedLocation, CompletableFuture<VisitedLocationBean> recorded) {
+        this.user = user;
+        this.visitedLocation = visitedLocation;
+        this.nearbyAttractions = Collections.emptyList();
+        this.recorded = recorded;
+        this.failure = null;
+    }
+
+    void fail(Throwable failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * Complete the caller's future off the ring, the slot being reused as soon as this returns
+     *
+     * @param executor the executor running the callers' continuations
+     */
+    void acknowledge(Executor executor) {
+        CompletableFuture<VisitedLocationBean> recordedLocation = recorded;
+        VisitedLocationBean location = visitedLocation;
+        Throwable recordingFailure = failure;
+        try {
+            executor.execute(() -> complete(recordedLocation, location, recordingFailure));
+        } catch (RejectedExecutionException e) {
+            // the pipeline is stopping, the caller is still answered
+            complete(recordedLocation, location, recordingFailure);
+        }
+    }
+
+    private static void complete(CompletableFuture<VisitedLocationBean> recorded, VisitedLocationBean location, Throwable failure) {
+        if (failure != null) {
+            recorded.completeExceptionally(failure);
+        } else {
+            recorded.complete(location);
+        }
+    }
+}
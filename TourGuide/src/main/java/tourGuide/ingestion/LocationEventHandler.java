@@ -0,0 +1,15 @@
+package tourGuide.ingestion;
+
+/**
+ * The work of one stage of the ingestion pipeline on a published location
+ */
+@FunctionalInterface
+public interface LocationEventHandler {
+
+    /**
+     * Process a location, called on the stage's own thread
+     *
+     * @param event the slot of the ring buffer holding the location
+     */
+    void onEvent(LocationEvent event);
+}
@@ -0,0 +1,266 @@
+package tourGuide.ingestion;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorThreeArg;
+import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.model.user.User;
+
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the fetched locations over to the stages recording them through a ring buffer whose slots are allocated once.
+ * A publisher claims a slot with an atomic increment, each stage reads the published slots in batches on its own threads
+ * and only waits for the stages it depends on: the history and the indexes record a location side by side,
+ * then the rewards and the broadcast follow them.
+ * A stage can run on several handlers sharing the users between them, so a slow stage is scaled on its own
+ * while the locations of a user are still processed in the order they were published.
+ * The callers' futures are completed on threads of their own, a slow continuation never holds a slot of the ring.
+ */
+@Component
+public class LocationIngestionPipeline {
+    private final Logger logger = LoggerFactory.getLogger(LocationIngestionPipeline.class);
+    public static final int DEFAULT_RING_SIZE = 4096;
+    public static final int DEFAULT_HANDLERS = 1;
+    public static final int DEFAULT_COMPLETION_THREADS = 2;
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+
+    private static final EventTranslatorThreeArg<LocationEvent, User, VisitedLocationBean, CompletableFuture<VisitedLocationBean>> TRANSLATOR =
+            (event, sequence, user, visitedLocation, recorded) -> event.reset(user, visitedLocation, recorded);
+
+    /**
+     * The stages of the pipeline, in their dependency order
+     */
+    public enum Stage {
+        HISTORY, INDEXES, REWARDS, BROADCAST;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final int ringSize;
+    private final IngestionWaitStrategy waitStrategy;
+    private final Map<Stage, Integer> handlersByStage = new EnumMap<>(Stage.class);
+    private final Map<Stage, StageHandler[]> stageHandlers = new EnumMap<>(Stage.class);
+    private final int completionThreads;
+    private final MeterRegistry meterRegistry;
+    private volatile Disruptor<LocationEvent> disruptor;
+    private volatile ExecutorService completionExecutor;
+
+    public LocationIngestionPipeline() {
+        this(DEFAULT_RING_SIZE, IngestionWaitStrategy.BLOCKING, DEFAULT_HANDLERS, DEFAULT_HANDLERS, DEFAULT_HANDLERS, DEFAULT_HANDLERS,
+                new SimpleMeterRegistry());
+    }
+
+    public LocationIngestionPipeline(int ringSize, IngestionWaitStrategy waitStrategy, int historyHandlers, int indexHandlers,
+                                     int rewardHandlers, int broadcastHandlers, MeterRegistry meterRegistry) {
+        this(ringSize, waitStrategy, historyHandlers, indexHandlers, rewardHandlers, broadcastHandlers, DEFAULT_COMPLETION_THREADS, meterRegistry);
+    }
+
+    @Autowired
+    public LocationIngestionPipeline(@Value("${tour.guide.ingestion.ring.size:" + DEFAULT_RING_SIZE + "}") int ringSize,
+                                     @Value("${tour.guide.ingestion.wait.strategy:BLOCKING}") IngestionWaitStrategy waitStrategy,
+                                     @Value("${tour.guide.ingestion.history.handlers:" + DEFAULT_HANDLERS + "}") int historyHandlers,
+                                     @Value("${tour.guide.ingestion.indexes.handlers:" + DEFAULT_HANDLERS + "}") int indexHandlers,
+                                     @Value("${tour.guide.ingestion.rewards.handlers:" + DEFAULT_HANDLERS + "}") int rewardHandlers,
+                                     @Value("${tour.guide.ingestion.broadcast.handlers:" + DEFAULT_HANDLERS + "}") int broadcastHandlers,
+                                     @Value("${tour.guide.ingestion.completion.threads:" + DEFAULT_COMPLETION_THREADS + "}") int completionThreads,
+                                     MeterRegistry meterRegistry) {
+        if (Integer.bitCount(ringSize) != 1) throw new IllegalArgumentException("Ingestion ring size must be a power of 2");
+        if (historyHandlers < 1 || indexHandlers < 1 || rewardHandlers < 1 || broadcastHandlers < 1) {
+            throw new IllegalArgumentException("Every ingestion stage needs at least one handler");
+        }
+        if (completionThreads < 1) throw new IllegalArgumentException("The ingestion pipeline needs at least one completion thread");
+        this.ringSize = ringSize;
+        this.waitStrategy = waitStrategy;
+        this.handlersByStage.put(Stage.HISTORY, historyHandlers);
+        this.handlersByStage.put(Stage.INDEXES, indexHandlers);
+        this.handlersByStage.put(Stage.REWARDS, rewardHandlers);
+        this.handlersByStage.put(Stage.BROADCAST, broadcastHandlers);
+        this.completionThreads = completionThreads;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Start the stages, the throughput, batch size and lag of each one being exported as tour.guide.ingestion.* metrics.
+     * A location is recorded once the history and index stages processed it, a failure of either one fails its recording.
+     *
+     * @param history   appends the location to the user's history
+     * @param indexes   updates the location indexes and sets the attractions the location is near
+     * @param rewards   evaluates the rewards of the attractions the location is near
+     * @param broadcast notifies the subscribers of the location
+     */
+    public synchronized void start(LocationEventHandler history, LocationEventHandler indexes,
+                                   LocationEventHandler rewards, LocationEventHandler broadcast) {
+        if (disruptor != null) throw new IllegalStateException("The ingestion pipeline is already started");
+        Disruptor<LocationEvent> started = new Disruptor<>(LocationEvent::new, ringSize, DaemonThreadFactory.INSTANCE,
+                ProducerType.MULTI, waitStrategy.create());
+        StageHandler[] historyHandlers = stageHandlers(Stage.HISTORY, history, true);
+        StageHandler[] indexHandlers = stageHandlers(Stage.INDEXES, indexes, true);
+        StageHandler[] rewardHandlers = stageHandlers(Stage.REWARDS, rewards, false);
+        StageHandler[] broadcastHandlers = stageHandlers(Stage.BROADCAST, broadcast, false);
+        started.handleEventsWith(concat(historyHandlers, indexHandlers))
+                .then(concat(rewardHandlers, broadcastHandlers));
+        ExecutorService completions = Executors.newFixedThreadPool(completionThreads, DaemonThreadFactory.INSTANCE);
+        // the callers are answered as soon as the location is recorded, without waiting for its rewards
+        started.after(concat(historyHandlers, indexHandlers)).handleEventsWith((event, sequence, endOfBatch) -> event.acknowledge(completions));
+        started.start();
+        completionExecutor = completions;
+        disruptor = started;
+        Gauge.builder("tour.guide.ingestion.remaining.capacity", this, LocationIngestionPipeline::getRemainingCapacity)
+                .description("Free slots of the ingestion ring buffer")
+                .register(meterRegistry);
+        for (Stage stage : Stage.values()) {
+            Gauge.builder("tour.guide.ingestion.lag", this, pipeline -> pipeline.getLag(stage))
+                    .description("Locations published but not processed yet by the stage")
+                    .tag("stage", stage.tag())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Publish a location to the stages, waiting for a free slot when the ring buffer is full
+     *
+     * @param user            the user located
+     * @param visitedLocation the new location of the user
+     * @return the future of the location, completed on a completion thread once it is recorded
+     */
+    public CompletableFuture<VisitedLocationBean> publish(User user, VisitedLocationBean visitedLocation) {
+        Disruptor<LocationEvent> started = disruptor;
+        if (started == null) throw new IllegalStateException("The ingestion pipeline isn't started");
+        CompletableFuture<VisitedLocationBean> recorded = new CompletableFuture<>();
+        started.getRingBuffer().publishEvent(TRANSLATOR, user, visitedLocation, recorded);
+        return recorded;
+    }
+
+    /**
+     * Get the number of locations published but not yet processed by every handler of a stage
+     *
+     * @param stage the stage whose lag is sought
+     * @return the number of locations the slowest handler of the stage is behind the publishers
+     */
+    public long getLag(Stage stage) {
+        Disruptor<LocationEvent> started = disruptor;
+        StageHandler[] handlers = stageHandlers.get(stage);
+        if (started == null || handlers == null) return 0;
+        long cursor = started.getCursor();
+        long slowest = cursor;
+        for (StageHandler handler : handlers) {
+            slowest = Math.min(slowest, started.getSequenceValueFor(handler));
+        }
+        return cursor - slowest;
+    }
+
+    public int getRemainingCapacity() {
+        Disruptor<LocationEvent> started = disruptor;
+        return started == null ? ringSize : (int) started.getRingBuffer().remainingCapacity();
+    }
+
+    /**
+     * Stop the stages once they processed the locations already published
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        Disruptor<LocationEvent> started = disruptor;
+        if (started == null) return;
+        disruptor = null;
+        try {
+            started.shutdown(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Ingestion stages still busy after {} ms, halting them", SHUTDOWN_TIMEOUT);
+            started.halt();
+        }
+        // the completions already handed over still run
+        completionExecutor.shutdown();
+    }
+
+    private StageHandler[] stageHandlers(Stage stage, LocationEventHandler handler, boolean recording) {
+        int handlers = handlersByStage.get(stage);
+        Counter events = Counter.builder("tour.guide.ingestion.events")
+                .description("Locations processed by the stage")
+                .tag("stage", stage.tag())
+                .register(meterRegistry);
+        DistributionSummary batchSize = DistributionSummary.builder("tour.guide.ingestion.batch.size")
+                .description("Locations processed by a stage handler in one batch")
+                .tag("stage", stage.tag())
+                .register(meterRegistry);
+        StageHandler[] handlerArray = new StageHandler[handlers];
+        for (int ordinal = 0; ordinal < handlers; ordinal++) {
+            handlerArray[ordinal] = new StageHandler(stage, handler, ordinal, handlers, recording, events, batchSize);
+        }
+        stageHandlers.put(stage, handlerArray);
+        return handlerArray;
+    }
+
+    private static StageHandler[] concat(StageHandler[] first, StageHandler[] second) {
+        StageHandler[] both = new StageHandler[first.length + second.length];
+        System.arraycopy(first, 0, both, 0, first.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
+    }
+
+    /**
+     * One handler of a stage, processing the locations of the users whose id hash falls on its ordinal
+     */
+    private final class StageHandler implements EventHandler<LocationEvent> {
+        private final Stage stage;
+        private final LocationEventHandler handler;
+        private final int ordinal;
+        private final int handlers;
+        private final boolean recording;
+        private final Counter events;
+        private final DistributionSummary batchSize;
+        private long batchEvents;
+
+        private StageHandler(Stage stage, LocationEventHandler handler, int ordinal, int handlers, boolean recording,
+                             Counter events, DistributionSummary batchSize) {
+            this.stage = stage;
+            this.handler = handler;
+            this.ordinal = ordinal;
+            this.handlers = handlers;
+            this.recording = recording;
+            this.events = events;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void onEvent(LocationEvent event, long sequence, boolean endOfBatch) {
+            if (handlers == 1 || Math.floorMod(event.getUser().getUserId().hashCode(), handlers) == ordinal) {
+                try {
+                    handler.onEvent(event);
+                } catch (Throwable e) {
+                    // an error escaping the handler would end its thread, the ring filling up and blocking every publisher
+                    logger.error("Ingestion stage {} failed for user name : {} : {}", stage.tag(), event.getUser().getUserName(), e.toString());
+                    if (recording) event.fail(e);
+                }
+                batchEvents++;
+            }
+            if (endOfBatch && batchEvents > 0) {
+                events.increment(batchEvents);
+                batchSize.record(batchEvents);
+                batchEvents = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package tourGuide.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of the location request of a single user
+ */
+@Name(LocationFetchEvent.NAME)
+@Label("Location Fetch")
+@Category({"TourGuide", "Tracking"})
+@Description("The location request of a user to GpsUtil")
+@Enabled(false)
+@StackTrace(false)
+public class LocationFetchEvent extends jdk.jfr.Event {
+    public static final String NAME = "tourGuide.LocationFetch";
+
+    @Label("User Name")
+    public String userName;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    @Label("Stale")
+    @Description("GpsUtil was unavailable and the last known location was served instead")
+    public boolean stale;
+}
@@ -0,0 +1,30 @@
+package tourGuide.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a call to a downstream service, including the time spent waiting in the bulkhead and the limiter
+ */
+@Name(ProxyCallEvent.NAME)
+@Label("Proxy Call")
+@Category({"TourGuide", "Proxies"})
+@Description("A call to GpsUtil or RewardCentral through its resilient proxy")
+@Enabled(false)
+@StackTrace(false)
+public class ProxyCallEvent extends jdk.jfr.Event {
+    public static final String NAME = "tourGuide.ProxyCall";
+
+    @Label("Service")
+    public String service;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Outcome")
+    public String outcome;
+}
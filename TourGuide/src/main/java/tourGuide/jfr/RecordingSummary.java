@@ -0,0 +1,145 @@
+package tourGuide.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Command line tool summarizing the TourGuide events of a flight recording into per-stage latency breakdowns.
+ * The events are off by default, src/main/jfr/tourGuide.jfc switches them on for a recording,
+ * then ./gradlew jfrSummary -Precording=tourGuide.jfr prints one line per stage.
+ */
+public class RecordingSummary {
+
+    private final Map<String, Stage> stages = new TreeMap<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: RecordingSummary <recording.jfr>");
+            System.exit(2);
+        }
+        System.out.print(summarize(Paths.get(args[0])).format());
+    }
+
+    /**
+     * Read the TourGuide events of a recording
+     *
+     * @param recording the path of the flight recording
+     * @return the summary of the stages found in the recording
+     * @throws IOException if the recording can't be read
+     */
+    public static RecordingSummary summarize(Path recording) throws IOException {
+        RecordingSummary summary = new RecordingSummary();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+            summary.add(event);
+        }
+        return summary;
+    }
+
+    /**
+     * Get a stage of the summary
+     *
+     * @param name the stage name, as printed by format
+     * @return the stage, or null if the recording has no event of this stage
+     */
+    public Stage getStage(String name) {
+        return stages.get(name);
+    }
+
+    private void add(RecordedEvent event) {
+        String type = event.getEventType().getName();
+        long nanos = event.getDuration().toNanos();
+        switch (type) {
+            case TrackerCycleEvent.NAME:
+                stage("tracker cycle").add(nanos).count("users", event.getInt("userCount"));
+                break;
+            case LocationFetchEvent.NAME:
+                if (!event.getBoolean("succeeded")) stage("location fetch failed").add(nanos);
+                else if (event.hasField("stale") && event.getBoolean("stale")) stage("location fetch stale").add(nanos);
+                else stage("location fetch").add(nanos);
+                break;
+            case RewardsCalculationEvent.NAME:
+                stage("rewards calculation").add(nanos)
+                        .count("locations", event.getInt("locationsScanned"))
+                        .count("attractions", event.getInt("attractionsTested"))
+                        .count("lookups", event.getInt("remoteLookups"));
+                break;
+            case ProxyCallEvent.NAME:
+                stage("proxy " + event.getString("service") + " " + event.getString("method") + " " + event.getString("outcome")).add(nanos);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Stage stage(String name) {
+        return stages.computeIfAbsent(name, key -> new Stage());
+    }
+
+    /**
+     * Get the summary as a table, one line per stage with its latencies in milliseconds and its counters
+     *
+     * @return the printable summary
+     */
+    public String format() {
+        StringBuilder table = new StringBuilder(String.format(Locale.US, "%-50s %8s %12s %9s %9s %9s %9s  %s%n",
+                "stage", "count", "total ms", "mean ms", "p50 ms", "p99 ms", "max ms", "counters"));
+        stages.forEach((name, stage) -> table.append(String.format(Locale.US, "%-50s %8d %12.1f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                name, stage.getCount(), stage.getTotalNanos() / 1e6, stage.getTotalNanos() / 1e6 / stage.getCount(),
+                stage.percentileNanos(0.50) / 1e6, stage.percentileNanos(0.99) / 1e6, stage.percentileNanos(1.0) / 1e6,
+                stage.counters.isEmpty() ? "" : stage.counters)));
+        return table.toString();
+    }
+
+    /**
+     * Durations and counters of the events of one stage
+     */
+    public static class Stage {
+        private final List<Long> durations = new ArrayList<>();
+        private final Map<String, Long> counters = new TreeMap<>();
+        private boolean sorted = true;
+        private long totalNanos;
+
+        private Stage add(long nanos) {
+            durations.add(nanos);
+            totalNanos += nanos;
+            sorted = false;
+            return this;
+        }
+
+        private Stage count(String counter, long value) {
+            counters.merge(counter, value, Long::sum);
+            return this;
+        }
+
+        public int getCount() {
+            return durations.size();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getCounter(String counter) {
+            return counters.getOrDefault(counter, 0L);
+        }
+
+        public long percentileNanos(double percentile) {
+            if (!sorted) {
+                Collections.sort(durations);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(percentile * durations.size()) - 1;
+            return durations.get(Math.max(0, Math.min(durations.size() - 1, index)));
+        }
+    }
+}
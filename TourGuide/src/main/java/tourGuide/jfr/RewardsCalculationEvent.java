@@ -0,0 +1,35 @@
+package tourGuide.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of the evaluation of a user's locations against the attractions,
+ * the reward points lookups it starts being recorded as proxy calls
+ */
+@Name(RewardsCalculationEvent.NAME)
+@Label("Rewards Calculation")
+@Category({"TourGuide", "Rewards"})
+@Description("The evaluation of the visited locations of a user against every attraction")
+@Enabled(false)
+@StackTrace(false)
+public class RewardsCalculationEvent extends jdk.jfr.Event {
+    public static final String NAME = "tourGuide.RewardsCalculation";
+
+    @Label("User Name")
+    public String userName;
+
+    @Label("Locations Scanned")
+    public int locationsScanned;
+
+    @Label("Attractions Tested")
+    public int attractionsTested;
+
+    @Label("Remote Lookups")
+    @Description("Reward points requested from RewardCentral")
+    public int remoteLookups;
+}
@@ -0,0 +1,30 @@
+package tourGuide.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a Tracker cycle, from the start of the cycle until every user location request completed
+ */
+@Name(TrackerCycleEvent.NAME)
+@Label("Tracker Cycle")
+@Category({"TourGuide", "Tracking"})
+@Description("A Tracker cycle tracking the location of every user")
+@Enabled(false)
+@StackTrace(false)
+public class TrackerCycleEvent extends jdk.jfr.Event {
+    public static final String NAME = "tourGuide.TrackerCycle";
+
+    @Label("User Count")
+    public int userCount;
+
+    @Label("Dispatch Duration")
+    @Description("Time spent dispatching the location requests, the rest of the cycle waiting for their completion")
+    @Timespan(Timespan.NANOSECONDS)
+    public long dispatchDuration;
+}
@@ -0,0 +1,16 @@
+package tourGuide.model.Dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+public class AttractionOccupancyDto {
+
+    private String attractionName;
+    private String city;
+    private String state;
+    private int nearbyUsers;
+}
@@ -0,0 +1,17 @@
+package tourGuide.model.Dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkResultDto<T> {
+
+    private String userName;
+    private T result;
+    private String error;
+}
@@ -0,0 +1,17 @@
+package tourGuide.model.Dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import tourGuide.beans.LocationBean;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+public class CurrentLocationsDto {
+
+    private long cursor;
+    private Map<String, LocationBean> currentLocations;
+}
@@ -0,0 +1,18 @@
+package tourGuide.model.Dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+public class LeaderboardDto {
+
+    private int page;
+    private int size;
+    private int totalUsers;
+    private List<LeaderboardEntryDto> entries;
+}
@@ -0,0 +1,15 @@
+package tourGuide.model.Dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+public class LeaderboardEntryDto {
+
+    private int rank;
+    private String userName;
+    private int rewardPoints;
+}
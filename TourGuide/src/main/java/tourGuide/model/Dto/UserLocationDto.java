@@ -0,0 +1,18 @@
+package tourGuide.model.Dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import tourGuide.beans.LocationBean;
+
+@Getter
+@Setter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserLocationDto {
+
+    private String userId;
+    private LocationBean location;
+    private Double distance;
+}
@@ -4,7 +4,9 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import tourGuide.beans.VisitedLocationBean;
@@ -19,7 +21,10 @@ public class User {
 	private String emailAddress;
 	private Date latestLocationTimestamp;
 	private List<VisitedLocationBean> visitedLocations = new ArrayList<>();
-	private List<UserReward> userRewards = new ArrayList<>();
+	// read by the reward evaluation loop while rewards are being added
+	private List<UserReward> userRewards = new CopyOnWriteArrayList<>();
+	@Setter(AccessLevel.NONE)
+	private volatile int rewardPointsTotal;
 	public UserPreferences userPreferences = new UserPreferences();
 	private List<Provider> tripDeals = new ArrayList<>();
 	public User(UUID userId, String userName, String phoneNumber, String emailAddress) {
@@ -38,11 +43,19 @@ public class User {
 		visitedLocations.clear();
 	}
 	
-	public void addUserReward(UserReward userReward) {
-		if (userRewards.stream().filter(r -> r.attraction.attractionName.equals(userReward
-				.attraction.attractionName)).count() == 0) {
-			userRewards.add(userReward);
+	public synchronized boolean addUserReward(UserReward userReward) {
+		for (UserReward existingReward : userRewards) {
+			if (existingReward.attraction.attractionName.equals(userReward.attraction.attractionName)) {
+				return false;
+			}
 		}
+		rewardPointsTotal += userReward.getRewardPoints();
+		return userRewards.add(userReward);
+	}
+
+	public synchronized void setUserRewards(List<UserReward> userRewards) {
+		this.userRewards = userRewards;
+		rewardPointsTotal = userRewards.stream().mapToInt(UserReward::getRewardPoints).sum();
 	}
 
 	public VisitedLocationBean getLastVisitedLocation() {
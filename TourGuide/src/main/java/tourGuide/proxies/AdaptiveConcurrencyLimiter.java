@@ -0,0 +1,131 @@
+package tourGuide.proxies;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import tourGuide.exceptions.ConcurrencyLimitExceededException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limit of the calls in flight to a downstream service, adapted to its measured latency (AIMD).
+ * While the smoothed round-trip latency stays under the target, the limit grows by about one call per round trip;
+ * when it exceeds the target or a call fails, the limit is cut by a fixed ratio, at most once per round trip.
+ * Callers beyond the limit wait for a call to complete, so the callers' throughput follows the downstream capacity.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double SMOOTHING = 0.1;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatency;
+    private final long maxWait;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition callCompleted = lock.newCondition();
+    private volatile double limit;
+    private volatile int inFlight;
+    private double smoothedLatency;
+    private long lastDecrease;
+
+    /**
+     * @param name          the name of the downstream service
+     * @param initialLimit  the number of calls allowed in flight before any latency is measured
+     * @param minLimit      the lowest limit the latency can drive the limiter to
+     * @param maxLimit      the highest limit the latency can drive the limiter to
+     * @param targetLatency the round-trip latency in milliseconds the limiter keeps the calls near
+     * @param maxWait       milliseconds a call waits for a free slot before being rejected
+     */
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, long targetLatency, long maxWait) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.targetLatency = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+        this.maxWait = TimeUnit.MILLISECONDS.toNanos(maxWait);
+        this.lastDecrease = System.nanoTime() - this.targetLatency;
+    }
+
+    /**
+     * Make a call once the limit allows it and adapt the limit to its latency
+     *
+     * @param call the downstream call
+     * @param <T>  the type of the downstream response
+     * @return the downstream response
+     * @throws ConcurrencyLimitExceededException when no slot was freed within the maximum wait
+     */
+    public <T> T call(Supplier<T> call) {
+        acquire();
+        long start = System.nanoTime();
+        boolean sent = true;
+        boolean failed = true;
+        try {
+            T result = call.get();
+            failed = false;
+            return result;
+        } catch (CallNotPermittedException e) {
+            // not sent to the downstream service, says nothing about its latency
+            sent = false;
+            throw e;
+        } finally {
+            // whatever the call threw, an error included, the slot is given back
+            release(sent ? System.nanoTime() - start : -1, failed && sent);
+        }
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            long remaining = maxWait;
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) throw new ConcurrencyLimitExceededException("Concurrency limit of " + name + " reached : " + (int) limit);
+                remaining = callCompleted.awaitNanos(remaining);
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyLimitExceededException("Interrupted while waiting for a call slot to " + name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long latency, boolean failed) {
+        lock.lock();
+        try {
+            if (latency >= 0) adapt(latency, failed);
+            inFlight--;
+            callCompleted.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adapt(long latency, boolean failed) {
+        smoothedLatency = smoothedLatency == 0 ? latency : smoothedLatency + SMOOTHING * (latency - smoothedLatency);
+        long now = System.nanoTime();
+        if (failed || smoothedLatency > targetLatency) {
+            if (now - lastDecrease >= smoothedLatency) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastDecrease = now;
+            }
+        } else if (inFlight >= limit / 2) {
+            // only grow a limit the callers actually use
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+}
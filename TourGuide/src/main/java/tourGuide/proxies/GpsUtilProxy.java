@@ -1,8 +1,11 @@
 package tourGuide.proxies;
 
+import feign.Response;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import tourGuide.beans.AttractionBean;
 import tourGuide.beans.VisitedLocationBean;
@@ -10,9 +13,11 @@ import tourGuide.beans.VisitedLocationBean;
 import java.util.List;
 import java.util.UUID;
 
-@FeignClient(name = "gps-util", url = "${gps.util.proxy.url}")
+@FeignClient(name = "gps-util", url = "${gps.util.proxy.url}", primary = false, qualifier = GpsUtilProxy.FEIGN_CLIENT)
 public interface GpsUtilProxy {
 
+    String FEIGN_CLIENT = "gpsUtilFeignClient";
+
     /**
      * Get the actual user location
      * @param userId id of the user whose location is sought
@@ -27,4 +32,12 @@ public interface GpsUtilProxy {
      */
     @GetMapping("/attractions")
     List<AttractionBean> getAttractions();
+
+    /**
+     * Get a list of all attractions unless it is unchanged since the version already known
+     * @param eTag the ETag of the attractions already known, null if none
+     * @return the raw response, 200 with the attractions and their ETag or 304 without body if they are unchanged
+     */
+    @GetMapping("/attractions")
+    Response getAttractionsIfNoneMatch(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String eTag);
 }
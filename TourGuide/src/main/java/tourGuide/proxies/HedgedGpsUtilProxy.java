@@ -0,0 +1,182 @@
+package tourGuide.proxies;
+
+import feign.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.exceptions.ServiceUnavailableException;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * GpsUtil proxy for interactive requests, cutting the latency tail of the location calls.
+ * When the first attempt hasn't answered after the configured percentile of the recent latencies,
+ * a second attempt is sent, the first result is kept and the other attempt is cancelled.
+ * Not used by the tracker, whose bulk traffic would double the load on GpsUtil for no user-visible gain.
+ * The attempts run on a pool bounded by the GpsUtil bulkhead: when every thread is busy, no hedge is sent
+ * and a first attempt runs on the caller's thread.
+ */
+@Component
+public class HedgedGpsUtilProxy implements GpsUtilProxy {
+    private final Logger logger = LoggerFactory.getLogger(HedgedGpsUtilProxy.class);
+    private static final int MIN_SAMPLES = 20;
+    static final int DEFAULT_MAX_CONCURRENT_CALLS = 1000;
+
+    private final GpsUtilProxy gpsUtilProxy;
+    private final boolean enabled;
+    private final long initialDelay;
+    private final long minDelay;
+    private final Timer latency;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    private final Counter hedgesSkipped;
+    private final ExecutorService executorService;
+
+    public HedgedGpsUtilProxy(GpsUtilProxy gpsUtilProxy) {
+        this(gpsUtilProxy, false, 0.95, 100, 5, new SimpleMeterRegistry());
+    }
+
+    public HedgedGpsUtilProxy(GpsUtilProxy gpsUtilProxy, boolean enabled, double percentile, long initialDelay, long minDelay,
+                              MeterRegistry meterRegistry) {
+        this(gpsUtilProxy, enabled, percentile, initialDelay, minDelay, DEFAULT_MAX_CONCURRENT_CALLS, meterRegistry);
+    }
+
+    /**
+     * @param maxConcurrentCalls the attempts in flight at once, the size of the GpsUtil bulkhead they would wait in anyway
+     */
+    @Autowired
+    public HedgedGpsUtilProxy(GpsUtilProxy gpsUtilProxy,
+                              @Value("${tour.guide.proxy.gps.util.hedging.enabled:true}") boolean enabled,
+                              @Value("${tour.guide.proxy.gps.util.hedging.percentile:0.95}") double percentile,
+                              @Value("${tour.guide.proxy.gps.util.hedging.initial.delay.ms:100}") long initialDelay,
+                              @Value("${tour.guide.proxy.gps.util.hedging.min.delay.ms:5}") long minDelay,
+                              @Value("${tour.guide.proxy.gps.util.max.concurrent.calls:1000}") int maxConcurrentCalls,
+                              MeterRegistry meterRegistry) {
+        this.gpsUtilProxy = gpsUtilProxy;
+        this.enabled = enabled;
+        this.initialDelay = TimeUnit.MILLISECONDS.toNanos(initialDelay);
+        this.minDelay = TimeUnit.MILLISECONDS.toNanos(minDelay);
+        this.latency = Timer.builder("tour.guide.gps.util.location.latency")
+                .description("Latency of the interactive GpsUtil location calls")
+                .publishPercentiles(percentile)
+                .register(meterRegistry);
+        this.hedgesSent = Counter.builder("tour.guide.gps.util.hedges.sent")
+                .description("Second location attempts sent because the first one was slow")
+                .register(meterRegistry);
+        this.hedgesWon = Counter.builder("tour.guide.gps.util.hedges.won")
+                .description("Second location attempts that answered before the first one")
+                .register(meterRegistry);
+        this.hedgesSkipped = Counter.builder("tour.guide.gps.util.hedges.skipped")
+                .description("Second location attempts not sent because every hedging thread was busy")
+                .register(meterRegistry);
+        this.executorService = new ThreadPoolExecutor(0, maxConcurrentCalls, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+    }
+
+    /**
+     * Get the actual user location, sending a second attempt if the first one is slow
+     *
+     * @param userId id of the user whose location is sought
+     * @return a visited location composed of a userId, a location with longitude and latitude and a date
+     */
+    @Override
+    public VisitedLocationBean getUserLocation(UUID userId) {
+        if (!enabled) return gpsUtilProxy.getUserLocation(userId);
+        CompletionService<VisitedLocationBean> attempts = new ExecutorCompletionService<>(executorService);
+        Future<VisitedLocationBean> first;
+        try {
+            first = attempts.submit(() -> timedUserLocation(userId));
+        } catch (RejectedExecutionException e) {
+            logger.debug("No hedging thread available, location call for user id : {} not hedged", userId);
+            hedgesSkipped.increment();
+            return timedUserLocation(userId);
+        }
+        Future<VisitedLocationBean> hedge = null;
+        try {
+            Future<VisitedLocationBean> done = attempts.poll(hedgeDelay(), TimeUnit.NANOSECONDS);
+            int pending = 1;
+            if (done == null) {
+                try {
+                    hedge = attempts.submit(() -> timedUserLocation(userId));
+                    logger.debug("Hedging location call for user id : {}", userId);
+                    hedgesSent.increment();
+                    pending++;
+                } catch (RejectedExecutionException e) {
+                    logger.debug("No hedging thread available, location call for user id : {} not hedged", userId);
+                    hedgesSkipped.increment();
+                }
+            }
+            ExecutionException failure = null;
+            for (; pending > 0; pending--) {
+                if (done == null) done = attempts.take();
+                try {
+                    VisitedLocationBean visitedLocation = done.get();
+                    if (done == hedge) hedgesWon.increment();
+                    return visitedLocation;
+                } catch (ExecutionException e) {
+                    failure = e;
+                    done = null;
+                }
+            }
+            Throwable cause = failure.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new ServiceUnavailableException(cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for the location of user id " + userId);
+        } finally {
+            first.cancel(true);
+            if (hedge != null) hedge.cancel(true);
+        }
+    }
+
+    /**
+     * Get a list of all attractions, never hedged
+     *
+     * @return a list of all attractions with for each a name, a city, a state, a latitude and a longitude
+     */
+    @Override
+    public List<AttractionBean> getAttractions() {
+        return gpsUtilProxy.getAttractions();
+    }
+
+    /**
+     * Get a list of all attractions unless it is unchanged, never hedged
+     *
+     * @param eTag the ETag of the attractions already known, null if none
+     * @return the raw response, 200 with the attractions and their ETag or 304 without body if they are unchanged
+     */
+    @Override
+    public Response getAttractionsIfNoneMatch(String eTag) {
+        return gpsUtilProxy.getAttractionsIfNoneMatch(eTag);
+    }
+
+    private VisitedLocationBean timedUserLocation(UUID userId) {
+        return latency.record(() -> gpsUtilProxy.getUserLocation(userId));
+    }
+
+    /**
+     * Get the delay after which a second attempt is sent: the configured percentile of the recent latencies,
+     * or the initial delay until enough calls have been measured
+     */
+    private long hedgeDelay() {
+        if (latency.count() < MIN_SAMPLES) return initialDelay;
+        ValueAtPercentile[] percentiles = latency.takeSnapshot().percentileValues();
+        return percentiles.length == 0 ? initialDelay : Math.max(minDelay, (long) percentiles[0].value(TimeUnit.NANOSECONDS));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,113 @@
+package tourGuide.proxies;
+
+import feign.FeignException;
+import feign.Response;
+import feign.codec.DecodeException;
+import feign.codec.Decoder;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.configuration.ResilienceConfiguration;
+import tourGuide.index.LocationUpdateIndex;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * GpsUtil proxy guarded by a bulkhead, an adaptive concurrency limiter and a circuit breaker.
+ * The attractions are requested conditionally, GpsUtil answering 304 without body while they are unchanged.
+ * While GpsUtil is unavailable, the user's last known location and the last attractions received are served.
+ */
+@Primary
+@Component
+public class ResilientGpsUtilProxy extends ResilientProxySupport implements GpsUtilProxy {
+    private static final Type ATTRACTION_LIST = new ParameterizedTypeReference<List<AttractionBean>>() {}.getType();
+
+    private final GpsUtilProxy gpsUtilProxy;
+    private final LocationUpdateIndex locationUpdateIndex;
+    private final Decoder attractionsDecoder;
+    private volatile CachedAttractions lastAttractions;
+
+    public ResilientGpsUtilProxy(@Qualifier(GpsUtilProxy.FEIGN_CLIENT) GpsUtilProxy gpsUtilProxy, LocationUpdateIndex locationUpdateIndex,
+                                 BulkheadRegistry bulkheadRegistry, @Qualifier(ResilienceConfiguration.GPS_UTIL_LIMITER) AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                 CircuitBreakerRegistry circuitBreakerRegistry, ObjectFactory<HttpMessageConverters> messageConverters,
+                                 MeterRegistry meterRegistry) {
+        super(bulkheadRegistry.bulkhead(ResilienceConfiguration.GPS_UTIL), concurrencyLimiter,
+                circuitBreakerRegistry.circuitBreaker(ResilienceConfiguration.GPS_UTIL), meterRegistry);
+        this.gpsUtilProxy = gpsUtilProxy;
+        this.locationUpdateIndex = locationUpdateIndex;
+        this.attractionsDecoder = new SpringDecoder(messageConverters);
+    }
+
+    /**
+     * Get the actual user location, or its last known location while GpsUtil is unavailable
+     *
+     * @param userId id of the user whose location is sought
+     * @return a visited location composed of a userId, a location with longitude and latitude and a date
+     */
+    @Override
+    public VisitedLocationBean getUserLocation(UUID userId) {
+        return call("getUserLocation", () -> gpsUtilProxy.getUserLocation(userId), () -> locationUpdateIndex.getLatest(userId));
+    }
+
+    /**
+     * Get a list of all attractions, kept from the last response while GpsUtil reports them unchanged
+     * or while GpsUtil is unavailable
+     *
+     * @return a list of all attractions with for each a name, a city, a state, a latitude and a longitude
+     */
+    @Override
+    public List<AttractionBean> getAttractions() {
+        return call("getAttractions", this::refreshAttractions, () -> lastAttractions == null ? null : lastAttractions.attractions);
+    }
+
+    /**
+     * Get a list of all attractions unless it is unchanged since the version already known
+     *
+     * @param eTag the ETag of the attractions already known, null if none
+     * @return the raw response, 200 with the attractions and their ETag or 304 without body if they are unchanged
+     */
+    @Override
+    public Response getAttractionsIfNoneMatch(String eTag) {
+        return call("getAttractionsIfNoneMatch", () -> gpsUtilProxy.getAttractionsIfNoneMatch(eTag), () -> null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<AttractionBean> refreshAttractions() {
+        CachedAttractions cached = lastAttractions;
+        try (Response response = gpsUtilProxy.getAttractionsIfNoneMatch(cached == null ? null : cached.eTag)) {
+            if (response.status() == HttpStatus.NOT_MODIFIED.value() && cached != null) return cached.attractions;
+            if (response.status() != HttpStatus.OK.value()) throw FeignException.errorStatus("GpsUtilProxy#getAttractionsIfNoneMatch(String)", response);
+            List<AttractionBean> attractions = (List<AttractionBean>) attractionsDecoder.decode(response, ATTRACTION_LIST);
+            Collection<String> eTags = response.headers().get(HttpHeaders.ETAG);
+            lastAttractions = new CachedAttractions(attractions, eTags == null || eTags.isEmpty() ? null : eTags.iterator().next());
+            return attractions;
+        } catch (IOException e) {
+            throw new DecodeException(HttpStatus.OK.value(), "Unable to read the attractions of GpsUtil", e);
+        }
+    }
+
+    private static class CachedAttractions {
+        private final List<AttractionBean> attractions;
+        private final String eTag;
+
+        private CachedAttractions(List<AttractionBean> attractions, String eTag) {
+            this.attractions = attractions;
+            this.eTag = eTag;
+        }
+    }
+}
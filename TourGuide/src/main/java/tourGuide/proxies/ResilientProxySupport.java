@@ -0,0 +1,116 @@
+package tourGuide.proxies;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tourGuide.exceptions.ConcurrencyLimitExceededException;
+import tourGuide.exceptions.ServiceUnavailableException;
+import tourGuide.jfr.ProxyCallEvent;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Base of the proxy decorators isolating TourGuide from a slow or failing downstream service.
+ * The bulkhead bounds the calls in flight so a slow service can't hold every thread,
+ * the adaptive limiter keeps the calls sent near the latency target of the service
+ * and the circuit breaker stops calling a failing service until it recovers.
+ * Every call is timed by proxy method and outcome, percentiles being configured through management.metrics.distribution.
+ */
+abstract class ResilientProxySupport {
+    static final String REQUESTS_METRIC = "tour.guide.proxy.requests";
+
+    /**
+     * How a proxy call ended
+     */
+    enum Outcome {
+        /** the downstream service answered */
+        SUCCESS,
+        /** the call was not permitted and a stale value was served */
+        FALLBACK,
+        /** the call was not permitted and no stale value was known */
+        REJECTED,
+        /** the downstream call failed */
+        ERROR
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ResilientProxySupport.class);
+    private final Bulkhead bulkhead;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Map<Outcome, Timer>> timersByMethod = new ConcurrentHashMap<>();
+
+    ResilientProxySupport(Bulkhead bulkhead, AdaptiveConcurrencyLimiter concurrencyLimiter, CircuitBreaker circuitBreaker,
+                          MeterRegistry meterRegistry) {
+        this.bulkhead = bulkhead;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Call the downstream service through the bulkhead, the concurrency limiter then the circuit breaker
+     *
+     * @param method   the name of the proxy method, tagging the call latency
+     * @param call     the downstream call
+     * @param fallback the stale value served when the call is not permitted, null if none is known
+     * @param <T>      the type of the downstream response
+     * @return the downstream response, or the fallback value when the bulkhead or the limiter is full or the breaker open
+     * @throws ServiceUnavailableException when the call is not permitted and no fallback value is known
+     */
+    <T> T call(String method, Supplier<T> call, Supplier<T> fallback) {
+        ProxyCallEvent callEvent = new ProxyCallEvent();
+        callEvent.begin();
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            Supplier<T> guardedCall = CircuitBreaker.decorateSupplier(circuitBreaker, call);
+            T response = Bulkhead.decorateSupplier(bulkhead, () -> concurrencyLimiter.call(guardedCall)).get();
+            outcome = Outcome.SUCCESS;
+            return response;
+        } catch (CallNotPermittedException | BulkheadFullException | ConcurrencyLimitExceededException e) {
+            logger.warn("Call to {} not permitted : {}", circuitBreaker.getName(), e.getMessage());
+            T stale = fallback.get();
+            if (stale == null) {
+                outcome = Outcome.REJECTED;
+                throw new ServiceUnavailableException(circuitBreaker.getName() + " is unavailable and no previous value is known");
+            }
+            outcome = Outcome.FALLBACK;
+            return stale;
+        } finally {
+            timer(method, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (callEvent.shouldCommit()) {
+                callEvent.service = circuitBreaker.getName();
+                callEvent.method = method;
+                callEvent.outcome = outcome.name();
+                callEvent.commit();
+            }
+        }
+    }
+
+    private Timer timer(String method, Outcome outcome) {
+        return timersByMethod.computeIfAbsent(method, this::registerTimers).get(outcome);
+    }
+
+    private Map<Outcome, Timer> registerTimers(String method) {
+        Map<Outcome, Timer> timers = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            timers.put(outcome, Timer.builder(REQUESTS_METRIC)
+                    .description("Latency of the calls to the downstream services")
+                    .tag("service", circuitBreaker.getName())
+                    .tag("method", method)
+                    .tag("outcome", outcome.name())
+                    .register(meterRegistry));
+        }
+        return timers;
+    }
+}
@@ -0,0 +1,74 @@
+package tourGuide.proxies;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import tourGuide.configuration.ResilienceConfiguration;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * RewardCentral proxy guarded by a bulkhead, an adaptive concurrency limiter and a circuit breaker.
+ * While RewardCentral is unavailable, the points last received for the same attraction and user are served.
+ */
+@Primary
+@Component
+public class ResilientRewardCentralProxy extends ResilientProxySupport implements RewardCentralProxy {
+    private final RewardCentralProxy rewardCentralProxy;
+    private final Map<Map.Entry<UUID, UUID>, Integer> lastRewards;
+
+    public ResilientRewardCentralProxy(@Qualifier(RewardCentralProxy.FEIGN_CLIENT) RewardCentralProxy rewardCentralProxy,
+                                       BulkheadRegistry bulkheadRegistry, @Qualifier(ResilienceConfiguration.REWARD_CENTRAL_LIMITER) AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                       CircuitBreakerRegistry circuitBreakerRegistry,
+                                       @Value("${tour.guide.proxy.reward.central.fallback.cache.size:100000}") int fallbackCacheSize,
+                                       MeterRegistry meterRegistry) {
+        super(bulkheadRegistry.bulkhead(ResilienceConfiguration.REWARD_CENTRAL), concurrencyLimiter,
+                circuitBreakerRegistry.circuitBreaker(ResilienceConfiguration.REWARD_CENTRAL), meterRegistry);
+        this.rewardCentralProxy = rewardCentralProxy;
+        this.lastRewards = Collections.synchronizedMap(new LastRewards(fallbackCacheSize));
+    }
+
+    /**
+     * Get points awarded to a user for a given attraction, or the points last received while RewardCentral is unavailable
+     *
+     * @param attractionId the id of the attraction concerned
+     * @param userId       the id of the user concerned
+     * @return the number of points assigned to the user for this attraction
+     */
+    @Override
+    public int getRewards(UUID attractionId, UUID userId) {
+        Map.Entry<UUID, UUID> key = new SimpleImmutableEntry<>(attractionId, userId);
+        return call("getRewards", () -> {
+            int rewardPoints = rewardCentralProxy.getRewards(attractionId, userId);
+            lastRewards.put(key, rewardPoints);
+            return rewardPoints;
+        }, () -> lastRewards.get(key));
+    }
+
+    /**
+     * Points last received per attraction and user, the least recently used evicted beyond the maximum size
+     */
+    private static final class LastRewards extends LinkedHashMap<Map.Entry<UUID, UUID>, Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private LastRewards(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Map.Entry<UUID, UUID>, Integer> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -7,9 +7,11 @@ import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.UUID;
 
-@FeignClient(name = "reward-central", url = "${reward.central.proxy.url}")
+@FeignClient(name = "reward-central", url = "${reward.central.proxy.url}", primary = false, qualifier = RewardCentralProxy.FEIGN_CLIENT)
 public interface RewardCentralProxy {
 
+    String FEIGN_CLIENT = "rewardCentralFeignClient";
+
     /**
      * Get points awarded to a user for a given attraction
      * @param attractionId the id of the attraction concerned
@@ -2,10 +2,12 @@ package tourGuide.service;
 
 import tourGuide.beans.AttractionBean;
 import tourGuide.beans.LocationBean;
+import tourGuide.model.Dto.LeaderboardDto;
 import tourGuide.model.user.User;
 import tourGuide.model.user.UserReward;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface RewardsService {
 
@@ -28,6 +30,15 @@ public interface RewardsService {
      */
     void calculateRewards(User user);
 
+    /**
+     * Get a page of the users ranked by total reward points, highest first
+     *
+     * @param page the index of the page, starting at 0
+     * @param size the number of users per page
+     * @return the ranked users of the page
+     */
+    LeaderboardDto getLeaderboard(int page, int size);
+
     /**
      * Get the number of points awarded to a user based on an attraction
      *
@@ -37,6 +48,15 @@ public interface RewardsService {
      */
     int getRewardPoints(AttractionBean attraction, User user);
 
+    /**
+     * Get the number of points awarded to a user based on an attraction without waiting for RewardCentral
+     *
+     * @param attraction the attraction for which the rewards points are calculated
+     * @param user       the user for whom the rewards points are calculated
+     * @return the future of the number of points awarded to the user
+     */
+    CompletableFuture<Integer> getRewardPointsAsync(AttractionBean attraction, User user);
+
     /**
      * Get a distance between two locations
      *
@@ -2,35 +2,66 @@ package tourGuide.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import tourGuide.beans.AttractionBean;
 import tourGuide.beans.LocationBean;
 import tourGuide.beans.VisitedLocationBean;
+import tourGuide.index.RewardLeaderboardIndex;
+import tourGuide.jfr.RewardsCalculationEvent;
+import tourGuide.model.Dto.LeaderboardDto;
+import tourGuide.model.Dto.LeaderboardEntryDto;
 import tourGuide.model.user.User;
 import tourGuide.model.user.UserReward;
 import tourGuide.proxies.GpsUtilProxy;
 import tourGuide.proxies.RewardCentralProxy;
+import tourGuide.stream.UpdateEventBroadcaster;
+import tourGuide.tracker.TripDealsPrecomputer;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class RewardsServiceImpl implements RewardsService {
     private final Logger logger = LoggerFactory.getLogger(RewardsServiceImpl.class);
     private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+    private static final int DOWNSTREAM_THREADS = 1000;
 
     // proximity in miles
     private int defaultProximityBuffer = 10;
 
     private final GpsUtilProxy gpsUtil;
     private final RewardCentralProxy rewardsCentral;
+    private final UpdateEventBroadcaster updateEventBroadcaster;
+    private final TripDealsPrecomputer tripDealsPrecomputer;
+    private final RewardLeaderboardIndex rewardLeaderboardIndex;
+    // blocked on the proxies' adaptive limiters, which set the concurrency actually sent downstream
+    private final ExecutorService executorService = newDownstreamExecutor();
+    // user id and attraction name of the lookups in flight, an attraction is looked up once at a time per user
+    private final Set<String> pendingLookups = ConcurrentHashMap.newKeySet();
 
     public RewardsServiceImpl(GpsUtilProxy gpsUtil, RewardCentralProxy rewardCentral) {
+        this(gpsUtil, rewardCentral, new UpdateEventBroadcaster(), new TripDealsPrecomputer(new TripPricerServiceImpl()),
+                new RewardLeaderboardIndex());
+    }
+
+    @Autowired
+    public RewardsServiceImpl(GpsUtilProxy gpsUtil, RewardCentralProxy rewardCentral, UpdateEventBroadcaster updateEventBroadcaster,
+                              TripDealsPrecomputer tripDealsPrecomputer, RewardLeaderboardIndex rewardLeaderboardIndex) {
         this.gpsUtil = gpsUtil;
         this.rewardsCentral = rewardCentral;
+        this.updateEventBroadcaster = updateEventBroadcaster;
+        this.tripDealsPrecomputer = tripDealsPrecomputer;
+        this.rewardLeaderboardIndex = rewardLeaderboardIndex;
     }
 
     /**
@@ -57,24 +88,122 @@ public class RewardsServiceImpl implements RewardsService {
     @Override
     public void calculateRewards(User user) {
         logger.info("Calculate rewards for user name : {}", user.getUserName());
-        ExecutorService executorService = Executors.newFixedThreadPool(1000);
-        // Fix ConcurrentModificationException
-        CopyOnWriteArrayList<VisitedLocationBean> userLocations = new CopyOnWriteArrayList<>(user.getVisitedLocations());
-        CompletableFuture.supplyAsync(gpsUtil::getAttractions).thenAccept(attractions -> {
+        // snapshot taken before going async, the tracker keeps appending to the history meanwhile
+        VisitedLocationBean[] userLocations = user.getVisitedLocations().toArray(new VisitedLocationBean[0]);
+        CompletableFuture.supplyAsync(gpsUtil::getAttractions)
+                .thenAccept(attractions -> calculateRewards(user, userLocations, attractions))
+                .exceptionally(error -> {
+                    // without any catalog, e.g. GpsUtil down before its first answer, the calculation is skipped until the next one
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    logger.error("Rewards calculation skipped for user name : {} : {}", user.getUserName(), cause.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Look up the reward of each attraction not yet rewarded which is near one of the visited locations.
+     * An attraction is looked up once, for the first location of the history near it.
+     *
+     * @param user          the user whose rewards calculation is requested
+     * @param userLocations the snapshot of the user visited locations
+     * @param attractions   the attractions of the catalog
+     */
+    void calculateRewards(User user, VisitedLocationBean[] userLocations, List<AttractionBean> attractions) {
+        RewardsCalculationEvent calculationEvent = new RewardsCalculationEvent();
+        calculationEvent.begin();
+        calculationEvent.locationsScanned = userLocations.length;
+        for (AttractionBean attraction : attractions) {
+            if (isRewarded(user, attraction)) continue;
             for (VisitedLocationBean visitedLocation : userLocations) {
-                for (AttractionBean attraction : attractions) {
-                    if (user.getUserRewards().stream().noneMatch(r -> r.attraction.attractionName.equals(attraction.attractionName))) {
-                        if (nearAttraction(visitedLocation, attraction)) {
-                            CompletableFuture.supplyAsync(() -> getRewardPoints(attraction, user), executorService)
-                                    .thenAccept(rewardPoints -> {
-                                        UserReward userReward = new UserReward(visitedLocation, attraction, rewardPoints);
-                                        user.addUserReward(userReward);
-                                    });
-                        }
-                    }
+                calculationEvent.attractionsTested++;
+                if (nearAttraction(visitedLocation, attraction)) {
+                    if (lookupReward(user, visitedLocation, attraction)) calculationEvent.remoteLookups++;
+                    break;
                 }
             }
-        });
+        }
+        if (calculationEvent.shouldCommit()) {
+            calculationEvent.userName = user.getUserName();
+            calculationEvent.commit();
+        }
+    }
+
+    /**
+     * Reward a user for the attractions whose zone contains its new location.
+     * Only the zones covering the location are tested, so the cost follows the arrivals rather than the history:
+     * entering a zone triggers a single RewardCentral lookup, a later arrival only looks up again if that one failed.
+     *
+     * @param user              the user who arrived at a new location
+     * @param visitedLocation   the new location of the user
+     * @param nearbyAttractions the attractions whose zone contains the new location
+     */
+    public void rewardNearbyAttractions(User user, VisitedLocationBean visitedLocation, List<AttractionBean> nearbyAttractions) {
+        RewardsCalculationEvent calculationEvent = new RewardsCalculationEvent();
+        calculationEvent.begin();
+        calculationEvent.locationsScanned = 1;
+        calculationEvent.attractionsTested = nearbyAttractions.size();
+        for (AttractionBean attraction : nearbyAttractions) {
+            if (!isRewarded(user, attraction) && lookupReward(user, visitedLocation, attraction)) calculationEvent.remoteLookups++;
+        }
+        if (calculationEvent.shouldCommit()) {
+            calculationEvent.userName = user.getUserName();
+            calculationEvent.commit();
+        }
+    }
+
+    private boolean lookupReward(User user, VisitedLocationBean visitedLocation, AttractionBean attraction) {
+        String lookupKey = user.getUserId() + attraction.attractionName;
+        if (!pendingLookups.add(lookupKey)) return false;
+        getRewardPointsAsync(attraction, user)
+                .thenAccept(rewardPoints -> {
+                    UserReward userReward = new UserReward(visitedLocation, attraction, rewardPoints);
+                    if (user.addUserReward(userReward)) {
+                        rewardLeaderboardIndex.update(user);
+                        updateEventBroadcaster.publishReward(user, userReward);
+                        tripDealsPrecomputer.markActive(user);
+                    }
+                })
+                .whenComplete((added, error) -> pendingLookups.remove(lookupKey));
+        return true;
+    }
+
+    private static boolean isRewarded(User user, AttractionBean attraction) {
+        // indexed rather than iterated, this runs for every attraction of the catalog and rewards are only ever appended
+        List<UserReward> userRewards = user.getUserRewards();
+        for (int i = 0; i < userRewards.size(); i++) {
+            if (userRewards.get(i).attraction.attractionName.equals(attraction.attractionName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a page of the users ranked by total reward points, highest first
+     *
+     * @param page the index of the page, starting at 0
+     * @param size the number of users per page
+     * @return the ranked users of the page
+     */
+    @Override
+    public LeaderboardDto getLeaderboard(int page, int size) {
+        logger.info("Get leaderboard page {} of size {}", page, size);
+        long offset = (long) page * size;
+        List<User> rankedUsers = rewardLeaderboardIndex.getRanked(offset, size);
+        List<LeaderboardEntryDto> entries = new ArrayList<>(rankedUsers.size());
+        for (User rankedUser : rankedUsers) {
+            entries.add(LeaderboardEntryDto.builder()
+                    .rank((int) offset + entries.size() + 1)
+                    .userName(rankedUser.getUserName())
+                    .rewardPoints(rankedUser.getRewardPointsTotal())
+                    .build());
+        }
+        return LeaderboardDto.builder()
+                .page(page)
+                .size(size)
+                .totalUsers(rewardLeaderboardIndex.size())
+                .entries(entries)
+                .build();
     }
 
     /**
@@ -85,10 +214,18 @@ public class RewardsServiceImpl implements RewardsService {
      * @return true if the distance between the visited location and the attraction location is considered nearby
      */
     public boolean nearAttraction(VisitedLocationBean visitedLocation, AttractionBean attraction) {
-        logger.info("Check if is a near attraction");
         return !(getDistance(attraction, visitedLocation.locationBean) > defaultProximityBuffer);
     }
 
+    /**
+     * Get the distance under which a visited location is near an attraction
+     *
+     * @return the proximity buffer in miles
+     */
+    public int getProximityBuffer() {
+        return defaultProximityBuffer;
+    }
+
     /**
      * Get the number of points awarded to a user based on an attraction
      *
@@ -102,6 +239,18 @@ public class RewardsServiceImpl implements RewardsService {
         return rewardsCentral.getRewards(attraction.attractionId, user.getUserId());
     }
 
+    /**
+     * Get the number of points awarded to a user based on an attraction without waiting for RewardCentral
+     *
+     * @param attraction the attraction for which the rewards points are calculated
+     * @param user       the user for whom the rewards points are calculated
+     * @return the future of the number of points awarded to the user, completed on a downstream thread
+     */
+    @Override
+    public CompletableFuture<Integer> getRewardPointsAsync(AttractionBean attraction, User user) {
+        return CompletableFuture.supplyAsync(() -> getRewardPoints(attraction, user), executorService);
+    }
+
     /**
      * Get a distance between two locations
      *
@@ -111,16 +260,26 @@ public class RewardsServiceImpl implements RewardsService {
      */
     @Override
     public double getDistance(LocationBean loc1, LocationBean loc2) {
-        logger.info("Get distance between 2 locations");
         double lat1 = Math.toRadians(loc1.latitude);
         double lon1 = Math.toRadians(loc1.longitude);
         double lat2 = Math.toRadians(loc2.latitude);
         double lon2 = Math.toRadians(loc2.longitude);
 
-        double angle = Math.acos(Math.sin(lat1) * Math.sin(lat2)
-                + Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2));
+        // rounding can push the cosine of two identical locations just above 1, out of the domain of acos
+        double angle = Math.acos(Math.min(1, Math.sin(lat1) * Math.sin(lat2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2)));
         double nauticalMiles = 60 * Math.toDegrees(angle);
         return STATUTE_MILES_PER_NAUTICAL_MILE * nauticalMiles;
     }
 
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    private static ExecutorService newDownstreamExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DOWNSTREAM_THREADS, DOWNSTREAM_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 }
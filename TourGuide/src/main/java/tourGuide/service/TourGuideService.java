@@ -4,12 +4,16 @@ import tourGuide.beans.AttractionBean;
 import tourGuide.beans.LocationBean;
 import tourGuide.beans.VisitedLocationBean;
 import tourGuide.exceptions.UserNotFoundException;
+import tourGuide.model.Dto.AttractionOccupancyDto;
+import tourGuide.model.Dto.CurrentLocationsDto;
 import tourGuide.model.Dto.NearbyAttractionListByUserDto;
+import tourGuide.model.Dto.UserLocationsPageDto;
 import tourGuide.model.user.User;
 import tourGuide.model.user.UserReward;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 public interface TourGuideService {
@@ -24,6 +28,22 @@ public interface TourGuideService {
      */
     VisitedLocationBean getUserLocation(User user) throws ExecutionException, InterruptedException;
 
+    /**
+     * Get a visitedLocation by user without waiting for GpsUtil
+     *
+     * @param user the user whose location is sought
+     * @return the future of the actual user location if its list of visitedLocation is empty otherwise of its last visitedLocation
+     */
+    CompletableFuture<VisitedLocationBean> getUserLocationAsync(User user);
+
+    /**
+     * Check if a location is older than tour.guide.location.max.age.ms
+     *
+     * @param visitedLocation a user location
+     * @return true if the location is too old to be served as the actual user location, or has no time
+     */
+    boolean isStale(VisitedLocationBean visitedLocation);
+
     /**
      * Get a user by userName
      *
@@ -46,6 +66,14 @@ public interface TourGuideService {
      */
     NearbyAttractionListByUserDto nearbyAttractionListByUserDto(VisitedLocationBean visitedLocationBean);
 
+    /**
+     * Get the closest five tourist attractions to the user without waiting for GpsUtil and RewardCentral
+     *
+     * @param visitedLocationBean a user location
+     * @return the future of the closest five tourist attractions to the user sorted in ascending order with all user and attractions information
+     */
+    CompletableFuture<NearbyAttractionListByUserDto> nearbyAttractionListByUserDtoAsync(VisitedLocationBean visitedLocationBean);
+
     /**
      * Get a list of every user's most recent location
      *
@@ -53,6 +81,57 @@ public interface TourGuideService {
      */
     Map<String, LocationBean> getAllCurrentLocations();
 
+    /**
+     * Get the most recent location of every user whose location was recorded after a given update sequence
+     *
+     * @param since the cursor of the previous call, 0 for every user's location, which a cursor issued before a restart also gets
+     * @return the updated locations with for each user key = userId and value = {latitude, longitude}
+     * and a cursor to send back as since on the next call
+     */
+    CurrentLocationsDto getCurrentLocationsSince(long since);
+
+    /**
+     * Get a page of the users whose most recent location is inside a bounding box, ordered by user id
+     *
+     * @param minLatitude  the south limit of the bounding box
+     * @param maxLatitude  the north limit of the bounding box
+     * @param minLongitude the west limit of the bounding box, greater than the east limit when the box crosses the antimeridian
+     * @param maxLongitude the east limit of the bounding box
+     * @param page         the index of the page, starting at 0
+     * @param size         the number of users per page
+     * @return the users of the page with their location and the number of users found
+     */
+    UserLocationsPageDto getUsersWithinBoundingBox(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude, int page, int size);
+
+    /**
+     * Get a page of the users whose most recent location is within a distance of a point, closest first
+     *
+     * @param latitude    the latitude of the point
+     * @param longitude   the longitude of the point
+     * @param radiusMiles the distance in miles
+     * @param page        the index of the page, starting at 0
+     * @param size        the number of users per page
+     * @return the users of the page with their location and distance and the number of users found
+     */
+    UserLocationsPageDto getUsersWithinRadius(double latitude, double longitude, double radiusMiles, int page, int size);
+
+    /**
+     * Get a page of the users whose most recent location is near an attraction, closest first
+     *
+     * @param attractionName the name of the attraction
+     * @param page           the index of the page, starting at 0
+     * @param size           the number of users per page
+     * @return the users of the page with their location and distance to the attraction and the number of users near it
+     */
+    UserLocationsPageDto getUsersNearAttraction(String attractionName, int page, int size);
+
+    /**
+     * Get the number of users whose most recent location is near each attraction, most crowded first
+     *
+     * @return the occupancy of every attraction
+     */
+    List<AttractionOccupancyDto> getAttractionOccupancy();
+
     /**
      * Check if user exist
      *
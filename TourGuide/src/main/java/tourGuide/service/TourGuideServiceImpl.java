@@ -1,7 +1,12 @@
 package tourGuide.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import tourGuide.beans.AttractionBean;
 import tourGuide.beans.LocationBean;
@@ -9,32 +14,110 @@ import tourGuide.beans.VisitedLocationBean;
 import tourGuide.exceptions.AttractionNotFoundException;
 import tourGuide.exceptions.UserNotFoundException;
 import tourGuide.helper.InternalTestHelper;
+import tourGuide.index.AttractionOccupancyIndex;
+import tourGuide.index.LocationUpdateIndex;
+import tourGuide.index.UserLocationGridIndex;
+import tourGuide.ingestion.LocationIngestionPipeline;
+import tourGuide.jfr.LocationFetchEvent;
+import tourGuide.model.Dto.AttractionOccupancyDto;
+import tourGuide.model.Dto.CurrentLocationsDto;
 import tourGuide.model.Dto.NearbyAttractionDto;
 import tourGuide.model.Dto.NearbyAttractionListByUserDto;
+import tourGuide.model.Dto.UserLocationDto;
+import tourGuide.model.Dto.UserLocationsPageDto;
 import tourGuide.model.user.User;
 import tourGuide.proxies.GpsUtilProxy;
+import tourGuide.proxies.HedgedGpsUtilProxy;
+import tourGuide.stream.UpdateEventBroadcaster;
 import tourGuide.tracker.Tracker;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 @Service
 public class TourGuideServiceImpl implements TourGuideService {
     private final Logger logger = LoggerFactory.getLogger(TourGuideServiceImpl.class);
+    private static final int DOWNSTREAM_THREADS = 1000;
+    // twice the tracking interval, a tracked user's location is refreshed before it gets stale
+    public static final long DEFAULT_LOCATION_MAX_AGE = 10 * 60 * 1000L;
+    private static final int NEARBY_ATTRACTIONS = 5;
+    // slightly under the 69.05 miles of a degree of great circle, so the box around a radius always contains it
+    private static final double MILES_PER_DEGREE = 69.0;
     private final GpsUtilProxy gpsUtil;
+    private final GpsUtilProxy interactiveGpsUtil;
     private final RewardsServiceImpl rewardsServiceImpl;
+    private final LocationUpdateIndex locationUpdateIndex;
+    private final UserLocationGridIndex userLocationGridIndex;
+    private final AttractionOccupancyIndex attractionOccupancyIndex;
+    private final UpdateEventBroadcaster updateEventBroadcaster;
+    private final LocationIngestionPipeline ingestionPipeline;
+    // the track in flight of each user, joined by the concurrent callers instead of fetching the same location again
+    private final Map<UUID, CompletableFuture<VisitedLocationBean>> inFlightTracks = new ConcurrentHashMap<>();
+    private final Counter tracksStarted;
+    private final Counter tracksDeduplicated;
+    private final Counter staleTracks;
+    private final long locationMaxAge;
+    private final Counter freshLocationsServed;
+    private final Counter staleLocationsServed;
+    // blocked on the proxies' adaptive limiters, which set the concurrency actually sent downstream
+    private final ExecutorService executorService = newDownstreamExecutor();
     public final Tracker tracker;
     public boolean testMode = true;
 
     public TourGuideServiceImpl(GpsUtilProxy gpsUtil, RewardsServiceImpl rewardsServiceImpl) {
+        this(gpsUtil, new HedgedGpsUtilProxy(gpsUtil), rewardsServiceImpl, new LocationUpdateIndex(), new UserLocationGridIndex(),
+                new AttractionOccupancyIndex(), new UpdateEventBroadcaster(), new LocationIngestionPipeline(), DEFAULT_LOCATION_MAX_AGE,
+                new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public TourGuideServiceImpl(GpsUtilProxy gpsUtil, HedgedGpsUtilProxy interactiveGpsUtil, RewardsServiceImpl rewardsServiceImpl,
+                                LocationUpdateIndex locationUpdateIndex, UserLocationGridIndex userLocationGridIndex,
+                                AttractionOccupancyIndex attractionOccupancyIndex, UpdateEventBroadcaster updateEventBroadcaster,
+                                LocationIngestionPipeline ingestionPipeline,
+                                @Value("${tour.guide.location.max.age.ms:" + DEFAULT_LOCATION_MAX_AGE + "}") long locationMaxAge,
+                                MeterRegistry meterRegistry) {
         this.gpsUtil = gpsUtil;
+        this.interactiveGpsUtil = interactiveGpsUtil;
         this.rewardsServiceImpl = rewardsServiceImpl;
+        this.locationUpdateIndex = locationUpdateIndex;
+        this.userLocationGridIndex = userLocationGridIndex;
+        this.attractionOccupancyIndex = attractionOccupancyIndex;
+        this.updateEventBroadcaster = updateEventBroadcaster;
+        this.ingestionPipeline = ingestionPipeline;
+        this.tracksStarted = Counter.builder("tour.guide.track.location.started")
+                .description("Location tracks sent to GpsUtil")
+                .register(meterRegistry);
+        this.tracksDeduplicated = Counter.builder("tour.guide.track.location.deduplicated")
+                .description("Location tracks joining the track in flight of the same user")
+                .register(meterRegistry);
+        this.staleTracks = Counter.builder("tour.guide.track.location.stale")
+                .description("Location tracks answered with the last known location, GpsUtil being unavailable")
+                .register(meterRegistry);
+        this.locationMaxAge = locationMaxAge;
+        this.freshLocationsServed = Counter.builder("tour.guide.location.served")
+                .description("Known locations served to the users")
+                .tag("freshness", "fresh")
+                .register(meterRegistry);
+        this.staleLocationsServed = Counter.builder("tour.guide.location.served")
+                .description("Known locations served to the users")
+                .tag("freshness", "stale")
+                .register(meterRegistry);
+        ingestionPipeline.start(
+                event -> event.getUser().addToVisitedLocations(event.getVisitedLocation()),
+                event -> event.setNearbyAttractions(updateLocationIndexes(event.getUser(), event.getVisitedLocation())),
+                event -> rewardNearbyAttractions(event.getUser(), event.getVisitedLocation(), event.getNearbyAttractions()),
+                event -> updateEventBroadcaster.publishLocation(event.getUser(), event.getVisitedLocation()));
 
         if (testMode) {
             logger.info("TestMode enabled");
@@ -56,11 +139,45 @@ public class TourGuideServiceImpl implements TourGuideService {
      */
     @Override
     public VisitedLocationBean getUserLocation(User user) throws ExecutionException, InterruptedException {
+        return getUserLocationAsync(user).get();
+    }
+
+    /**
+     * Get a visitedLocation by user without waiting for GpsUtil.
+     * A last visitedLocation older than tour.guide.location.max.age.ms is still served, its refresh being tracked in the background,
+     * so GpsUtil is only waited for when the user has no location at all.
+     *
+     * @param user the user whose location is sought
+     * @return the future of the actual user location if its list of visitedLocation is empty otherwise of its last visitedLocation
+     */
+    @Override
+    public CompletableFuture<VisitedLocationBean> getUserLocationAsync(User user) {
         logger.info("Get location for user : {}", user.getUserName());
         if (!isExistingUser(user)) throw new UserNotFoundException("No user found with this username");
-        return (user.getVisitedLocations().size() > 0) ?
-                user.getLastVisitedLocation() :
-                trackUserLocation(user).get();
+        if (user.getVisitedLocations().isEmpty()) return trackUserLocation(user, interactiveGpsUtil);
+        VisitedLocationBean lastVisitedLocation = user.getLastVisitedLocation();
+        if (isStale(lastVisitedLocation)) {
+            staleLocationsServed.increment();
+            // joins the track in flight if any, the refreshed location is served from the next call
+            trackUserLocation(user, gpsUtil).whenComplete((visitedLocationBean, error) -> {
+                if (error != null) logger.error("Background location refresh failed for user name : {} : {}", user.getUserName(), error.getMessage());
+            });
+        } else {
+            freshLocationsServed.increment();
+        }
+        return CompletableFuture.completedFuture(lastVisitedLocation);
+    }
+
+    /**
+     * Check if a location is older than tour.guide.location.max.age.ms
+     *
+     * @param visitedLocation a user location
+     * @return true if the location is too old to be served as the actual user location, or has no time
+     */
+    @Override
+    public boolean isStale(VisitedLocationBean visitedLocation) {
+        Date timeVisited = visitedLocation.getTimeVisited();
+        return timeVisited == null || System.currentTimeMillis() - timeVisited.getTime() > locationMaxAge;
     }
 
     /**
@@ -99,20 +216,67 @@ public class TourGuideServiceImpl implements TourGuideService {
     }
 
     /**
-     * Track user location, updates its visitedLocation list with the new location and calculates its rewords
+     * Track user location, the new location is published to the ingestion pipeline which records it and calculates its rewards.
+     * A call made while the user's location is already being tracked joins that track instead of starting another one.
+     * While GpsUtil is unavailable the track is answered with the last known location, counted as a stale track.
      *
      * @param user the user whose visitedLocation is sought
-     * @return a completableFuture of visitedLocation
+     * @return a completableFuture of visitedLocation, completed once the location is in the user's history and the indexes
      */
     public CompletableFuture<VisitedLocationBean> trackUserLocation(User user) {
+        return trackUserLocation(user, gpsUtil);
+    }
+
+    private CompletableFuture<VisitedLocationBean> trackUserLocation(User user, GpsUtilProxy gpsUtilProxy) {
         logger.info("Track location for user name : {}", user.getUserName());
-        ExecutorService executorService = Executors.newFixedThreadPool(1000);
-        return CompletableFuture.supplyAsync(() -> gpsUtil.getUserLocation(user.getUserId()), executorService)
-                .thenApply(visitedLocationBean -> {
-                    user.addToVisitedLocations(visitedLocationBean);
-                    rewardsServiceImpl.calculateRewards(user);
-                    return visitedLocationBean;
+        CompletableFuture<VisitedLocationBean> track = new CompletableFuture<>();
+        CompletableFuture<VisitedLocationBean> inFlightTrack = inFlightTracks.putIfAbsent(user.getUserId(), track);
+        if (inFlightTrack != null) {
+            tracksDeduplicated.increment();
+            // a dependent future, a caller completing or cancelling its own can't affect the other callers
+            return inFlightTrack.thenApply(visitedLocationBean -> visitedLocationBean);
+        }
+        tracksStarted.increment();
+        CompletableFuture.supplyAsync(() -> fetchUserLocation(user, gpsUtilProxy), executorService)
+                .thenCompose(visitedLocationBean -> {
+                    // GpsUtil unavailable, its proxy served the last known location which is already recorded
+                    if (isLastKnownLocation(user, visitedLocationBean)) {
+                        staleTracks.increment();
+                        logger.warn("Location track of user name : {} answered with its last known location", user.getUserName());
+                        return CompletableFuture.completedFuture(visitedLocationBean);
+                    }
+                    return ingestionPipeline.publish(user, visitedLocationBean);
+                })
+                .whenComplete((visitedLocationBean, error) -> {
+                    // removed first, a call made once the track is answered starts a new one
+                    inFlightTracks.remove(user.getUserId(), track);
+                    if (error != null) {
+                        track.completeExceptionally(error);
+                    } else {
+                        track.complete(visitedLocationBean);
+                    }
                 });
+        return track;
+    }
+
+    private VisitedLocationBean fetchUserLocation(User user, GpsUtilProxy gpsUtilProxy) {
+        LocationFetchEvent fetchEvent = new LocationFetchEvent();
+        fetchEvent.begin();
+        try {
+            VisitedLocationBean visitedLocationBean = gpsUtilProxy.getUserLocation(user.getUserId());
+            fetchEvent.succeeded = true;
+            fetchEvent.stale = isLastKnownLocation(user, visitedLocationBean);
+            return visitedLocationBean;
+        } finally {
+            if (fetchEvent.shouldCommit()) {
+                fetchEvent.userName = user.getUserName();
+                fetchEvent.commit();
+            }
+        }
+    }
+
+    private boolean isLastKnownLocation(User user, VisitedLocationBean visitedLocationBean) {
+        return visitedLocationBean == locationUpdateIndex.getLatest(user.getUserId());
     }
 
     /**
@@ -156,12 +320,26 @@ public class TourGuideServiceImpl implements TourGuideService {
      */
     public List<AttractionBean> getNearByAttractions(VisitedLocationBean visitedLocation) {
         logger.info("Get near attractions for visited location : latitude {}, longitude {}", visitedLocation.getLocationBean().getLatitude(), visitedLocation.getLocationBean().getLongitude());
-        List<AttractionBean> nearbyAttractions = new ArrayList<>();
-        List<AttractionBean> attractionBeanList = gpsUtil.getAttractions();
-        attractionBeanList.stream()
-                .sorted(Comparator.comparingDouble(attractionBean -> rewardsServiceImpl.getDistance(new LocationBean(attractionBean.getLatitude(), attractionBean.getLatitude()), visitedLocation.locationBean)))
-                .limit(5)
-                .forEach(nearbyAttractions::add);
+        // the closest attractions found so far in ascending distance, kept by insertion rather than sorting the whole catalog
+        AttractionBean[] closestAttractions = new AttractionBean[NEARBY_ATTRACTIONS];
+        double[] closestDistances = new double[NEARBY_ATTRACTIONS];
+        int found = 0;
+        for (AttractionBean attractionBean : gpsUtil.getAttractions()) {
+            double distance = rewardsServiceImpl.getDistance(attractionBean, visitedLocation.locationBean);
+            if (found == NEARBY_ATTRACTIONS && distance >= closestDistances[found - 1]) continue;
+            int index = found < NEARBY_ATTRACTIONS ? found++ : found - 1;
+            while (index > 0 && closestDistances[index - 1] > distance) {
+                closestAttractions[index] = closestAttractions[index - 1];
+                closestDistances[index] = closestDistances[index - 1];
+                index--;
+            }
+            closestAttractions[index] = attractionBean;
+            closestDistances[index] = distance;
+        }
+        List<AttractionBean> nearbyAttractions = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            nearbyAttractions.add(closestAttractions[i]);
+        }
         return nearbyAttractions;
     }
 
@@ -180,17 +358,49 @@ public class TourGuideServiceImpl implements TourGuideService {
     public NearbyAttractionListByUserDto nearbyAttractionListByUserDto(VisitedLocationBean visitedLocationBean) {
         logger.info("Get near attractions with detail for visited location : latitude {}, longitude {}", visitedLocationBean.getLocationBean().getLatitude(), visitedLocationBean.getLocationBean().getLongitude());
         List<AttractionBean> nearbyAttractions = getNearByAttractions(visitedLocationBean);
-        List<NearbyAttractionDto> nearbyAttractionDtos = new ArrayList<>();
         User user = getUserById(visitedLocationBean.userId);
-        NearbyAttractionDto nearbyAttractionDto;
+        List<Integer> rewardPoints = new ArrayList<>(nearbyAttractions.size());
         for (AttractionBean attractionBean : nearbyAttractions) {
-            nearbyAttractionDto = NearbyAttractionDto.builder()
+            rewardPoints.add(rewardsServiceImpl.getRewardPoints(attractionBean, user));
+        }
+        return nearbyAttractionListByUserDto(visitedLocationBean, nearbyAttractions, rewardPoints);
+    }
+
+    /**
+     * Get the closest five tourist attractions to the user without waiting for GpsUtil and RewardCentral,
+     * the reward points of the five attractions being looked up side by side
+     *
+     * @param visitedLocationBean a user location
+     * @return the future of the closest five tourist attractions to the user sorted in ascending order with all user and attractions information
+     */
+    @Override
+    public CompletableFuture<NearbyAttractionListByUserDto> nearbyAttractionListByUserDtoAsync(VisitedLocationBean visitedLocationBean) {
+        logger.info("Get near attractions with detail asynchronously for visited location : latitude {}, longitude {}", visitedLocationBean.getLocationBean().getLatitude(), visitedLocationBean.getLocationBean().getLongitude());
+        User user = getUserById(visitedLocationBean.userId);
+        // the attractions may be refreshed from GpsUtil
+        return CompletableFuture.supplyAsync(() -> getNearByAttractions(visitedLocationBean), executorService)
+                .thenCompose(nearbyAttractions -> {
+                    List<CompletableFuture<Integer>> rewardPoints = new ArrayList<>(nearbyAttractions.size());
+                    for (AttractionBean attractionBean : nearbyAttractions) {
+                        rewardPoints.add(rewardsServiceImpl.getRewardPointsAsync(attractionBean, user));
+                    }
+                    return CompletableFuture.allOf(rewardPoints.toArray(new CompletableFuture<?>[0]))
+                            .thenApply(allRewarded -> nearbyAttractionListByUserDto(visitedLocationBean, nearbyAttractions,
+                                    rewardPoints.stream().map(CompletableFuture::join).collect(Collectors.toList())));
+                });
+    }
+
+    private NearbyAttractionListByUserDto nearbyAttractionListByUserDto(VisitedLocationBean visitedLocationBean,
+                                                                        List<AttractionBean> nearbyAttractions, List<Integer> rewardPoints) {
+        List<NearbyAttractionDto> nearbyAttractionDtos = new ArrayList<>(nearbyAttractions.size());
+        for (int i = 0; i < nearbyAttractions.size(); i++) {
+            AttractionBean attractionBean = nearbyAttractions.get(i);
+            nearbyAttractionDtos.add(NearbyAttractionDto.builder()
                     .attractionNameDto(attractionBean.getAttractionName())
                     .attractionLocation("Latitude : " + attractionBean.getLatitude() + ", Longitude : " + attractionBean.longitude)
-                    .distanceDto(rewardsServiceImpl.getDistance(new LocationBean(attractionBean.getLatitude(), attractionBean.getLatitude()), visitedLocationBean.locationBean))
-                    .rewardPoints(rewardsServiceImpl.getRewardPoints(attractionBean, user))
-                    .build();
-            nearbyAttractionDtos.add(nearbyAttractionDto);
+                    .distanceDto(rewardsServiceImpl.getDistance(attractionBean, visitedLocationBean.locationBean))
+                    .rewardPoints(rewardPoints.get(i))
+                    .build());
         }
         return NearbyAttractionListByUserDto.builder()
                 .userLocation("Latitude : " + visitedLocationBean.getLocationBean().getLatitude() + ", Longitude : " + visitedLocationBean.getLocationBean().getLongitude())
@@ -218,6 +428,175 @@ public class TourGuideServiceImpl implements TourGuideService {
         return allLocation;
     }
 
+    /**
+     * Get the most recent location of every user whose location was recorded after a given update sequence
+     *
+     * @param since the cursor of the previous call, 0 for every user's location, which a cursor issued before a restart also gets
+     * @return the updated locations with for each user key = userId and value = {latitude, longitude}
+     * and a cursor to send back as since on the next call
+     */
+    @Override
+    public CurrentLocationsDto getCurrentLocationsSince(long since) {
+        logger.info("Get current locations updated since : {}", since);
+        // read first, the updates indexed while walking are left for the next call
+        long until = locationUpdateIndex.getLastSequence();
+        // a cursor from before a restart, or not a cursor at all, gets every user's location and a cursor of this run
+        long sequence = locationUpdateIndex.sequenceOf(since);
+        Map<String, LocationBean> updatedLocations = new LinkedHashMap<>();
+        for (VisitedLocationBean visitedLocation : locationUpdateIndex.getUpdatedSince(sequence, until)) {
+            updatedLocations.put(visitedLocation.getUserId().toString(), visitedLocation.getLocationBean());
+        }
+        return CurrentLocationsDto.builder()
+                .cursor(locationUpdateIndex.cursorOf(until))
+                .currentLocations(updatedLocations)
+                .build();
+    }
+
+    /**
+     * Get a page of the users whose most recent location is inside a bounding box, ordered by user id
+     *
+     * @param minLatitude  the south limit of the bounding box
+     * @param maxLatitude  the north limit of the bounding box
+     * @param minLongitude the west limit of the bounding box, greater than the east limit when the box crosses the antimeridian
+     * @param maxLongitude the east limit of the bounding box
+     * @param page         the index of the page, starting at 0
+     * @param size         the number of users per page
+     * @return the users of the page with their location and the number of users found
+     */
+    @Override
+    public UserLocationsPageDto getUsersWithinBoundingBox(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude, int page, int size) {
+        logger.info("Get users within latitudes {} to {} and longitudes {} to {}", minLatitude, maxLatitude, minLongitude, maxLongitude);
+        List<UserLocationDto> userLocations = new ArrayList<>();
+        for (VisitedLocationBean visitedLocation : userLocationGridIndex.getWithin(minLatitude, maxLatitude, minLongitude, maxLongitude)) {
+            userLocations.add(UserLocationDto.builder()
+                    .userId(visitedLocation.getUserId().toString())
+                    .location(visitedLocation.getLocationBean())
+                    .build());
+        }
+        userLocations.sort(Comparator.comparing(UserLocationDto::getUserId));
+        return userLocationsPage(userLocations, page, size);
+    }
+
+    /**
+     * Get a page of the users whose most recent location is within a distance of a point, closest first
+     *
+     * @param latitude    the latitude of the point
+     * @param longitude   the longitude of the point
+     * @param radiusMiles the distance in miles
+     * @param page        the index of the page, starting at 0
+     * @param size        the number of users per page
+     * @return the users of the page with their location and distance and the number of users found
+     */
+    @Override
+    public UserLocationsPageDto getUsersWithinRadius(double latitude, double longitude, double radiusMiles, int page, int size) {
+        logger.info("Get users within {} miles of latitude {}, longitude {}", radiusMiles, latitude, longitude);
+        LocationBean center = new LocationBean(latitude, longitude);
+        double latitudeDelta = radiusMiles / MILES_PER_DEGREE;
+        double minLatitude = Math.max(-90, latitude - latitudeDelta);
+        double maxLatitude = Math.min(90, latitude + latitudeDelta);
+        // a degree of longitude shrinks with the cosine of the latitude, widest at the limit closest to a pole
+        double longitudeDelta = minLatitude == -90 || maxLatitude == 90 ? 180 :
+                latitudeDelta / Math.cos(Math.toRadians(Math.max(Math.abs(minLatitude), Math.abs(maxLatitude))));
+        double minLongitude = -180;
+        double maxLongitude = 180;
+        if (longitudeDelta < 180) {
+            minLongitude = longitude - longitudeDelta < -180 ? longitude - longitudeDelta + 360 : longitude - longitudeDelta;
+            maxLongitude = longitude + longitudeDelta > 180 ? longitude + longitudeDelta - 360 : longitude + longitudeDelta;
+        }
+        List<UserLocationDto> userLocations = new ArrayList<>();
+        for (VisitedLocationBean visitedLocation : userLocationGridIndex.getWithin(minLatitude, maxLatitude, minLongitude, maxLongitude)) {
+            double distance = rewardsServiceImpl.getDistance(center, visitedLocation.getLocationBean());
+            if (distance <= radiusMiles) {
+                userLocations.add(UserLocationDto.builder()
+                        .userId(visitedLocation.getUserId().toString())
+                        .location(visitedLocation.getLocationBean())
+                        .distance(distance)
+                        .build());
+            }
+        }
+        userLocations.sort(Comparator.comparing(UserLocationDto::getDistance).thenComparing(UserLocationDto::getUserId));
+        return userLocationsPage(userLocations, page, size);
+    }
+
+    /**
+     * Get a page of the users whose most recent location is near an attraction, closest first
+     *
+     * @param attractionName the name of the attraction
+     * @param page           the index of the page, starting at 0
+     * @param size           the number of users per page
+     * @return the users of the page with their location and distance to the attraction and the number of users near it
+     */
+    @Override
+    public UserLocationsPageDto getUsersNearAttraction(String attractionName, int page, int size) {
+        logger.info("Get users near attraction : {}", attractionName);
+        // an unknown name is answered from the index, the tracker keeps the catalog up to date
+        if (attractionOccupancyIndex.getAttractions().isEmpty()) refreshAttractionZones();
+        Collection<VisitedLocationBean> nearbyLocations = attractionOccupancyIndex.getUsersNear(attractionName);
+        AttractionBean attraction = attractionOccupancyIndex.getAttractions().stream()
+                .filter(attractionBean -> attractionBean.getAttractionName().equals(attractionName))
+                .findFirst()
+                .orElse(null);
+        if (nearbyLocations == null || attraction == null) throw new AttractionNotFoundException("Attraction : " + attractionName + " not found");
+        List<UserLocationDto> userLocations = new ArrayList<>(nearbyLocations.size());
+        for (VisitedLocationBean visitedLocation : nearbyLocations) {
+            userLocations.add(UserLocationDto.builder()
+                    .userId(visitedLocation.getUserId().toString())
+                    .location(visitedLocation.getLocationBean())
+                    .distance(rewardsServiceImpl.getDistance(attraction, visitedLocation.getLocationBean()))
+                    .build());
+        }
+        userLocations.sort(Comparator.comparing(UserLocationDto::getDistance).thenComparing(UserLocationDto::getUserId));
+        return userLocationsPage(userLocations, page, size);
+    }
+
+    /**
+     * Get the number of users whose most recent location is near each attraction, most crowded first
+     *
+     * @return the occupancy of every attraction
+     */
+    @Override
+    public List<AttractionOccupancyDto> getAttractionOccupancy() {
+        logger.info("Get attraction occupancy");
+        if (attractionOccupancyIndex.getAttractions().isEmpty()) refreshAttractionZones();
+        Map<String, Integer> occupancy = attractionOccupancyIndex.getOccupancy();
+        List<AttractionOccupancyDto> attractionOccupancy = new ArrayList<>(occupancy.size());
+        for (AttractionBean attraction : attractionOccupancyIndex.getAttractions()) {
+            attractionOccupancy.add(AttractionOccupancyDto.builder()
+                    .attractionName(attraction.getAttractionName())
+                    .city(attraction.getCity())
+                    .state(attraction.getState())
+                    .nearbyUsers(occupancy.getOrDefault(attraction.getAttractionName(), 0))
+                    .build());
+        }
+        attractionOccupancy.sort(Comparator.comparingInt(AttractionOccupancyDto::getNearbyUsers).reversed());
+        return attractionOccupancy;
+    }
+
+    /**
+     * Refresh the attractions of the occupancy index from GpsUtil.
+     * When the catalog changed every user is assigned again to the zones of its most recent location,
+     * and its whole history is evaluated once for rewards since the zones it went through changed.
+     */
+    public void refreshAttractionZones() {
+        List<AttractionBean> attractions;
+        try {
+            attractions = gpsUtil.getAttractions();
+        } catch (RuntimeException e) {
+            logger.error("Attractions refresh failed, the occupancy keeps the previous catalog : " + e.getMessage());
+            return;
+        }
+        if (attractions == null) return;
+        if (attractionOccupancyIndex.replaceAttractions(attractions, rewardsServiceImpl.getProximityBuffer())) {
+            logger.debug("Assigning users to the zones of {} attractions", attractions.size());
+            for (User user : getAllUsers()) {
+                VisitedLocationBean latestLocation = locationUpdateIndex.getLatest(user.getUserId());
+                if (latestLocation != null) assignAttractionZones(user.getUserId(), latestLocation);
+                // the catalog just fetched is scanned rather than fetched again for every user
+                rewardsServiceImpl.calculateRewards(user, user.getVisitedLocations().toArray(new VisitedLocationBean[0]), attractions);
+            }
+        }
+    }
+
     /**
      * Get an attraction by attraction name
      *
@@ -241,6 +620,48 @@ public class TourGuideServiceImpl implements TourGuideService {
         return attraction;
     }
 
+    private List<AttractionBean> assignAttractionZones(UUID userId, VisitedLocationBean visitedLocation) {
+        List<AttractionBean> zones = new ArrayList<>();
+        for (AttractionBean candidate : attractionOccupancyIndex.getCandidates(visitedLocation.getLocationBean())) {
+            if (rewardsServiceImpl.nearAttraction(visitedLocation, candidate)) zones.add(candidate);
+        }
+        attractionOccupancyIndex.assign(userId, visitedLocation, zones);
+        return zones;
+    }
+
+    private static UserLocationsPageDto userLocationsPage(List<UserLocationDto> userLocations, int page, int size) {
+        int from = (int) Math.min(userLocations.size(), (long) page * size);
+        int to = Math.min(userLocations.size(), from + size);
+        return UserLocationsPageDto.builder()
+                .page(page)
+                .size(size)
+                .totalUsers(userLocations.size())
+                .entries(new ArrayList<>(userLocations.subList(from, to)))
+                .build();
+    }
+
+    /**
+     * Add a location to the user's history and keep the location indexes up to date without going through the ingestion pipeline
+     *
+     * @param user            the user who visited the location
+     * @param visitedLocation the location to add
+     */
+    private void addToVisitedLocations(User user, VisitedLocationBean visitedLocation) {
+        user.addToVisitedLocations(visitedLocation);
+        rewardNearbyAttractions(user, visitedLocation, updateLocationIndexes(user, visitedLocation));
+    }
+
+    private List<AttractionBean> updateLocationIndexes(User user, VisitedLocationBean visitedLocation) {
+        locationUpdateIndex.update(user.getUserId(), visitedLocation);
+        userLocationGridIndex.update(user.getUserId(), visitedLocation);
+        return assignAttractionZones(user.getUserId(), visitedLocation);
+    }
+
+    private void rewardNearbyAttractions(User user, VisitedLocationBean visitedLocation, List<AttractionBean> nearbyAttractions) {
+        // the zones are the geofences of the rewards, arriving in one is what makes a reward possible
+        if (!nearbyAttractions.isEmpty()) rewardsServiceImpl.rewardNearbyAttractions(user, visitedLocation, nearbyAttractions);
+    }
+
     private void addShutDownHook() {
         Runtime.getRuntime().addShutdownHook(new Thread(tracker::stopTracking));
     }
@@ -265,13 +686,13 @@ public class TourGuideServiceImpl implements TourGuideService {
             internalUserMap.put(userName, user);
         });
         User userCustom = new User(UUID.randomUUID(), "userCustom", "000", "userCustom@tourGuide.com");
-        userCustom.addToVisitedLocations(new VisitedLocationBean(userCustom.getUserId(), new LocationBean(33.817595D, -117.922008D), getRandomTime()));
+        addToVisitedLocations(userCustom, new VisitedLocationBean(userCustom.getUserId(), new LocationBean(33.817595D, -117.922008D), getRandomTime()));
         internalUserMap.put("userCustom", userCustom);
         logger.debug("Created " + InternalTestHelper.getInternalUserNumber() + " internal test users.");
     }
 
     public void generateUserLocationHistory(User user) {
-        IntStream.range(0, 3).forEach(i -> user.addToVisitedLocations(new VisitedLocationBean(user.getUserId(), new LocationBean(generateRandomLatitude(), generateRandomLongitude()), getRandomTime())));
+        IntStream.range(0, 3).forEach(i -> addToVisitedLocations(user, new VisitedLocationBean(user.getUserId(), new LocationBean(generateRandomLatitude(), generateRandomLongitude()), getRandomTime())));
     }
 
     private double generateRandomLongitude() {
@@ -291,4 +712,9 @@ public class TourGuideServiceImpl implements TourGuideService {
         return Date.from(localDateTime.toInstant(ZoneOffset.UTC));
     }
 
+    private static ExecutorService newDownstreamExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DOWNSTREAM_THREADS, DOWNSTREAM_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 }
@@ -30,4 +30,11 @@ public interface TripPricerService {
      * @return updated user preferences
      */
     UserPreferences updateUserPreferences(User user, UserPreferences userPreferences);
+
+    /**
+     * Price the trip deals of a user ahead of its next request
+     *
+     * @param user the user whose trip deals are to be priced
+     */
+    void precomputeTripDeals(User user);
 }
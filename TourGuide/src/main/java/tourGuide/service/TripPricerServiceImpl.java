@@ -1,18 +1,32 @@
 package tourGuide.service;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import tourGuide.beans.AttractionBean;
 import tourGuide.exceptions.UserNotFoundException;
 import tourGuide.model.user.User;
 import tourGuide.model.user.UserPreferences;
-import tourGuide.model.user.UserReward;
 import tripPricer.Provider;
 import tripPricer.TripPricer;
 
+import javax.annotation.PreDestroy;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static tourGuide.service.TourGuideServiceImpl.tripPricerApiKey;
 
@@ -20,7 +34,48 @@ import static tourGuide.service.TourGuideServiceImpl.tripPricerApiKey;
 public class TripPricerServiceImpl implements TripPricerService {
     private final Logger logger = LoggerFactory.getLogger(TripPricerServiceImpl.class);
 
+    public static final long DEFAULT_CACHE_SIZE = 100_000;
+    public static final long DEFAULT_CACHE_TTL = 30 * 60 * 1000L;
+    public static final long DEFAULT_CACHE_REFRESH = 5 * 60 * 1000L;
+    private static final int REFRESH_THREADS = 4;
+
     private final TripPricer tripPricer = new TripPricer();
+    private final ExecutorService refreshExecutor = Executors.newFixedThreadPool(REFRESH_THREADS);
+    private final LoadingCache<TripDealsKey, TripDeals> tripDealsCache;
+    private final Map<UUID, TripDealsKey> tripDealsKeyByUser = new ConcurrentHashMap<>();
+    private final Counter precomputeHits;
+    private final Counter precomputeMisses;
+
+    public TripPricerServiceImpl() {
+        this(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL, DEFAULT_CACHE_REFRESH, new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param cacheSize     maximum number of provider lists kept
+     * @param cacheTtl      milliseconds after which a provider list is no longer served
+     * @param cacheRefresh  milliseconds after which a provider list read is served as is while it is priced again in the background
+     * @param meterRegistry the registry the cache and precompute metrics are bound to
+     */
+    @Autowired
+    public TripPricerServiceImpl(@Value("${tour.guide.trip.deals.cache.size:" + DEFAULT_CACHE_SIZE + "}") long cacheSize,
+                                 @Value("${tour.guide.trip.deals.cache.ttl.ms:" + DEFAULT_CACHE_TTL + "}") long cacheTtl,
+                                 @Value("${tour.guide.trip.deals.cache.refresh.ms:" + DEFAULT_CACHE_REFRESH + "}") long cacheRefresh,
+                                 MeterRegistry meterRegistry) {
+        this.tripDealsCache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl, TimeUnit.MILLISECONDS)
+                .refreshAfterWrite(cacheRefresh, TimeUnit.MILLISECONDS)
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(tripDealsKey -> new TripDeals(getPrice(tripDealsKey)));
+        CaffeineCacheMetrics.monitor(meterRegistry, tripDealsCache, "tripDeals");
+        this.precomputeHits = Counter.builder("tour.guide.trip.deals.precompute.hits")
+                .description("Trip deals requests served with deals priced by the precomputer, counted on the first read of each")
+                .register(meterRegistry);
+        this.precomputeMisses = Counter.builder("tour.guide.trip.deals.precompute.misses")
+                .description("Trip deals requests waiting for the deals to be priced")
+                .register(meterRegistry);
+    }
 
     /**
      * Get a list of provider with price offer by user.
@@ -28,6 +83,8 @@ public class TripPricerServiceImpl implements TripPricerService {
      * - a name
      * - a price
      * - an id
+     * The providers are cached by user, preferences and cumulative reward points: a new reward changes the key,
+     * so the deals priced before it are no longer served.
      *
      * @param user the user whose providers are sought
      * @param attractionBean the attraction whose deals are sought
@@ -36,11 +93,34 @@ public class TripPricerServiceImpl implements TripPricerService {
     @Override
     public List<Provider> getTripDeals(User user, AttractionBean attractionBean) {
         logger.info("Get trip deal");
-        int cumulativeRewardPoints = user.getUserRewards().stream().mapToInt(UserReward::getRewardPoints).sum();
-        List<Provider> providers = tripPricer.getPrice(tripPricerApiKey, user.getUserId(), user.getUserPreferences().getNumberOfAdults(),
-                user.getUserPreferences().getNumberOfChildren(), user.getUserPreferences().getTripDuration(), cumulativeRewardPoints);
-        user.setTripDeals(providers);
-        return providers;
+        TripDealsKey tripDealsKey = getTripDealsKey(user);
+        TripDeals tripDeals = tripDealsCache.getIfPresent(tripDealsKey);
+        if (tripDeals != null) {
+            // the later reads of the same deals are plain cache hits, counted by the cache metrics
+            if (tripDeals.precomputedUnread.compareAndSet(true, false)) precomputeHits.increment();
+        } else {
+            precomputeMisses.increment();
+            tripDeals = tripDealsCache.get(tripDealsKey);
+        }
+        user.setTripDeals(tripDeals.providers);
+        return tripDeals.providers;
+    }
+
+    /**
+     * Price the trip deals of a user ahead of its next request
+     *
+     * @param user the user whose trip deals are to be priced
+     */
+    @Override
+    public void precomputeTripDeals(User user) {
+        logger.debug("Precompute trip deals for user name : {}", user.getUserName());
+        // only the deals priced here are marked, not those a request already loaded
+        TripDeals tripDeals = tripDealsCache.get(getTripDealsKey(user), tripDealsKey -> {
+            TripDeals precomputed = new TripDeals(getPrice(tripDealsKey));
+            precomputed.precomputedUnread.set(true);
+            return precomputed;
+        });
+        user.setTripDeals(tripDeals.providers);
     }
 
     /**
@@ -54,7 +134,58 @@ public class TripPricerServiceImpl implements TripPricerService {
     public UserPreferences updateUserPreferences(User user, UserPreferences userPreferences) {
         logger.info("Update user preferences");
         user.setUserPreferences(userPreferences);
+        invalidateTripDeals(user);
         return user.getUserPreferences();
     }
 
+    /**
+     * Drop the cached trip deals of a user
+     *
+     * @param user the user whose trip deals are to be priced again
+     */
+    public void invalidateTripDeals(User user) {
+        TripDealsKey tripDealsKey = tripDealsKeyByUser.remove(user.getUserId());
+        if (tripDealsKey != null) tripDealsCache.invalidate(tripDealsKey);
+    }
+
+    private TripDealsKey getTripDealsKey(User user) {
+        int cumulativeRewardPoints = user.getRewardPointsTotal();
+        UserPreferences userPreferences = user.getUserPreferences();
+        TripDealsKey tripDealsKey = new TripDealsKey(user.getUserId(), userPreferences.getNumberOfAdults(),
+                userPreferences.getNumberOfChildren(), userPreferences.getTripDuration(), cumulativeRewardPoints);
+        TripDealsKey previousKey = tripDealsKeyByUser.put(user.getUserId(), tripDealsKey);
+        if (previousKey != null && !previousKey.equals(tripDealsKey)) tripDealsCache.invalidate(previousKey);
+        return tripDealsKey;
+    }
+
+    private List<Provider> getPrice(TripDealsKey tripDealsKey) {
+        logger.debug("Price trip deals for user id : {}", tripDealsKey.getUserId());
+        return tripPricer.getPrice(tripPricerApiKey, tripDealsKey.getUserId(), tripDealsKey.getNumberOfAdults(),
+                tripDealsKey.getNumberOfChildren(), tripDealsKey.getTripDuration(), tripDealsKey.getCumulativeRewardPoints());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private static final class TripDeals {
+        private final List<Provider> providers;
+        // set when the precomputer priced the deals, until a request first reads them
+        private final AtomicBoolean precomputedUnread = new AtomicBoolean();
+
+        private TripDeals(List<Provider> providers) {
+            this.providers = providers;
+        }
+    }
+
+    @lombok.Value
+    private static class TripDealsKey {
+        UUID userId;
+        int numberOfAdults;
+        int numberOfChildren;
+        int tripDuration;
+        int cumulativeRewardPoints;
+    }
+
 }
@@ -0,0 +1,20 @@
+package tourGuide.stream;
+
+/**
+ * What a subscriber buffer does with a new event when it is full
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the oldest buffered event to make room for the new one
+     */
+    DROP_OLDEST,
+    /**
+     * Discard the new event
+     */
+    DROP_NEWEST,
+    /**
+     * Replace a buffered event with the same key (e.g. an older location of the same user) by the new one,
+     * and discard the oldest buffered event only when no such event is buffered
+     */
+    COALESCE
+}
@@ -0,0 +1,93 @@
+package tourGuide.stream;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The SSE connection of a subscriber.
+ * A servlet write blocks on the client's socket, so each event is written by a sender thread rather than by the shared
+ * delivery threads, one at a time: the demand is 0 while a write is in flight and the next events wait in the
+ * subscriber's bounded buffer under its overflow policy. A write lasting longer than the send timeout marks the client stalled.
+ */
+class SseUpdateSink implements UpdateSink {
+
+    /**
+     * The blocking write of an event to the client
+     */
+    interface Writer {
+        void write(UpdateEvent event) throws IOException;
+    }
+
+    private final Writer writer;
+    private final Consumer<Throwable> failure;
+    private final Executor sendExecutor;
+    private final long sendTimeoutNanos;
+    private volatile boolean sending;
+    private volatile long sendStartedAt;
+    private volatile Runnable onSent = () -> { };
+    private volatile Runnable onFailed = () -> { };
+
+    /**
+     * @param writer        the blocking write of an event
+     * @param failure       closes the connection after a failure
+     * @param sendExecutor  the executor running the writes
+     * @param sendTimeoutMs the time after which a write in flight marks the client stalled
+     */
+    SseUpdateSink(Writer writer, Consumer<Throwable> failure, Executor sendExecutor, long sendTimeoutMs) {
+        this.writer = writer;
+        this.failure = failure;
+        this.sendExecutor = sendExecutor;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+    }
+
+    /**
+     * Set what to do once a write completed and once a write failed, usually resuming or closing the subscriber
+     *
+     * @param onSent   run after each successful write
+     * @param onFailed run after a failed write
+     */
+    void listen(Runnable onSent, Runnable onFailed) {
+        this.onSent = onSent;
+        this.onFailed = onFailed;
+    }
+
+    @Override
+    public long demand() {
+        return sending ? 0 : 1;
+    }
+
+    @Override
+    public void send(UpdateEvent event) throws IOException {
+        sendStartedAt = System.nanoTime();
+        sending = true;
+        try {
+            sendExecutor.execute(() -> {
+                try {
+                    writer.write(event);
+                    sending = false;
+                    onSent.run();
+                } catch (IOException | RuntimeException e) {
+                    sending = false;
+                    onFailed.run();
+                    fail(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            sending = false;
+            throw new IOException("No sender available for the update stream", e);
+        }
+    }
+
+    @Override
+    public void fail(Throwable error) {
+        failure.accept(error);
+    }
+
+    @Override
+    public boolean isStalled() {
+        return sending && System.nanoTime() - sendStartedAt > sendTimeoutNanos;
+    }
+}
@@ -0,0 +1,90 @@
+package tourGuide.stream;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Bounded buffer of events waiting to be sent to one subscriber
+ */
+class UpdateBuffer {
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final LinkedHashMap<Object, UpdateEvent> events = new LinkedHashMap<>();
+    private long sequence;
+    private long dropped;
+
+    UpdateBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Add an event, applying the overflow policy when the buffer is full
+     *
+     * @param event the event to buffer
+     */
+    synchronized void offer(UpdateEvent event) {
+        if (overflowPolicy == OverflowPolicy.COALESCE) {
+            String key = event.coalescingKey();
+            if (events.containsKey(key)) {
+                events.put(key, event);
+                dropped++;
+                return;
+            }
+            if (events.size() >= capacity) removeOldest();
+            events.put(key, event);
+            return;
+        }
+        if (events.size() >= capacity) {
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                dropped++;
+                return;
+            }
+            removeOldest();
+        }
+        events.put(sequence++, event);
+    }
+
+    /**
+     * Remove and return at most a given number of buffered events, oldest first
+     *
+     * @param max the maximum number of events to return
+     * @return the removed events
+     */
+    synchronized List<UpdateEvent> drain(int max) {
+        List<UpdateEvent> drained = new ArrayList<>(Math.min(max, events.size()));
+        Iterator<UpdateEvent> iterator = events.values().iterator();
+        while (iterator.hasNext() && drained.size() < max) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    synchronized boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    synchronized int size() {
+        return events.size();
+    }
+
+    /**
+     * Get the number of events discarded or replaced because the subscriber did not keep up
+     *
+     * @return the number of events lost by this subscriber
+     */
+    synchronized long getDropped() {
+        return dropped;
+    }
+
+    private void removeOldest() {
+        Iterator<UpdateEvent> iterator = events.values().iterator();
+        iterator.next();
+        iterator.remove();
+        dropped++;
+    }
+}
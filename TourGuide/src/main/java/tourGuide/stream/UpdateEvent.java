@@ -0,0 +1,32 @@
+package tourGuide.stream;
+
+import lombok.Builder;
+import lombok.Getter;
+import tourGuide.beans.LocationBean;
+
+import java.util.Date;
+import java.util.UUID;
+
+@Getter
+@Builder
+public class UpdateEvent {
+
+    public enum Type {LOCATION, REWARD}
+
+    private final Type type;
+    private final UUID userId;
+    private final LocationBean location;
+    private final Date time;
+    private final String attractionName;
+    private final Integer rewardPoints;
+
+    /**
+     * Get the key under which events replace each other when a subscriber coalesces its backlog.
+     * A location replaces the previous location of the same user, a reward never replaces another reward.
+     *
+     * @return the coalescing key of this event
+     */
+    String coalescingKey() {
+        return type == Type.LOCATION ? type + ":" + userId : type + ":" + userId + ":" + attractionName;
+    }
+}
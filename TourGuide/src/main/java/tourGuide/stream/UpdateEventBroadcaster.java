@@ -0,0 +1,197 @@
+package tourGuide.stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.model.user.User;
+import tourGuide.model.user.UserReward;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes location and reward updates to the clients subscribed through server-sent events or reactive streams
+ */
+@Component
+public class UpdateEventBroadcaster {
+    private final Logger logger = LoggerFactory.getLogger(UpdateEventBroadcaster.class);
+
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+    public static final long DEFAULT_TIMEOUT = 30 * 60 * 1000L;
+    public static final int DEFAULT_DELIVERY_THREADS = 4;
+    public static final int DEFAULT_SEND_THREADS = 64;
+    public static final long DEFAULT_SEND_TIMEOUT = 10 * 1000L;
+
+    private final Set<UpdateSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int bufferSize;
+    private final long timeout;
+    private final ExecutorService deliveryExecutor;
+    private final long sendTimeout;
+    private final ExecutorService sendExecutor;
+
+    public UpdateEventBroadcaster() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_TIMEOUT, DEFAULT_DELIVERY_THREADS);
+    }
+
+    public UpdateEventBroadcaster(int bufferSize, long timeout, int deliveryThreads) {
+        this(bufferSize, timeout, deliveryThreads, DEFAULT_SEND_THREADS, DEFAULT_SEND_TIMEOUT);
+    }
+
+    @Autowired
+    public UpdateEventBroadcaster(@Value("${tour.guide.stream.buffer.size:" + DEFAULT_BUFFER_SIZE + "}") int bufferSize,
+                                  @Value("${tour.guide.stream.timeout.ms:" + DEFAULT_TIMEOUT + "}") long timeout,
+                                  @Value("${tour.guide.stream.delivery.threads:" + DEFAULT_DELIVERY_THREADS + "}") int deliveryThreads,
+                                  @Value("${tour.guide.stream.send.threads:" + DEFAULT_SEND_THREADS + "}") int sendThreads,
+                                  @Value("${tour.guide.stream.send.timeout.ms:" + DEFAULT_SEND_TIMEOUT + "}") long sendTimeout) {
+        if (bufferSize < 1) throw new IllegalArgumentException("Stream buffer size must be positive");
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.deliveryExecutor = Executors.newFixedThreadPool(deliveryThreads);
+        this.sendTimeout = sendTimeout;
+        // a thread per SSE write in flight, a stalled client holds one until its socket times out but never a delivery thread
+        this.sendExecutor = new ThreadPoolExecutor(0, sendThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+    }
+
+    /**
+     * Subscribe to the updates of a user or of every user located in a bounding box.
+     * One event at a time is written to the client, the others wait in the subscriber's buffer where the overflow policy applies,
+     * and a client whose write is still in flight after tour.guide.stream.send.timeout.ms is dropped.
+     *
+     * @param userId         the user whose updates are sent, null to use the bounding box
+     * @param boundingBox    {minLatitude, maxLatitude, minLongitude, maxLongitude}, null to receive every update
+     * @param overflowPolicy what to do with new events when the subscriber's buffer is full
+     * @return the SSE connection on which the updates are sent
+     */
+    public SseEmitter subscribe(UUID userId, double[] boundingBox, OverflowPolicy overflowPolicy) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        SseUpdateSink sink = new SseUpdateSink(event -> emitter.send(SseEmitter.event().name(event.getType().name()).data(event)),
+                emitter::completeWithError, sendExecutor, sendTimeout);
+        UpdateSubscriber subscriber = new UpdateSubscriber(userId, boundingBox, new UpdateBuffer(bufferSize, overflowPolicy), sink, deliveryExecutor);
+        sink.listen(subscriber::resume, () -> unsubscribe(subscriber));
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        register(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Subscribe to the updates of a user or of every user located in a bounding box as a reactive stream.
+     * Only the events requested downstream are emitted, the others wait in the subscriber's buffer
+     * where the overflow policy applies, so a client that doesn't keep up never grows an unbounded queue.
+     *
+     * @param userId         the user whose updates are sent, null to use the bounding box
+     * @param boundingBox    {minLatitude, maxLatitude, minLongitude, maxLongitude}, null to receive every update
+     * @param overflowPolicy what to do with new events when the subscriber's buffer is full
+     * @return the stream of updates, completed after tour.guide.stream.timeout.ms
+     */
+    public Flux<UpdateEvent> stream(UUID userId, double[] boundingBox, OverflowPolicy overflowPolicy) {
+        return Flux.<UpdateEvent>create(sink -> {
+            UpdateSubscriber subscriber = new UpdateSubscriber(userId, boundingBox, new UpdateBuffer(bufferSize, overflowPolicy), new UpdateSink() {
+                @Override
+                public long demand() {
+                    return sink.requestedFromDownstream();
+                }
+
+                @Override
+                public void send(UpdateEvent event) {
+                    sink.next(event);
+                }
+
+                @Override
+                public void fail(Throwable error) {
+                    sink.error(error);
+                }
+            }, deliveryExecutor);
+            sink.onRequest(requested -> subscriber.resume());
+            sink.onDispose(() -> unsubscribe(subscriber));
+            register(subscriber);
+            // nothing to buffer here, the subscriber never emits more than requested
+        }, FluxSink.OverflowStrategy.ERROR).take(Duration.ofMillis(timeout));
+    }
+
+    /**
+     * Notify the subscribers that a user has a new location
+     *
+     * @param user            the user located
+     * @param visitedLocation the new location of the user
+     */
+    public void publishLocation(User user, VisitedLocationBean visitedLocation) {
+        if (subscribers.isEmpty()) return;
+        publish(UpdateEvent.builder()
+                .type(UpdateEvent.Type.LOCATION)
+                .userId(user.getUserId())
+                .location(visitedLocation.getLocationBean())
+                .time(visitedLocation.getTimeVisited())
+                .build());
+    }
+
+    /**
+     * Notify the subscribers that a user earned a new reward
+     *
+     * @param user       the rewarded user
+     * @param userReward the new reward of the user
+     */
+    public void publishReward(User user, UserReward userReward) {
+        if (subscribers.isEmpty()) return;
+        publish(UpdateEvent.builder()
+                .type(UpdateEvent.Type.REWARD)
+                .userId(user.getUserId())
+                .location(userReward.visitedLocation.getLocationBean())
+                .time(userReward.visitedLocation.getTimeVisited())
+                .attractionName(userReward.attraction.attractionName)
+                .rewardPoints(userReward.getRewardPoints())
+                .build());
+    }
+
+    /**
+     * Get the number of connected subscribers
+     *
+     * @return the number of subscribers
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(UpdateSubscriber::close);
+        deliveryExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+    }
+
+    private void register(UpdateSubscriber subscriber) {
+        subscribers.add(subscriber);
+        logger.debug("New update subscriber, {} subscribers", subscribers.size());
+    }
+
+    private void publish(UpdateEvent event) {
+        for (UpdateSubscriber subscriber : subscribers) {
+            if (subscriber.isClosed()) {
+                unsubscribe(subscriber);
+            } else if (subscriber.accepts(event)) {
+                subscriber.publish(event);
+            }
+        }
+    }
+
+    private void unsubscribe(UpdateSubscriber subscriber) {
+        subscriber.close();
+        if (subscribers.remove(subscriber)) {
+            logger.debug("Update subscriber removed after dropping {} events, {} subscribers", subscriber.getDropped(), subscribers.size());
+        }
+    }
+}
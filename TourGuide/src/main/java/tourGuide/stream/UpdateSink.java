@@ -0,0 +1,40 @@
+package tourGuide.stream;
+
+import java.io.IOException;
+
+/**
+ * The connection on which the events of a subscriber are sent, either a Spring MVC SSE emitter or a reactive stream
+ */
+interface UpdateSink {
+
+    /**
+     * Get the number of events the client is ready to receive
+     *
+     * @return the number of events that can be sent without overflowing the client, Long.MAX_VALUE if it has no flow control
+     */
+    long demand();
+
+    /**
+     * Send an event to the client
+     *
+     * @param event the event to send
+     * @throws IOException if the connection is lost
+     */
+    void send(UpdateEvent event) throws IOException;
+
+    /**
+     * Close the connection after a delivery failure
+     *
+     * @param error the failure
+     */
+    void fail(Throwable error);
+
+    /**
+     * Tell whether the client stopped reading, a send to it having been in flight for too long
+     *
+     * @return true if the subscriber should be dropped
+     */
+    default boolean isStalled() {
+        return false;
+    }
+}
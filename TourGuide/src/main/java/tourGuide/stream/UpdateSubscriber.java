@@ -0,0 +1,111 @@
+package tourGuide.stream;
+
+import tourGuide.beans.LocationBean;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A client subscribed to the updates of one user or of one bounding box.
+ * Events are buffered per subscriber and sent by the broadcaster's delivery threads,
+ * so a slow client only fills its own buffer and never blocks the tracking.
+ * A reactive client is only sent the events it requested, the rest waiting in the buffer under its overflow policy.
+ */
+class UpdateSubscriber {
+
+    private static final int SEND_BATCH_SIZE = 64;
+
+    private final UUID userId;
+    private final double[] boundingBox;
+    private final UpdateBuffer buffer;
+    private final UpdateSink sink;
+    private final Executor deliveryExecutor;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * @param userId           the user whose updates are sent, null to use the bounding box
+     * @param boundingBox      {minLatitude, maxLatitude, minLongitude, maxLongitude}, null to accept every location,
+     *                         the west limit greater than the east one when the box crosses the antimeridian
+     * @param buffer           the buffer of events waiting to be sent
+     * @param sink             the connection of the client
+     * @param deliveryExecutor the executor sending the buffered events
+     */
+    UpdateSubscriber(UUID userId, double[] boundingBox, UpdateBuffer buffer, UpdateSink sink, Executor deliveryExecutor) {
+        this.userId = userId;
+        this.boundingBox = boundingBox;
+        this.buffer = buffer;
+        this.sink = sink;
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    boolean accepts(UpdateEvent event) {
+        if (userId != null) return userId.equals(event.getUserId());
+        if (boundingBox == null) return true;
+        LocationBean location = event.getLocation();
+        if (location == null || location.latitude < boundingBox[0] || location.latitude > boundingBox[1]) return false;
+        // a west limit greater than the east limit is a box crossing the antimeridian, as for the users within a bounding box
+        return boundingBox[2] <= boundingBox[3]
+                ? location.longitude >= boundingBox[2] && location.longitude <= boundingBox[3]
+                : location.longitude >= boundingBox[2] || location.longitude <= boundingBox[3];
+    }
+
+    void publish(UpdateEvent event) {
+        if (closed) return;
+        // the events of a client which stopped reading would only pile up, it is dropped instead
+        if (sink.isStalled()) {
+            closed = true;
+            return;
+        }
+        buffer.offer(event);
+        scheduleDrain();
+    }
+
+    /**
+     * Resume the delivery of the buffered events once the client requested more
+     */
+    void resume() {
+        if (!closed && !buffer.isEmpty()) scheduleDrain();
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    long getDropped() {
+        return buffer.getDropped();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            deliveryExecutor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            long demand;
+            List<UpdateEvent> events;
+            while (!closed && (demand = sink.demand()) > 0
+                    && !(events = buffer.drain((int) Math.min(SEND_BATCH_SIZE, demand))).isEmpty()) {
+                for (UpdateEvent event : events) {
+                    sink.send(event);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            closed = true;
+            sink.fail(e);
+        } finally {
+            draining.set(false);
+            // a request arriving while draining found the flag still set
+            if (!closed && !buffer.isEmpty() && sink.demand() > 0) scheduleDrain();
+        }
+    }
+}
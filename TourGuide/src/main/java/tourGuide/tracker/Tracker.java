@@ -1,6 +1,9 @@
 package tourGuide.tracker;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -9,6 +12,7 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import tourGuide.jfr.TrackerCycleEvent;
 import tourGuide.service.TourGuideServiceImpl;
 import tourGuide.model.user.User;
 
@@ -17,7 +21,7 @@ public class Tracker extends Thread {
 	private static final long trackingPollingInterval = TimeUnit.MINUTES.toSeconds(5);
 	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
 	private final TourGuideServiceImpl tourGuideService;
-	private boolean stop = false;
+	private volatile boolean stop = false;
 
 	public Tracker(TourGuideServiceImpl tourGuideService) {
 		this.tourGuideService = tourGuideService;
@@ -26,11 +30,16 @@ public class Tracker extends Thread {
 	}
 	
 	/**
-	 * Assures to shut down the Tracker thread
+	 * Assures to shut down the Tracker thread, no user being tracked by it once returned
 	 */
 	public void stopTracking() {
 		stop = true;
 		executorService.shutdownNow();
+		try {
+			executorService.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 	}
 	
 	@Override
@@ -42,11 +51,30 @@ public class Tracker extends Thread {
 				break;
 			}
 			
+			TrackerCycleEvent cycleEvent = new TrackerCycleEvent();
+			cycleEvent.begin();
+			tourGuideService.refreshAttractionZones();
 			List<User> users = tourGuideService.getAllUsers();
 			logger.debug("Begin Tracker. Tracking " + users.size() + " users.");
 			stopWatch.start();
-			users.forEach(tourGuideService::trackUserLocation);
+			CompletableFuture<?>[] tracks = new CompletableFuture<?>[users.size()];
+			int dispatched = 0;
+			for (User user : users) {
+				if (stop) break;
+				tracks[dispatched++] = tourGuideService.trackUserLocation(user);
+			}
+			cycleEvent.dispatchDuration = TimeUnit.MILLISECONDS.toNanos(stopWatch.getTime());
+			try {
+				// the cycle ends once every track completed, not once they are dispatched
+				CompletableFuture.allOf(Arrays.copyOf(tracks, dispatched)).get();
+			} catch (ExecutionException e) {
+				logger.warn("Tracker cycle completed with failed tracks : " + e.getCause().getMessage());
+			} catch (InterruptedException e) {
+				break;
+			}
 			stopWatch.stop();
+			cycleEvent.userCount = dispatched;
+			cycleEvent.commit();
 			logger.debug("Tracker Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds."); 
 			stopWatch.reset();
 			try {
@@ -0,0 +1,122 @@
+package tourGuide.tracker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tourGuide.model.user.User;
+import tourGuide.service.TripPricerService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prices in the background the trip deals of the users who were just active or whose rewards just changed,
+ * so that their next trip deals request is served warm.
+ * The pending users are kept in a bounded queue ordered by recency: the most recent is priced first
+ * and the least recent is dropped when the queue is full.
+ */
+@Component
+public class TripDealsPrecomputer {
+    private final Logger logger = LoggerFactory.getLogger(TripDealsPrecomputer.class);
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_THREADS = 2;
+
+    private final TripPricerService tripPricerService;
+    private final int queueCapacity;
+    private final int threads;
+    private final ExecutorService executorService;
+    private final TreeMap<Long, User> pendingUsersByRecency = new TreeMap<>();
+    private final Map<UUID, Long> recencyByUserId = new HashMap<>();
+    private final Counter dropped;
+    private long recency;
+
+    public TripDealsPrecomputer(TripPricerService tripPricerService) {
+        this(tripPricerService, DEFAULT_QUEUE_CAPACITY, DEFAULT_THREADS, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public TripDealsPrecomputer(TripPricerService tripPricerService,
+                                @Value("${tour.guide.trip.deals.precompute.queue.capacity:" + DEFAULT_QUEUE_CAPACITY + "}") int queueCapacity,
+                                @Value("${tour.guide.trip.deals.precompute.threads:" + DEFAULT_THREADS + "}") int threads,
+                                MeterRegistry meterRegistry) {
+        this.tripPricerService = tripPricerService;
+        this.queueCapacity = queueCapacity;
+        this.threads = threads;
+        this.executorService = Executors.newFixedThreadPool(threads);
+        Gauge.builder("tour.guide.trip.deals.precompute.queue.size", this, TripDealsPrecomputer::getQueueSize)
+                .description("Users waiting for their trip deals to be precomputed")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("tour.guide.trip.deals.precompute.dropped")
+                .description("Users dropped from the full precompute queue")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue a user for the precomputation of its trip deals, or move it to the front if already queued
+     *
+     * @param user the user who was just active or whose rewards just changed
+     */
+    public synchronized void markActive(User user) {
+        Long previousRecency = recencyByUserId.remove(user.getUserId());
+        if (previousRecency != null) pendingUsersByRecency.remove(previousRecency);
+        recency++;
+        pendingUsersByRecency.put(recency, user);
+        recencyByUserId.put(user.getUserId(), recency);
+        if (pendingUsersByRecency.size() > queueCapacity) {
+            User leastRecentUser = pendingUsersByRecency.pollFirstEntry().getValue();
+            recencyByUserId.remove(leastRecentUser.getUserId());
+            dropped.increment();
+        }
+        notifyAll();
+    }
+
+    public synchronized int getQueueSize() {
+        return pendingUsersByRecency.size();
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < threads; i++) {
+            executorService.submit(this::precompute);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executorService.shutdownNow();
+    }
+
+    private void precompute() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                User user = takeMostRecentUser();
+                try {
+                    tripPricerService.precomputeTripDeals(user);
+                } catch (RuntimeException e) {
+                    logger.error("Trip deals precompute failed for user name : {} : {}", user.getUserName(), e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Trip deals precompute stopping");
+        }
+    }
+
+    private synchronized User takeMostRecentUser() throws InterruptedException {
+        while (pendingUsersByRecency.isEmpty()) wait();
+        User user = pendingUsersByRecency.pollLastEntry().getValue();
+        recencyByUserId.remove(user.getUserId());
+        return user;
+    }
+}
@@ -0,0 +1,177 @@
+package tourGuide.controller;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.model.user.User;
+import tourGuide.service.TourGuideServiceImpl;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+// the servlet stack is on the classpath too, so the web application type is set for the test as well as by the profile
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient(timeout = "30000")
+@ActiveProfiles("reactive")
+public class TestReactiveTourGuideController {
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private TourGuideServiceImpl tourGuideService;
+
+    @Test
+    @DisplayName("GET request (/) must return an HTTP 200 response from the reactive controller")
+    public void testGetIndex() {
+
+        webTestClient.get().uri("/").exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("Greetings from TourGuide!");
+    }
+
+    @Test
+    @DisplayName("GET request (/getLocation) with a stale location must return it at once with a stale warning")
+    public void testGetLocationWithStaleLocation() {
+
+        User user = new User(UUID.randomUUID(), "stale", "000", "stale@tourGuide.com");
+        tourGuideService.internalUserMap.put("stale", user);
+        Date dayAgo = new Date(System.currentTimeMillis() - 24 * 60 * 60 * 1000L);
+        user.addToVisitedLocations(new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), dayAgo));
+
+        webTestClient.get().uri("/getLocation?userName=stale").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Warning", "110 - \"Response is Stale\"")
+                .expectHeader().valueEquals("Age", "86400")
+                .expectBody().jsonPath("$.latitude").isEqualTo(33.817595D);
+    }
+
+    @Test
+    @DisplayName("GET request (/getLocation) with unknown user must return an HTTP 404 response")
+    public void testGetLocationWithUnknownUser() {
+
+        webTestClient.get().uri("/getLocation?userName=unknown").exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("message").isEqualTo("No user found with this username");
+    }
+
+    @Test
+    @DisplayName("GET request (/getNearbyAttractions) with existing user must return the closest five tourist attractions with their reward points")
+    public void testGetNearbyAttractionsWithExistingUser() throws Exception {
+
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        tourGuideService.internalUserMap.put("jon", user);
+        tourGuideService.trackUserLocation(user).get();
+
+        webTestClient.get().uri("/getNearbyAttractions?userName=jon").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("userLocation").isNotEmpty()
+                .jsonPath("nearbyAttractionsDto.length()").isEqualTo(5)
+                .jsonPath("nearbyAttractionsDto[0].rewardPoints").exists();
+    }
+
+    @Test
+    @DisplayName("POST request (/locations/bulk) must stream one location or error per username")
+    public void testGetLocationsInBulk() {
+
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        user.addToVisitedLocations(new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), new Date()));
+        tourGuideService.internalUserMap.put("jon", user);
+
+        String content = webTestClient.post().uri("/locations/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_STREAM_JSON)
+                .syncBody(Arrays.asList("jon", "unknown"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        List<String> lines = Arrays.asList(content.split("\n"));
+        assertEquals(2, lines.size());
+        assertTrue(lines.contains("{\"userName\":\"jon\",\"result\":{\"longitude\":-117.922008,\"latitude\":33.817595}}"));
+        assertTrue(lines.contains("{\"userName\":\"unknown\",\"error\":\"No user found with this username\"}"));
+    }
+
+    @Test
+    @DisplayName("POST request (/locations/bulk) with too many usernames must return an HTTP 400 response")
+    public void testGetLocationsInBulkWithTooManyUsers() {
+
+        webTestClient.post().uri("/locations/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .syncBody(Collections.nCopies(1001, "jon"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("GET request (/users/withinRadius) with an invalid radius must return an HTTP 400 response")
+    public void testGetUsersWithinRadiusWithInvalidRadius() {
+
+        webTestClient.get().uri("/users/withinRadius?latitude=33.0&longitude=-117.0&radiusMiles=0").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("GET request (/attractions/{attractionName}/nearbyUsers) with unknown attraction must return an HTTP 404 response")
+    public void testGetUsersNearUnknownAttraction() {
+
+        webTestClient.get().uri("/attractions/unknown/nearbyUsers").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("GET request (/streamUpdates) with existing user must stream its location updates as server-sent events")
+    public void testStreamUpdatesWithExistingUser() {
+
+        User user = new User(UUID.randomUUID(), "streamed", "000", "streamed@tourGuide.com");
+        tourGuideService.internalUserMap.put("streamed", user);
+
+        // tracked until the stream receives a location, the exchange only answers once the first event is sent
+        Disposable tracking = Flux.interval(Duration.ofMillis(200)).subscribe(tick -> tourGuideService.trackUserLocation(user));
+        ServerSentEvent<String> event;
+        try {
+            event = webTestClient.get().uri("/streamUpdates?userName=streamed")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {
+                    })
+                    .getResponseBody()
+                    .blockFirst(Duration.ofSeconds(30));
+        } finally {
+            tracking.dispose();
+        }
+
+        assertEquals("LOCATION", event.event());
+        assertTrue(event.data().contains("\"userId\":\"" + user.getUserId() + "\""));
+    }
+
+    @Test
+    @DisplayName("GET request (/streamUpdates) with unknown user must return an HTTP 404 response")
+    public void testStreamUpdatesWithUnknownUser() {
+
+        webTestClient.get().uri("/streamUpdates?userName=unknown").exchange()
+                .expectStatus().isNotFound();
+    }
+}
@@ -8,12 +8,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import tourGuide.beans.LocationBean;
+import tourGuide.beans.AttractionBean;
 import tourGuide.beans.VisitedLocationBean;
+import tourGuide.index.RewardLeaderboardIndex;
 import tourGuide.model.Dto.NearbyAttractionListByUserDto;
 import tourGuide.model.user.User;
 import tourGuide.model.user.UserPreferences;
@@ -22,17 +27,31 @@ import tourGuide.service.RewardsServiceImpl;
 import tourGuide.service.TourGuideServiceImpl;
 import tourGuide.service.TripPricerService;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @AutoConfigureMockMvc(addFilters = false)
@@ -49,6 +68,8 @@ public class TestTourGuideController {
     @Autowired
     private TripPricerService tripPricerService;
     @Autowired
+    private RewardLeaderboardIndex rewardLeaderboardIndex;
+    @Autowired
     TourGuideController tourGuideController;
 
     @Test
@@ -75,6 +96,28 @@ public class TestTourGuideController {
         assertEquals(visitedLocationBean.locationBean, user.getLastVisitedLocation().locationBean);
     }
 
+    @Test
+    @DisplayName("GET request (/getLocation) with a stale location must return it at once with a stale warning")
+    public void testGetLocationWithStaleLocation() throws Exception {
+
+        User user = new User(UUID.randomUUID(), "stale", "000", "stale@tourGuide.com");
+        tourGuideService.internalUserMap.put("stale", user);
+        Date dayAgo = new Date(System.currentTimeMillis() - 24 * 60 * 60 * 1000L);
+        user.addToVisitedLocations(new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), dayAgo));
+        User freshUser = new User(UUID.randomUUID(), "fresh", "000", "fresh@tourGuide.com");
+        tourGuideService.internalUserMap.put("fresh", freshUser);
+        freshUser.addToVisitedLocations(new VisitedLocationBean(freshUser.getUserId(), new LocationBean(33.817595D, -117.922008D), new Date()));
+
+        mockMvc.perform(get("/getLocation").param("userName", "stale"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Warning", "110 - \"Response is Stale\""))
+                .andExpect(header().string("Age", "86400"))
+                .andExpect(jsonPath("$.latitude", is(33.817595D)));
+        mockMvc.perform(get("/getLocation").param("userName", "fresh"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Warning"));
+    }
+
     @Test
     @DisplayName("GET request (/getLocation) with unknown user must return an HTTP 404 response")
     public void testGetLocationWithUnknownUser() throws Exception {
@@ -157,6 +200,130 @@ public class TestTourGuideController {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("GET request (/leaderboard) must return the users ranked by total reward points and an HTTP 200 response")
+    public void testGetLeaderboard() throws Exception {
+
+        User user = new User(UUID.randomUUID(), "leader", "000", "leader@tourGuide.com");
+        user.addUserReward(new UserReward(null, new AttractionBean("leaderboard", "city", "state", 1.0, 2.0), Integer.MAX_VALUE));
+        rewardLeaderboardIndex.update(user);
+
+        mockMvc.perform(get("/leaderboard").param("page", "0").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("entries.length()").value(1))
+                .andExpect(jsonPath("entries[0].rank").value(1))
+                .andExpect(jsonPath("entries[0].userName").value("leader"))
+                .andExpect(jsonPath("entries[0].rewardPoints").value(Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("GET request (/leaderboard) with an invalid page size must return an HTTP 400 response")
+    public void testGetLeaderboardWithInvalidSize() throws Exception {
+
+        mockMvc.perform(get("/leaderboard").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("POST request (/locations/bulk) must stream one location or error per username and an HTTP 200 response")
+    public void testGetLocationsInBulk() throws Exception {
+
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        user.addToVisitedLocations(new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), new Date()));
+        tourGuideService.internalUserMap.put("jon", user);
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders
+                        .post("/locations/bulk")
+                        .content(asJsonString(Arrays.asList("jon", "unknown")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(Arrays.asList(lines).contains("{\"userName\":\"jon\",\"result\":{\"longitude\":-117.922008,\"latitude\":33.817595}}"));
+        assertTrue(Arrays.asList(lines).contains("{\"userName\":\"unknown\",\"error\":\"No user found with this username\"}"));
+    }
+
+    @Test
+    @DisplayName("Bulk lookups still running after the timeout must be streamed as timed out errors")
+    public void testBulkLookupTimeout() throws Exception {
+
+        ResponseEntity<StreamingResponseBody> response = tourGuideController.streamBulkResults(Arrays.asList("done", "hanging"),
+                userName -> userName.equals("done") ? CompletableFuture.completedFuture("found") : new CompletableFuture<String>(), 256, 100);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        String[] lines = body.toString("UTF-8").split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"userName\":\"done\",\"result\":\"found\"}", lines[0]);
+        assertEquals("{\"userName\":\"hanging\",\"error\":\"Lookup timed out after 100 ms\"}", lines[1]);
+    }
+
+    @Test
+    @DisplayName("Bulk lookups must run at most tour.guide.bulk.max.concurrent.lookups at a time")
+    public void testBulkLookupConcurrency() throws Exception {
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+        List<String> userNames = new ArrayList<>();
+        for (int i = 0; i < 20; i++) userNames.add("user" + i);
+
+        ResponseEntity<StreamingResponseBody> response = tourGuideController.streamBulkResults(userNames, userName -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<String> result = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                inFlight.decrementAndGet();
+                result.complete(userName);
+            }, 10, TimeUnit.MILLISECONDS);
+            return result;
+        }, 3, 10000);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+        scheduler.shutdown();
+
+        assertEquals(20, body.toString("UTF-8").split("\n").length);
+        assertTrue(String.valueOf(maxInFlight.get()), maxInFlight.get() <= 3);
+    }
+
+    @Test
+    @DisplayName("POST request (/rewards/bulk) must stream one list of rewards or error per username and an HTTP 200 response")
+    public void testGetRewardsInBulk() throws Exception {
+
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        user.addUserReward(new UserReward(null, new AttractionBean("bulk", "city", "state", 1.0, 2.0), 42));
+        tourGuideService.internalUserMap.put("jon", user);
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders
+                        .post("/rewards/bulk")
+                        .content(asJsonString(Arrays.asList("unknown", "jon")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String content = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(2, content.split("\n").length);
+        assertTrue(content.contains("\"userName\":\"jon\",\"result\":[{"));
+        assertTrue(content.contains("\"rewardPoints\":42"));
+        assertTrue(content.contains("{\"userName\":\"unknown\",\"error\":\"No user found with this username\"}"));
+    }
+
+    @Test
+    @DisplayName("POST request (/locations/bulk) with too many usernames must return an HTTP 400 response")
+    public void testGetLocationsInBulkWithTooManyUsers() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/locations/bulk")
+                        .content(asJsonString(Collections.nCopies(1001, "jon")))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("GET request (/getAllCurrentLocations) must return a map with for each user key = userId and value = {latitude, longitude} and an HTTP 200 response")
     public void testGetAllCurrentLocations() throws Exception {
@@ -171,6 +338,144 @@ public class TestTourGuideController {
         assertTrue(allLocations.containsValue(lastLocation));
     }
 
+    @Test
+    @DisplayName("GET request (/getCurrentLocations) must return the locations updated since the given cursor and an HTTP 200 response")
+    public void testGetCurrentLocations() throws Exception {
+
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        tourGuideService.internalUserMap.put("jon", user);
+        long since = tourGuideService.getCurrentLocationsSince(0).getCursor();
+        VisitedLocationBean visitedLocationBean = tourGuideService.trackUserLocation(user).get();
+
+        mockMvc.perform(get("/getCurrentLocations").param("since", String.valueOf(since)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("cursor").value(greaterThan(since), Long.class))
+                .andExpect(jsonPath("currentLocations." + user.getUserId() + ".latitude").value(visitedLocationBean.getLocationBean().getLatitude()));
+    }
+
+    @Test
+    @DisplayName("GET request (/getCurrentLocations) with empty param must return an HTTP 400 response")
+    public void testGetCurrentLocationsWithEmptyParam() throws Exception {
+
+        mockMvc.perform(get("/getCurrentLocations"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET request (/users/withinRadius) must return the users near a point and an HTTP 200 response")
+    public void testGetUsersWithinRadius() throws Exception {
+
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        tourGuideService.internalUserMap.put("jon", user);
+        VisitedLocationBean visitedLocationBean = tourGuideService.trackUserLocation(user).get();
+
+        mockMvc.perform(get("/users/withinRadius")
+                        .param("latitude", String.valueOf(visitedLocationBean.getLocationBean().getLatitude()))
+                        .param("longitude", String.valueOf(visitedLocationBean.getLocationBean().getLongitude()))
+                        .param("radiusMiles", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("entries[0].userId").value(user.getUserId().toString()))
+                // the cosine formula is only accurate to about 1e-4 mile for identical points
+                .andExpect(jsonPath("entries[0].distance").value(closeTo(0.0, 0.001), Double.class));
+    }
+
+    @Test
+    @DisplayName("GET request (/users/withinRadius) with a negative radius must return an HTTP 400 response")
+    public void testGetUsersWithinRadiusWithNegativeRadius() throws Exception {
+
+        mockMvc.perform(get("/users/withinRadius").param("latitude", "33.8").param("longitude", "-117.9").param("radiusMiles", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET request (/users/withinBoundingBox) must return the users inside the box and an HTTP 200 response")
+    public void testGetUsersWithinBoundingBox() throws Exception {
+
+        mockMvc.perform(get("/users/withinBoundingBox")
+                        .param("minLatitude", "-90").param("maxLatitude", "90")
+                        .param("minLongitude", "-180").param("maxLongitude", "180")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("entries.length()").value(1))
+                .andExpect(jsonPath("entries[0].location").isNotEmpty())
+                .andExpect(jsonPath("entries[0].distance").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET request (/users/withinBoundingBox) with inverted latitudes must return an HTTP 400 response")
+    public void testGetUsersWithinBoundingBoxWithInvertedLatitudes() throws Exception {
+
+        mockMvc.perform(get("/users/withinBoundingBox")
+                        .param("minLatitude", "34").param("maxLatitude", "33")
+                        .param("minLongitude", "-118").param("maxLongitude", "-117"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET request (/attractions/{attractionName}/nearbyUsers) must return the users near the attraction and an HTTP 200 response")
+    public void testGetUsersNearAttraction() throws Exception {
+
+        mockMvc.perform(get("/attractions/Disneyland/nearbyUsers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalUsers").isNumber())
+                .andExpect(jsonPath("entries").isArray());
+    }
+
+    @Test
+    @DisplayName("GET request (/attractions/{attractionName}/nearbyUsers) with unknown attraction must return an HTTP 404 response")
+    public void testGetUsersNearUnknownAttraction() throws Exception {
+
+        mockMvc.perform(get("/attractions/unknown/nearbyUsers"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET request (/attractions/occupancy) must return the number of users near every attraction and an HTTP 200 response")
+    public void testGetAttractionOccupancy() throws Exception {
+
+        mockMvc.perform(get("/attractions/occupancy"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].attractionName").isNotEmpty())
+                .andExpect(jsonPath("$[0].nearbyUsers").isNumber());
+    }
+
+    @Test
+    @DisplayName("GET request (/streamUpdates) with existing user must start an event stream")
+    public void testStreamUpdatesWithExistingUser() throws Exception {
+
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        tourGuideService.internalUserMap.put("jon", user);
+
+        mockMvc.perform(get("/streamUpdates").param("userName", "jon"))
+                .andExpect(request().asyncStarted())
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET request (/streamUpdates) with unknown user must return an HTTP 404 response")
+    public void testStreamUpdatesWithUnknownUser() throws Exception {
+
+        mockMvc.perform(get("/streamUpdates").param("userName", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET request (/streamUpdates) with an incomplete bounding box must return an HTTP 400 response")
+    public void testStreamUpdatesWithIncompleteBoundingBox() throws Exception {
+
+        mockMvc.perform(get("/streamUpdates").param("minLatitude", "33.0").param("maxLatitude", "34.0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET request (/streamUpdates) with inverted latitudes must return an HTTP 400 response")
+    public void testStreamUpdatesWithInvertedLatitudes() throws Exception {
+
+        mockMvc.perform(get("/streamUpdates").param("minLatitude", "34.0").param("maxLatitude", "33.0")
+                .param("minLongitude", "170.0").param("maxLongitude", "-170.0"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("GET request (/getTripDeals) with existing user must return an HTTP 200 response")
     public void testGetTripDealsWithExistingUser() throws Exception {
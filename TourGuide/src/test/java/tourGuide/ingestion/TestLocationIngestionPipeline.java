@@ -0,0 +1,225 @@
+package tourGuide.ingestion;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.model.user.User;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestLocationIngestionPipeline {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Record the locations of each user in publish order whatever the wait strategy and the number of handlers")
+    public void recordInPublishOrder() throws Exception {
+        for (IngestionWaitStrategy waitStrategy : IngestionWaitStrategy.values()) {
+
+            //GIVEN
+            LocationIngestionPipeline pipeline = new LocationIngestionPipeline(64, waitStrategy, 3, 2, 2, 1, new SimpleMeterRegistry());
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                users.add(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+            }
+            Map<UUID, List<VisitedLocationBean>> rewarded = new ConcurrentHashMap<>();
+            pipeline.start(
+                    event -> event.getUser().addToVisitedLocations(event.getVisitedLocation()),
+                    event -> { },
+                    event -> rewarded.computeIfAbsent(event.getUser().getUserId(), id -> new ArrayList<>()).add(event.getVisitedLocation()),
+                    event -> { });
+
+            //WHEN
+            List<CompletableFuture<VisitedLocationBean>> recorded = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                for (User user : users) {
+                    recorded.add(pipeline.publish(user, new VisitedLocationBean(user.getUserId(), new LocationBean(i, i), new Date())));
+                }
+            }
+            CompletableFuture.allOf(recorded.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+            waitUntil(() -> rewarded.values().stream().mapToInt(List::size).sum() == recorded.size());
+            pipeline.stop();
+
+            //THEN
+            for (User user : users) {
+                List<VisitedLocationBean> history = user.getVisitedLocations();
+                assertEquals(waitStrategy.name(), 500, history.size());
+                for (int i = 0; i < 500; i++) {
+                    assertEquals(waitStrategy.name(), i, history.get(i).getLocationBean().getLatitude(), 0);
+                    assertEquals(waitStrategy.name(), i, rewarded.get(user.getUserId()).get(i).getLocationBean().getLatitude(), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Answer the publisher once the location is recorded, without waiting for the stages following the recording")
+    public void completeBeforeRewards() throws Exception {
+
+        //GIVEN
+        LocationIngestionPipeline pipeline = new LocationIngestionPipeline(64, IngestionWaitStrategy.BLOCKING, 1, 1, 1, 1, meterRegistry);
+        CountDownLatch rewardsReleased = new CountDownLatch(1);
+        pipeline.start(
+                event -> event.getUser().addToVisitedLocations(event.getVisitedLocation()),
+                event -> { },
+                event -> await(rewardsReleased),
+                event -> { });
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        VisitedLocationBean visitedLocation = new VisitedLocationBean(user.getUserId(), new LocationBean(1, 1), new Date());
+
+        //WHEN
+        VisitedLocationBean recordedLocation = pipeline.publish(user, visitedLocation).get(5, TimeUnit.SECONDS);
+        waitUntil(() -> pipeline.getLag(LocationIngestionPipeline.Stage.BROADCAST) == 0);
+        long rewardsLag = pipeline.getLag(LocationIngestionPipeline.Stage.REWARDS);
+        rewardsReleased.countDown();
+        waitUntil(() -> pipeline.getLag(LocationIngestionPipeline.Stage.REWARDS) == 0);
+        pipeline.stop();
+
+        //THEN
+        assertEquals(visitedLocation, recordedLocation);
+        assertEquals(visitedLocation, user.getLastVisitedLocation());
+        assertEquals(1, rewardsLag);
+        assertEquals(1, meterRegistry.get("tour.guide.ingestion.events").tag("stage", "history").counter().count(), 0);
+        assertEquals(1, meterRegistry.get("tour.guide.ingestion.events").tag("stage", "rewards").counter().count(), 0);
+        assertEquals(1, meterRegistry.get("tour.guide.ingestion.batch.size").tag("stage", "broadcast").summary().count());
+    }
+
+    @Test
+    @DisplayName("Complete the publishers' futures off the ring, a blocked continuation never stalling the next publishers")
+    public void completeOffTheRing() throws Exception {
+
+        //GIVEN
+        LocationIngestionPipeline pipeline = new LocationIngestionPipeline(64, IngestionWaitStrategy.BLOCKING, 1, 1, 1, 1, 2, meterRegistry);
+        // the first location is recorded once its continuation is attached, which then runs where the future is completed
+        CountDownLatch continuationAttached = new CountDownLatch(1);
+        CountDownLatch continuationReleased = new CountDownLatch(1);
+        pipeline.start(
+                event -> {
+                    if (event.getVisitedLocation().getLocationBean().getLatitude() == 0) await(continuationAttached);
+                    event.getUser().addToVisitedLocations(event.getVisitedLocation());
+                },
+                event -> { },
+                event -> { },
+                event -> { });
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+        //WHEN
+        CompletableFuture<Void> blocked = pipeline.publish(user, new VisitedLocationBean(user.getUserId(), new LocationBean(0, 0), new Date()))
+                .thenRun(() -> await(continuationReleased));
+        continuationAttached.countDown();
+        List<CompletableFuture<VisitedLocationBean>> recorded = new ArrayList<>();
+        // several times the ring size, the publishers would wait for a free slot if the ring was stalled
+        for (int i = 1; i <= 256; i++) {
+            recorded.add(pipeline.publish(user, new VisitedLocationBean(user.getUserId(), new LocationBean(i, i), new Date())));
+        }
+        CompletableFuture.allOf(recorded.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        boolean blockedMeanwhile = !blocked.isDone();
+        continuationReleased.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        pipeline.stop();
+
+        //THEN
+        assertTrue(blockedMeanwhile);
+        assertEquals(257, user.getVisitedLocations().size());
+    }
+
+    @Test
+    @DisplayName("Fail the recording of a location when a recording stage fails, and keep processing the next locations")
+    public void failRecording() throws Exception {
+
+        //GIVEN
+        LocationIngestionPipeline pipeline = new LocationIngestionPipeline(64, IngestionWaitStrategy.BLOCKING, 1, 1, 1, 1, meterRegistry);
+        pipeline.start(
+                event -> event.getUser().addToVisitedLocations(event.getVisitedLocation()),
+                event -> {
+                    if (event.getVisitedLocation().getLocationBean().getLatitude() < 0) throw new IllegalStateException("index failure");
+                },
+                event -> { },
+                event -> { });
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        VisitedLocationBean failing = new VisitedLocationBean(user.getUserId(), new LocationBean(-1, 1), new Date());
+        VisitedLocationBean next = new VisitedLocationBean(user.getUserId(), new LocationBean(1, 1), new Date());
+
+        //WHEN
+        CompletableFuture<VisitedLocationBean> failed = pipeline.publish(user, failing);
+        VisitedLocationBean recordedLocation = pipeline.publish(user, next).get(5, TimeUnit.SECONDS);
+        pipeline.stop();
+
+        //THEN
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail("the recording should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(next, recordedLocation);
+    }
+
+    @Test
+    @DisplayName("Fail the recording of a location when a recording stage throws an error, and keep the stage running")
+    public void failRecordingOnError() throws Exception {
+
+        //GIVEN
+        LocationIngestionPipeline pipeline = new LocationIngestionPipeline(64, IngestionWaitStrategy.BLOCKING, 1, 1, 1, 1, meterRegistry);
+        pipeline.start(
+                event -> {
+                    if (event.getVisitedLocation().getLocationBean().getLatitude() < 0) throw new StackOverflowError("history error");
+                    event.getUser().addToVisitedLocations(event.getVisitedLocation());
+                },
+                event -> { },
+                event -> { },
+                event -> { });
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        VisitedLocationBean failing = new VisitedLocationBean(user.getUserId(), new LocationBean(-1, 1), new Date());
+        List<CompletableFuture<VisitedLocationBean>> recorded = new ArrayList<>();
+
+        //WHEN
+        CompletableFuture<VisitedLocationBean> failed = pipeline.publish(user, failing);
+        // more than the ring size, a dead stage thread would leave the publishers waiting for a free slot
+        for (int i = 1; i <= 128; i++) {
+            recorded.add(pipeline.publish(user, new VisitedLocationBean(user.getUserId(), new LocationBean(i, i), new Date())));
+        }
+        CompletableFuture.allOf(recorded.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        pipeline.stop();
+
+        //THEN
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail("the recording should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof StackOverflowError);
+        }
+        assertEquals(128, user.getVisitedLocations().size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
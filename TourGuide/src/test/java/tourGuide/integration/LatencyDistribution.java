@@ -0,0 +1,57 @@
+package tourGuide.integration;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Response delay of a stub downstream service, in milliseconds, parsed from a spec:
+ * "fixed:50", "uniform:30:100" or "lognormal:200:0.5" (median then sigma of the underlying normal)
+ */
+class LatencyDistribution {
+
+    private final String spec;
+    private final String type;
+    private final double first;
+    private final double second;
+
+    private LatencyDistribution(String spec, String type, double first, double second) {
+        this.spec = spec;
+        this.type = type;
+        this.first = first;
+        this.second = second;
+    }
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        switch (parts[0]) {
+            case "fixed":
+                return new LatencyDistribution(spec, parts[0], Double.parseDouble(parts[1]), 0);
+            case "uniform":
+            case "lognormal":
+                return new LatencyDistribution(spec, parts[0], Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution " + spec + ", expected fixed:ms, uniform:min:max or lognormal:median:sigma");
+        }
+    }
+
+    /**
+     * Get the delay of the next response
+     *
+     * @return a delay in milliseconds
+     */
+    long nextDelay() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (type) {
+            case "uniform":
+                return (long) (first + random.nextDouble() * (second - first));
+            case "lognormal":
+                return (long) (first * Math.exp(second * random.nextGaussian()));
+            default:
+                return (long) first;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,123 @@
+package tourGuide.integration;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-process HTTP stand-in of a downstream service answering on an ephemeral port.
+ * Responses are delayed by a latency distribution without holding a thread, like a real service under concurrent load.
+ */
+class StubDownstreamServer implements AutoCloseable {
+
+    /**
+     * Response of a stub endpoint
+     */
+    static final class StubResponse {
+        final int status;
+        final byte[] body;
+        final String contentType;
+        final String eTag;
+
+        StubResponse(int status, String body, String eTag) {
+            this(status, body == null ? null : body.getBytes(StandardCharsets.UTF_8), "application/json", eTag);
+        }
+
+        StubResponse(int status, byte[] body, String contentType, String eTag) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+            this.eTag = eTag;
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService handlers = Executors.newFixedThreadPool(8);
+    private final ScheduledExecutorService responders = Executors.newScheduledThreadPool(8);
+    private final LatencyDistribution latency;
+    private final AtomicLong requests = new AtomicLong();
+
+    StubDownstreamServer(LatencyDistribution latency) throws IOException {
+        this.latency = latency;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        server.setExecutor(handlers);
+    }
+
+    /**
+     * Serve a path, the handler being given the request query parameters and headers
+     *
+     * @param path    the path served
+     * @param handler the response of a request
+     * @return this server
+     */
+    StubDownstreamServer route(String path, Function<HttpExchange, StubResponse> handler) {
+        server.createContext(path, exchange -> {
+            requests.incrementAndGet();
+            StubResponse response = handler.apply(exchange);
+            responders.schedule(() -> respond(exchange, response), latency.nextDelay(), TimeUnit.MILLISECONDS);
+        });
+        return this;
+    }
+
+    StubDownstreamServer start() {
+        server.start();
+        return this;
+    }
+
+    String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    long getRequestCount() {
+        return requests.get();
+    }
+
+    static Map<String, String> queryParameters(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        if (uri.getRawQuery() == null) return parameters;
+        for (String parameter : uri.getRawQuery().split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) parameters.put(parameter.substring(0, equals), parameter.substring(equals + 1));
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, StubResponse response) {
+        try {
+            if (response.eTag != null) exchange.getResponseHeaders().set("ETag", response.eTag);
+            if (response.body == null) {
+                exchange.sendResponseHeaders(response.status, -1);
+            } else {
+                exchange.getResponseHeaders().set("Content-Type", response.contentType);
+                exchange.sendResponseHeaders(response.status, response.body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response.body);
+                }
+            }
+        } catch (IOException e) {
+            // the client gave up waiting, it records the failure
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        responders.shutdownNow();
+        handlers.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package tourGuide.integration;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestGpsUtilThroughput {
+
+    /*
+     * Measures the location throughput of a running GpsUtil instance (http://localhost:8002) under 1000 concurrent clients.
+     * GpsUtil's library sleeps 30 to 100 ms per location and is rate limited to 1000 locations per second per instance.
+     * Run on demand by the loadTest task, e.g. ./gradlew loadTest --tests '*TestGpsUtilThroughput' -Dgps.util.proxy.url=http://localhost:8002,
+     * the throughput and latencies are written to build/reports/load/gps-util-throughput.properties.
+     */
+
+    private static final String GPS_UTIL_URL = System.getProperty("gps.util.proxy.url", "http://localhost:8002");
+    private static final int CLIENTS = 1000;
+    private static final int CALLS_PER_CLIENT = 10;
+
+    @Test
+    public void getUserLocationWithThousandConcurrentClients() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>(CLIENTS * CALLS_PER_CLIENT));
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.execute(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                    for (int call = 0; call < CALLS_PER_CLIENT; call++) {
+                        long callStart = System.nanoTime();
+                        if (getUserLocation() == 200) latencies.add(System.nanoTime() - callStart);
+                        else errors.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                }
+            });
+        }
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - begin;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        Properties report = new Properties();
+        report.setProperty("gps.util.url", GPS_UTIL_URL);
+        report.setProperty("requests.per.second", String.valueOf(sorted.size() * 1_000_000_000L / elapsed));
+        report.setProperty("latency.p50.ms", String.valueOf(percentile(sorted, 0.50)));
+        report.setProperty("latency.p99.ms", String.valueOf(percentile(sorted, 0.99)));
+        report.setProperty("latency.max.ms", String.valueOf(percentile(sorted, 1.0)));
+        report.setProperty("errors", String.valueOf(errors.get()));
+        Path reportFile = Paths.get("build", "reports", "load", "gps-util-throughput.properties");
+        Files.createDirectories(reportFile.getParent());
+        try (OutputStream out = Files.newOutputStream(reportFile)) {
+            report.store(out, "GpsUtil location, " + CLIENTS + " clients, " + CALLS_PER_CLIENT + " calls per client");
+        }
+        assertEquals("Failed calls, see " + reportFile, 0, errors.get());
+    }
+
+    private static int getUserLocation() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(GPS_UTIL_URL + "/location?userId=" + UUID.randomUUID()).openConnection();
+        connection.setConnectTimeout(60000);
+        connection.setReadTimeout(60000);
+        int status = connection.getResponseCode();
+        try (InputStream body = status == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (body != null) while (body.read() != -1) ;
+        }
+        return status;
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) return 0;
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, index)));
+    }
+}
@@ -0,0 +1,344 @@
+package tourGuide.integration;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tourGuide.Application;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.model.user.User;
+import tourGuide.proxies.GpsUtilProxy;
+import tourGuide.service.RewardsServiceImpl;
+import tourGuide.service.TourGuideServiceImpl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestLoadHarness {
+
+    /*
+     * Reproducible load test of TourGuide against in-process stubs of GpsUtil and RewardCentral.
+     *
+     *     It only runs when the loadTest task is asked for, not with the unit tests nor with check,
+     *     the baseline being measured on a given machine.
+     *     The application is started with its production configuration (proxies, limiters, caches), only the
+     *     downstream urls change. Every setting can be given as a system property, e.g.
+     *
+     *         ./gradlew loadTest -Dtour.guide.load.users=1000000 -Dtour.guide.load.reward.central.latency=lognormal:500:0.5
+     *
+     *     tour.guide.load.users                   simulated users per phase (10000)
+     *     tour.guide.load.concurrency             operations in flight (100)
+     *     tour.guide.load.gps.util.latency        GpsUtil response delay in ms (uniform:30:100, as the gpsUtil library)
+     *     tour.guide.load.reward.central.latency  RewardCentral response delay in ms (uniform:1:1000, as the RewardCentral library)
+     *     tour.guide.load.regression.threshold    tolerated degradation against load-baseline.properties (0.5)
+     *
+     *     The tracking phase measures trackUserLocation until its future completes. The rewards phase measures
+     *     calculateRewards until every reward of the user is added. Results are written to
+     *     build/reports/load/load-report.properties, which can replace the baseline after an intended change.
+     *     The baseline holds for the default latencies, with other latencies the regression check is skipped.
+     */
+
+    private static final String GPS_UTIL_LATENCY = System.getProperty("tour.guide.load.gps.util.latency", "uniform:30:100");
+    private static final String REWARD_CENTRAL_LATENCY = System.getProperty("tour.guide.load.reward.central.latency", "uniform:1:1000");
+    private static final int USERS = Integer.getInteger("tour.guide.load.users", 10000);
+    private static final int CONCURRENCY = Integer.getInteger("tour.guide.load.concurrency", 100);
+    private static final double REGRESSION_THRESHOLD = Double.parseDouble(System.getProperty("tour.guide.load.regression.threshold", "0.5"));
+    private static final int CATALOG_SIZE = 100;
+    private static final int REWARD_POINTS = 1;
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private static StubDownstreamServer gpsUtil;
+    private static StubDownstreamServer rewardCentral;
+    private static ConfigurableApplicationContext context;
+    private static List<AttractionBean> attractions;
+
+    @BeforeClass
+    public static void startServices() throws IOException {
+        Locale.setDefault(new Locale("en", "US"));
+        attractions = attractions();
+        String attractionsJson = attractionsJson(attractions);
+        String attractionsETag = "\"" + attractionsJson.hashCode() + "\"";
+        gpsUtil = new StubDownstreamServer(LatencyDistribution.parse(GPS_UTIL_LATENCY))
+                .route("/location", exchange -> new StubDownstreamServer.StubResponse(200,
+                        // a location far from every attraction, so that tracking awards nothing
+                        "{\"userId\":\"" + StubDownstreamServer.queryParameters(exchange.getRequestURI()).get("userId")
+                                + "\",\"location\":{\"latitude\":0.0,\"longitude\":0.0},\"timeVisited\":" + System.currentTimeMillis() + "}", null))
+                .route("/attractions", exchange -> attractionsETag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))
+                        ? new StubDownstreamServer.StubResponse(304, null, attractionsETag)
+                        : new StubDownstreamServer.StubResponse(200, attractionsJson, attractionsETag))
+                .start();
+        rewardCentral = new StubDownstreamServer(LatencyDistribution.parse(REWARD_CENTRAL_LATENCY))
+                .route("/getRewards", exchange -> new StubDownstreamServer.StubResponse(200, String.valueOf(REWARD_POINTS), null))
+                .start();
+
+        InternalTestHelper.setInternalUserNumber(0);
+        // command line arguments, as the builder's default properties don't override application.properties
+        context = new SpringApplicationBuilder(Application.class)
+                .run("--server.port=0",
+                        "--gps.util.proxy.url=" + gpsUtil.getUrl(),
+                        "--reward.central.proxy.url=" + rewardCentral.getUrl(),
+                        "--tour.guide.proxy.wire.format=json",
+                        // every call is logged at INFO, which would measure the console instead of TourGuide
+                        "--logging.level.root=WARN",
+                        "--logging.level.tourGuide=WARN");
+    }
+
+    @AfterClass
+    public static void stopServices() {
+        if (context != null) context.close();
+        if (gpsUtil != null) gpsUtil.close();
+        if (rewardCentral != null) rewardCentral.close();
+    }
+
+    @Test
+    public void trackingAndRewardsUnderLoad() throws Exception {
+        TourGuideServiceImpl tourGuideService = context.getBean(TourGuideServiceImpl.class);
+        RewardsServiceImpl rewardsService = context.getBean(RewardsServiceImpl.class);
+        int[] expectedRewards = expectedRewards(rewardsService);
+        assertEquals(CATALOG_SIZE, context.getBean(GpsUtilProxy.class).getAttractions().size());
+
+        // warm up the JIT, the connection pools and the adaptive limiters
+        int warmUpUsers = Math.max(1000, USERS / 10);
+        run("tracking warm-up", users(warmUpUsers, false), tourGuideService::trackUserLocation);
+        run("rewards warm-up", users(warmUpUsers, true), user -> calculateRewards(rewardsService, user, expectedRewards));
+
+        LoadResult tracking = run("tracking", users(USERS, false), tourGuideService::trackUserLocation);
+        LoadResult rewards = run("rewards", users(USERS, true), user -> calculateRewards(rewardsService, user, expectedRewards));
+
+        Properties report = new Properties();
+        tracking.report(report);
+        rewards.report(report);
+        Path reportFile = Paths.get("build", "reports", "load", "load-report.properties");
+        Files.createDirectories(reportFile.getParent());
+        try (OutputStream out = Files.newOutputStream(reportFile)) {
+            report.store(out, USERS + " users, " + CONCURRENCY + " in flight, GpsUtil " + GPS_UTIL_LATENCY + ", RewardCentral " + REWARD_CENTRAL_LATENCY);
+        }
+
+        assertEquals(0, tracking.errors);
+        assertEquals(0, rewards.errors);
+        Properties baseline = new Properties();
+        try (InputStream in = TestLoadHarness.class.getResourceAsStream("/load-baseline.properties")) {
+            baseline.load(in);
+        }
+        if (GPS_UTIL_LATENCY.equals(baseline.getProperty("gps.util.latency"))
+                && REWARD_CENTRAL_LATENCY.equals(baseline.getProperty("reward.central.latency"))) {
+            tracking.checkAgainst(baseline);
+            rewards.checkAgainst(baseline);
+        } else {
+            System.out.println("Load harness: latencies differ from the baseline, regression check skipped");
+        }
+    }
+
+    private LoadResult run(String phase, List<User> users, Function<User, CompletableFuture<?>> operation) throws InterruptedException {
+        Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        long begin = System.nanoTime();
+        for (User user : users) {
+            inFlight.acquire();
+            long start = System.nanoTime();
+            CompletableFuture<?> result;
+            try {
+                result = operation.apply(user);
+            } catch (RuntimeException e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+            result.whenComplete((value, error) -> {
+                if (error == null) latencies.recordValue(Math.min(HIGHEST_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+                else errors.incrementAndGet();
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(CONCURRENCY);
+        LoadResult result = new LoadResult(phase, latencies, errors.get(), System.nanoTime() - begin);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Calculate the rewards of a user, completing once every expected reward is added
+     */
+    private CompletableFuture<Void> calculateRewards(RewardsServiceImpl rewardsService, User user, int[] expectedRewards) {
+        int expected = expectedRewards[attractionIndex(user)] * REWARD_POINTS;
+        CompletableFuture<Void> rewarded = new CompletableFuture<>();
+        RewardWatcher.INSTANCE.watch(user, expected, rewarded);
+        rewardsService.calculateRewards(user);
+        return rewarded;
+    }
+
+    private static List<User> users(int count, boolean atAttraction) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User(UUID.randomUUID(), "loadUser" + i, "000", "loadUser" + i + "@tourGuide.com");
+            if (atAttraction) {
+                AttractionBean attraction = attractions.get(attractionIndex(user));
+                user.addToVisitedLocations(new VisitedLocationBean(user.getUserId(), new LocationBean(attraction.latitude, attraction.longitude), new Date()));
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static int attractionIndex(User user) {
+        return Math.floorMod(user.getUserId().hashCode(), CATALOG_SIZE);
+    }
+
+    private static int[] expectedRewards(RewardsServiceImpl rewardsService) {
+        int[] expectedRewards = new int[CATALOG_SIZE];
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            VisitedLocationBean visitedLocation = new VisitedLocationBean(null, attractions.get(i), new Date());
+            expectedRewards[i] = (int) attractions.stream().filter(attraction -> rewardsService.nearAttraction(visitedLocation, attraction)).count();
+        }
+        return expectedRewards;
+    }
+
+    static List<AttractionBean> attractions() {
+        Random random = new Random(42);
+        List<AttractionBean> attractions = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            attractions.add(new AttractionBean("attraction" + i, "city", "state", 25 + random.nextDouble() * 24, -124 + random.nextDouble() * 57));
+        }
+        return attractions;
+    }
+
+    static String attractionsJson(List<AttractionBean> attractions) {
+        StringBuilder json = new StringBuilder("[");
+        for (AttractionBean attraction : attractions) {
+            if (json.length() > 1) json.append(',');
+            json.append("{\"attractionName\":\"").append(attraction.attractionName)
+                    .append("\",\"city\":\"").append(attraction.city)
+                    .append("\",\"state\":\"").append(attraction.state)
+                    .append("\",\"attractionId\":\"").append(attraction.attractionId)
+                    .append("\",\"latitude\":").append(attraction.latitude)
+                    .append(",\"longitude\":").append(attraction.longitude).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Completes the rewards of the watched users once their reward points total is reached, or fails them after a timeout.
+     * A single thread polls the users in flight, so the rewards path runs unchanged.
+     */
+    private static final class RewardWatcher implements Runnable {
+        private static final RewardWatcher INSTANCE = new RewardWatcher();
+        private static final long TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+        private final Map<User, Watch> watches = new ConcurrentHashMap<>();
+
+        private RewardWatcher() {
+            Thread thread = new Thread(this, "load-reward-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void watch(User user, int expected, CompletableFuture<Void> rewarded) {
+            watches.put(user, new Watch(expected, System.nanoTime() + TIMEOUT_NANOS, rewarded));
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                long now = System.nanoTime();
+                watches.forEach((user, watch) -> {
+                    if (user.getRewardPointsTotal() >= watch.expected) {
+                        watches.remove(user);
+                        watch.rewarded.complete(null);
+                    } else if (now - watch.deadline > 0) {
+                        watches.remove(user);
+                        watch.rewarded.completeExceptionally(new TimeoutException(user.getRewardPointsTotal() + " of " + watch.expected + " reward points"));
+                    }
+                });
+                try {
+                    TimeUnit.MICROSECONDS.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private static final class Watch {
+            private final int expected;
+            private final long deadline;
+            private final CompletableFuture<Void> rewarded;
+
+            private Watch(int expected, long deadline, CompletableFuture<Void> rewarded) {
+                this.expected = expected;
+                this.deadline = deadline;
+                this.rewarded = rewarded;
+            }
+        }
+    }
+
+    private static final class LoadResult {
+        private final String phase;
+        private final Histogram latencies;
+        private final int errors;
+        private final double throughput;
+
+        private LoadResult(String phase, Histogram latencies, int errors, long elapsedNanos) {
+            this.phase = phase;
+            this.latencies = latencies;
+            this.errors = errors;
+            this.throughput = latencies.getTotalCount() * 1e9 / elapsedNanos;
+        }
+
+        private double percentileMillis(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        void report(Properties report) {
+            report.setProperty("gps.util.latency", GPS_UTIL_LATENCY);
+            report.setProperty("reward.central.latency", REWARD_CENTRAL_LATENCY);
+            report.setProperty(phase + ".throughput", String.format(Locale.US, "%.0f", throughput));
+            report.setProperty(phase + ".p50.ms", String.format(Locale.US, "%.1f", percentileMillis(50)));
+            report.setProperty(phase + ".p95.ms", String.format(Locale.US, "%.1f", percentileMillis(95)));
+            report.setProperty(phase + ".p99.ms", String.format(Locale.US, "%.1f", percentileMillis(99)));
+            report.setProperty(phase + ".p999.ms", String.format(Locale.US, "%.1f", percentileMillis(99.9)));
+        }
+
+        void checkAgainst(Properties baseline) {
+            double baselineThroughput = Double.parseDouble(baseline.getProperty(phase + ".throughput"));
+            double baselineP99 = Double.parseDouble(baseline.getProperty(phase + ".p99.ms"));
+            assertTrue(phase + " throughput " + String.format(Locale.US, "%.0f", throughput) + "/s regressed from " + baselineThroughput + "/s",
+                    throughput >= baselineThroughput * (1 - REGRESSION_THRESHOLD));
+            assertTrue(phase + " p99 " + percentileMillis(99) + " ms regressed from " + baselineP99 + " ms",
+                    percentileMillis(99) <= baselineP99 * (1 + REGRESSION_THRESHOLD));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "Load harness %s: %d operations, %.0f/s, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, p999 %.1f ms, max %.1f ms, errors %d",
+                    phase, latencies.getTotalCount(), throughput, percentileMillis(50), percentileMillis(95), percentileMillis(99),
+                    percentileMillis(99.9), latencies.getMaxValue() / 1000.0, errors);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package tourGuide.integration;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import tourGuide.Application;
+import tourGuide.helper.InternalTestHelper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestStackCapacity {
+
+    /*
+     * Compares how many concurrent clients the servlet and the reactive stacks serve, against in-process stubs of GpsUtil and RewardCentral.
+     *
+     *     It only runs when the loadTest task is asked for, not with the unit tests nor with check.
+     *     Each stack is started in turn with its production configuration, the reactive one through the reactive profile,
+     *     then every endpoint is called by growing numbers of clients, each one sending its next request once answered.
+     *     Every setting can be given as a system property, e.g.
+     *
+     *         ./gradlew loadTest -Dtour.guide.load.capacity.clients=100,1000,4000 -Dtour.guide.load.reward.central.latency=fixed:200
+     *
+     *     tour.guide.load.capacity.clients        numbers of concurrent clients measured (50,200,800)
+     *     tour.guide.load.capacity.requests       requests sent per endpoint and number of clients (4000)
+     *     tour.guide.load.capacity.p99.ms         p99 latency under which a number of clients is served (1000)
+     *     tour.guide.load.gps.util.latency        GpsUtil response delay in ms (uniform:30:100)
+     *     tour.guide.load.reward.central.latency  RewardCentral response delay in ms (uniform:50:150)
+     *
+     *     The capacity of a stack on an endpoint is the largest number of clients served without error under the p99 latency,
+     *     it is written with the throughput and latencies of every level to build/reports/load/stack-capacity.properties.
+     *     A servlet request holds a Tomcat thread until it is answered, a reactive one only an event loop turn. How many more requests
+     *     per second the reactive stack answers with the most clients depends on the machine, so the ratio is reported, not asserted,
+     *     only the errors of the reactive stack failing the test.
+     *     Its nearby attractions send the five RewardCentral calls of a request at once rather than one after the other,
+     *     the adaptive limiter queueing them under load, so their tail latency says more about the limiter than about the stack.
+     */
+
+    private static final List<Integer> CLIENTS = Arrays.stream(System.getProperty("tour.guide.load.capacity.clients", "50,200,800").split(","))
+            .map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+    private static final int REQUESTS = Integer.getInteger("tour.guide.load.capacity.requests", 4000);
+    private static final long P99_MILLIS = Long.getLong("tour.guide.load.capacity.p99.ms", 1000);
+    private static final String GPS_UTIL_LATENCY = System.getProperty("tour.guide.load.gps.util.latency", "uniform:30:100");
+    private static final String REWARD_CENTRAL_LATENCY = System.getProperty("tour.guide.load.reward.central.latency", "uniform:50:150");
+    private static final int USERS = 1000;
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private static StubDownstreamServer gpsUtil;
+    private static StubDownstreamServer rewardCentral;
+    private static WebClient webClient;
+
+    /**
+     * An endpoint measured, the user of each request following the request index
+     */
+    private enum Endpoint {
+        LOCATION("/getLocation?userName=internalUser"),
+        NEARBY_ATTRACTIONS("/getNearbyAttractions?userName=internalUser");
+
+        private final String uriPrefix;
+
+        Endpoint(String uriPrefix) {
+            this.uriPrefix = uriPrefix;
+        }
+
+        String uri(String baseUrl, int request) {
+            return baseUrl + uriPrefix + (request % USERS);
+        }
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '.');
+        }
+    }
+
+    @BeforeClass
+    public static void startServices() throws IOException {
+        Locale.setDefault(new Locale("en", "US"));
+        String attractionsJson = TestLoadHarness.attractionsJson(TestLoadHarness.attractions());
+        String attractionsETag = "\"" + attractionsJson.hashCode() + "\"";
+        gpsUtil = new StubDownstreamServer(LatencyDistribution.parse(GPS_UTIL_LATENCY))
+                .route("/location", exchange -> new StubDownstreamServer.StubResponse(200,
+                        "{\"userId\":\"" + StubDownstreamServer.queryParameters(exchange.getRequestURI()).get("userId")
+                                + "\",\"location\":{\"latitude\":0.0,\"longitude\":0.0},\"timeVisited\":" + System.currentTimeMillis() + "}", null))
+                .route("/attractions", exchange -> attractionsETag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))
+                        ? new StubDownstreamServer.StubResponse(304, null, attractionsETag)
+                        : new StubDownstreamServer.StubResponse(200, attractionsJson, attractionsETag))
+                .start();
+        rewardCentral = new StubDownstreamServer(LatencyDistribution.parse(REWARD_CENTRAL_LATENCY))
+                .route("/getRewards", exchange -> new StubDownstreamServer.StubResponse(200, "1", null))
+                .start();
+        // a connection per client, the default pool would queue the largest numbers of clients on the client side
+        webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(ConnectionProvider.elastic("stack-capacity"))))
+                .build();
+    }
+
+    @AfterClass
+    public static void stopServices() {
+        if (gpsUtil != null) gpsUtil.close();
+        if (rewardCentral != null) rewardCentral.close();
+    }
+
+    @Test
+    public void servletAndReactiveCapacity() throws IOException {
+        Properties report = new Properties();
+        report.setProperty("gps.util.latency", GPS_UTIL_LATENCY);
+        report.setProperty("reward.central.latency", REWARD_CENTRAL_LATENCY);
+        List<LevelResult> servlet = measure("servlet", report);
+        List<LevelResult> reactive = measure("reactive", report);
+
+        Path reportFile = Paths.get("build", "reports", "load", "stack-capacity.properties");
+        Files.createDirectories(reportFile.getParent());
+        for (LevelResult result : reactive) {
+            assertEquals(result.toString(), 0, result.errors);
+        }
+        for (Endpoint endpoint : Endpoint.values()) {
+            LevelResult servletMostClients = mostClients(servlet, endpoint);
+            LevelResult reactiveMostClients = mostClients(reactive, endpoint);
+            report.setProperty("reactive.over.servlet." + endpoint.tag() + ".throughput.ratio",
+                    String.format(Locale.US, "%.2f", reactiveMostClients.throughput / servletMostClients.throughput));
+        }
+        try (OutputStream out = Files.newOutputStream(reportFile)) {
+            report.store(out, "Clients " + CLIENTS + ", " + REQUESTS + " requests per level, p99 under " + P99_MILLIS + " ms");
+        }
+    }
+
+    private List<LevelResult> measure(String stack, Properties report) {
+        InternalTestHelper.setInternalUserNumber(USERS);
+        List<String> arguments = new ArrayList<>(Arrays.asList("--server.port=0",
+                "--gps.util.proxy.url=" + gpsUtil.getUrl(),
+                "--reward.central.proxy.url=" + rewardCentral.getUrl(),
+                "--tour.guide.proxy.wire.format=json",
+                // every call is logged at INFO, which would measure the console instead of TourGuide
+                "--logging.level.root=WARN",
+                "--logging.level.tourGuide=WARN"));
+        if (stack.equals("reactive")) arguments.add("--spring.profiles.active=reactive");
+        List<LevelResult> results = new ArrayList<>();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class).run(arguments.toArray(new String[0]))) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            int mostClients = CLIENTS.stream().mapToInt(Integer::intValue).max().orElse(1);
+            for (Endpoint endpoint : Endpoint.values()) {
+                // warm up the JIT, the connection pools and the adaptive limiters, and refresh the users' stale locations
+                run(stack + " warm-up", endpoint, baseUrl, mostClients);
+                for (int clients : CLIENTS) {
+                    LevelResult result = run(stack, endpoint, baseUrl, clients);
+                    result.report(report);
+                    results.add(result);
+                }
+                int capacity = capacity(results, endpoint);
+                report.setProperty(stack + "." + endpoint.tag() + ".capacity", String.valueOf(capacity));
+                System.out.println("Stack capacity " + stack + " " + endpoint.tag() + ": " + capacity + " clients");
+            }
+        }
+        return results;
+    }
+
+    private LevelResult run(String stack, Endpoint endpoint, String baseUrl, int clients) {
+        Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        AtomicInteger errors = new AtomicInteger();
+        long begin = System.nanoTime();
+        Flux.range(0, REQUESTS)
+                .flatMap(request -> {
+                    long start = System.nanoTime();
+                    return webClient.get().uri(endpoint.uri(baseUrl, request))
+                            .retrieve()
+                            .bodyToMono(String.class)
+                            .timeout(Duration.ofMinutes(1))
+                            .doOnSuccess(body -> latencies.recordValue(Math.min(HIGHEST_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start))))
+                            .doOnError(error -> errors.incrementAndGet())
+                            .onErrorResume(error -> Mono.empty());
+                }, clients)
+                .blockLast(Duration.ofMinutes(30));
+        LevelResult result = new LevelResult(stack, endpoint, clients, latencies, errors.get(), System.nanoTime() - begin);
+        System.out.println(result);
+        return result;
+    }
+
+    private static LevelResult mostClients(List<LevelResult> results, Endpoint endpoint) {
+        return results.stream()
+                .filter(result -> result.endpoint == endpoint)
+                .max(Comparator.comparingInt(result -> result.clients))
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private static int capacity(List<LevelResult> results, Endpoint endpoint) {
+        return results.stream()
+                .filter(result -> result.endpoint == endpoint && result.errors == 0 && result.percentileMillis(99) <= P99_MILLIS)
+                .mapToInt(result -> result.clients)
+                .max()
+                .orElse(0);
+    }
+
+    private static final class LevelResult {
+        private final String stack;
+        private final Endpoint endpoint;
+        private final int clients;
+        private final Histogram latencies;
+        private final int errors;
+        private final double throughput;
+
+        private LevelResult(String stack, Endpoint endpoint, int clients, Histogram latencies, int errors, long elapsedNanos) {
+            this.stack = stack;
+            this.endpoint = endpoint;
+            this.clients = clients;
+            this.latencies = latencies;
+            this.errors = errors;
+            this.throughput = latencies.getTotalCount() * 1e9 / elapsedNanos;
+        }
+
+        private double percentileMillis(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        void report(Properties report) {
+            String prefix = stack + "." + endpoint.tag() + "." + clients + ".";
+            report.setProperty(prefix + "throughput", String.format(Locale.US, "%.0f", throughput));
+            report.setProperty(prefix + "p50.ms", String.format(Locale.US, "%.1f", percentileMillis(50)));
+            report.setProperty(prefix + "p99.ms", String.format(Locale.US, "%.1f", percentileMillis(99)));
+            report.setProperty(prefix + "errors", String.valueOf(errors));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "Stack capacity %s %s, %d clients: %.0f/s, p50 %.1f ms, p99 %.1f ms, max %.1f ms, errors %d",
+                    stack, endpoint.tag(), clients, throughput, percentileMillis(50), percentileMillis(99), latencies.getMaxValue() / 1000.0, errors);
+        }
+    }
+}
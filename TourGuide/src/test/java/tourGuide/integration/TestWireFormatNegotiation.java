@@ -0,0 +1,177 @@
+package tourGuide.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import feign.Response;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tourGuide.Application;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.proxies.GpsUtilProxy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestWireFormatNegotiation {
+
+    /*
+     * The GpsUtil Feign client of a started TourGuide against a stub negotiating the wire format as GpsUtil does:
+     * Smile to the clients accepting it, JSON to the others or when Smile isn't offered.
+     */
+
+    private static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper SMILE = new ObjectMapper(new SmileFactory());
+    private static final List<AttractionBean> ATTRACTIONS = Arrays.asList(
+            new AttractionBean("Disneyland", "Anaheim", "CA", 33.817595D, -117.922008D),
+            new AttractionBean("Jackson Hole", "Jackson Hole", "WY", 43.582767D, -110.821999D));
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final long TIME_VISITED = 1546300800000L;
+
+    private static final AtomicBoolean offersSmile = new AtomicBoolean();
+    private static final AtomicReference<String> lastAccept = new AtomicReference<>();
+    private static StubDownstreamServer gpsUtil;
+    private static ConfigurableApplicationContext context;
+    private static GpsUtilProxy gpsUtilProxy;
+
+    @BeforeClass
+    public static void startServices() throws IOException {
+        gpsUtil = new StubDownstreamServer(LatencyDistribution.parse("fixed:0"))
+                .route("/location", exchange -> negotiate(exchange.getRequestHeaders().getFirst("Accept"), visitedLocation()))
+                .route("/attractions", exchange -> negotiate(exchange.getRequestHeaders().getFirst("Accept"), ATTRACTIONS))
+                .start();
+        InternalTestHelper.setInternalUserNumber(0);
+        context = new SpringApplicationBuilder(Application.class).run("--server.port=0", "--gps.util.proxy.url=" + gpsUtil.getUrl());
+        gpsUtilProxy = BeanFactoryAnnotationUtils.qualifiedBeanOfType(context.getBeanFactory(), GpsUtilProxy.class, GpsUtilProxy.FEIGN_CLIENT);
+    }
+
+    @AfterClass
+    public static void stopServices() {
+        if (context != null) context.close();
+        if (gpsUtil != null) gpsUtil.close();
+    }
+
+    @Before
+    public void offerSmile() {
+        offersSmile.set(true);
+    }
+
+    @Test
+    @DisplayName("Ask GpsUtil for Smile and decode the attractions it answers in Smile")
+    public void attractionsInSmile() throws IOException {
+
+        //WHEN
+        String contentType;
+        try (Response response = gpsUtilProxy.getAttractionsIfNoneMatch(null)) {
+            contentType = contentType(response.headers());
+        }
+        List<AttractionBean> attractions = gpsUtilProxy.getAttractions();
+
+        //THEN
+        assertTrue(lastAccept.get(), lastAccept.get().startsWith(APPLICATION_SMILE));
+        assertTrue(lastAccept.get(), lastAccept.get().contains("application/json"));
+        assertEquals(APPLICATION_SMILE, contentType);
+        assertAttractions(attractions);
+    }
+
+    @Test
+    @DisplayName("Decode the user location GpsUtil answers in Smile")
+    public void visitedLocationInSmile() {
+
+        //WHEN
+        VisitedLocationBean visitedLocation = gpsUtilProxy.getUserLocation(USER_ID);
+
+        //THEN
+        assertTrue(lastAccept.get().startsWith(APPLICATION_SMILE));
+        assertVisitedLocation(visitedLocation);
+    }
+
+    @Test
+    @DisplayName("Fall back to JSON when GpsUtil doesn't offer Smile")
+    public void jsonFallback() throws IOException {
+
+        //GIVEN
+        offersSmile.set(false);
+
+        //WHEN
+        String contentType;
+        try (Response response = gpsUtilProxy.getAttractionsIfNoneMatch(null)) {
+            contentType = contentType(response.headers());
+        }
+        List<AttractionBean> attractions = gpsUtilProxy.getAttractions();
+        VisitedLocationBean visitedLocation = gpsUtilProxy.getUserLocation(USER_ID);
+
+        //THEN
+        assertEquals("application/json", contentType);
+        assertAttractions(attractions);
+        assertVisitedLocation(visitedLocation);
+    }
+
+    private static StubDownstreamServer.StubResponse negotiate(String accept, Object body) {
+        lastAccept.set(accept);
+        boolean smile = offersSmile.get() && accept != null && accept.contains(APPLICATION_SMILE);
+        try {
+            return smile
+                    ? new StubDownstreamServer.StubResponse(200, SMILE.writeValueAsBytes(body), APPLICATION_SMILE, null)
+                    : new StubDownstreamServer.StubResponse(200, JSON.writeValueAsBytes(body), "application/json", null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the model of GpsUtil, whose location property is named location
+    private static Map<String, Object> visitedLocation() {
+        Map<String, Object> location = new LinkedHashMap<>();
+        location.put("latitude", 33.817595D);
+        location.put("longitude", -117.922008D);
+        Map<String, Object> visitedLocation = new LinkedHashMap<>();
+        visitedLocation.put("userId", USER_ID.toString());
+        visitedLocation.put("location", location);
+        visitedLocation.put("timeVisited", TIME_VISITED);
+        return visitedLocation;
+    }
+
+    private static String contentType(Map<String, Collection<String>> headers) {
+        return headers.entrySet().stream()
+                .filter(header -> header.getKey().equalsIgnoreCase("Content-Type"))
+                .flatMap(header -> header.getValue().stream())
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static void assertAttractions(List<AttractionBean> attractions) {
+        assertEquals(ATTRACTIONS.size(), attractions.size());
+        for (int i = 0; i < ATTRACTIONS.size(); i++) {
+            assertEquals(ATTRACTIONS.get(i).attractionName, attractions.get(i).attractionName);
+            assertEquals(ATTRACTIONS.get(i).city, attractions.get(i).city);
+            assertEquals(ATTRACTIONS.get(i).state, attractions.get(i).state);
+            assertEquals(ATTRACTIONS.get(i).latitude, attractions.get(i).latitude, 0);
+            assertEquals(ATTRACTIONS.get(i).longitude, attractions.get(i).longitude, 0);
+        }
+    }
+
+    private static void assertVisitedLocation(VisitedLocationBean visitedLocation) {
+        assertEquals(USER_ID, visitedLocation.userId);
+        assertEquals(33.817595D, visitedLocation.locationBean.latitude, 0);
+        assertEquals(-117.922008D, visitedLocation.locationBean.longitude, 0);
+        assertEquals(TIME_VISITED, visitedLocation.timeVisited.getTime());
+    }
+}
@@ -0,0 +1,68 @@
+package tourGuide.integration;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.Test;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestWireFormatPerformance {
+
+    /*
+     * Compares the payloads exchanged with GpsUtil and RewardCentral in JSON and in Smile: both decode alike,
+     * Smile taking fewer bytes on the wire. The encoding and decoding times are measured by WireFormatBenchmark,
+     * the negotiation itself is tested by TestWireFormatNegotiation.
+     */
+
+    private final ObjectMapper json = mapper(new ObjectMapper());
+    private final ObjectMapper smile = mapper(new ObjectMapper(new SmileFactory()));
+
+    @Test
+    public void visitedLocation() throws Exception {
+        VisitedLocationBean visitedLocation = new VisitedLocationBean(UUID.randomUUID(), new LocationBean(33.817595D, -117.922008D), new Date());
+
+        assertTrue(compare("visitedLocation", visitedLocation, new TypeReference<VisitedLocationBean>() {}));
+    }
+
+    @Test
+    public void attractions() throws Exception {
+        List<AttractionBean> attractions = new ArrayList<>();
+        for (int i = 0; i < 26; i++) {
+            attractions.add(new AttractionBean("Attraction " + i, "City " + i, "CA", 33.817595D + i, -117.922008D + i));
+        }
+
+        assertTrue(compare("attractions", attractions, new TypeReference<List<AttractionBean>>() {}));
+    }
+
+    @Test
+    public void rewardPoints() throws Exception {
+        // a bare number is smaller in JSON because of the 4 bytes Smile header, only the decoding is compared
+        assertEquals(Integer.valueOf(732), json.readValue(json.writeValueAsBytes(732), Integer.class));
+        assertEquals(Integer.valueOf(732), smile.readValue(smile.writeValueAsBytes(732), Integer.class));
+    }
+
+    private boolean compare(String payload, Object value, TypeReference<?> type) throws Exception {
+        byte[] jsonBytes = json.writeValueAsBytes(value);
+        byte[] smileBytes = smile.writeValueAsBytes(value);
+        // both encodings decode to the same model
+        assertEquals(payload, json.writeValueAsString(json.readValue(jsonBytes, type)), json.writeValueAsString(smile.readValue(smileBytes, type)));
+        return smileBytes.length < jsonBytes.length;
+    }
+
+    private static ObjectMapper mapper(ObjectMapper mapper) {
+        return mapper.registerModule(new ParameterNamesModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+}
@@ -23,11 +23,13 @@ import tripPricer.Provider;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -126,20 +128,27 @@ public class TourGuideIT {
     public void trackUserLocation() throws ExecutionException, InterruptedException {
 
         //GIVEN
+        tourGuideService.refreshAttractionZones();
         User user1 = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
         tourGuideService.addUser(user1);
         user1.clearVisitedLocations();
+        // not an arrival, the history isn't scanned again when the user is tracked
         user1.addToVisitedLocations(new VisitedLocationBean(user1.getUserId(), gpsUtilProxy.getAttractions().get(1), new Date()));
-        int userRewards = user1.getUserRewards().size();
 
         //WHEN
-        CompletableFuture<VisitedLocationBean> visitedLocation = tourGuideService.trackUserLocation(user1);
+        VisitedLocationBean visitedLocation = tourGuideService.trackUserLocation(user1).get();
         TimeUnit.MILLISECONDS.sleep(5000);
-        int userRewardsAfterTrack = user1.getUserRewards().size();
 
         //THEN
-        assertEquals(visitedLocation.get().getUserId(), user1.getUserId());
-        assertTrue(userRewards < userRewardsAfterTrack);
+        assertEquals(visitedLocation.getUserId(), user1.getUserId());
+        Set<String> nearbyAttractions = gpsUtilProxy.getAttractions().stream()
+                .filter(attraction -> rewardsService.nearAttraction(visitedLocation, attraction))
+                .map(AttractionBean::getAttractionName)
+                .collect(Collectors.toSet());
+        Set<String> rewardedAttractions = user1.getUserRewards().stream()
+                .map(userReward -> userReward.attraction.getAttractionName())
+                .collect(Collectors.toSet());
+        assertEquals(nearbyAttractions, rewardedAttractions);
     }
 
     @Test
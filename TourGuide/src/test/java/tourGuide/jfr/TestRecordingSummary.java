@@ -0,0 +1,100 @@
+package tourGuide.jfr;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.configuration.ResilienceConfiguration;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.model.user.User;
+import tourGuide.proxies.AdaptiveConcurrencyLimiter;
+import tourGuide.proxies.GpsUtilProxy;
+import tourGuide.proxies.ResilientRewardCentralProxy;
+import tourGuide.proxies.RewardCentralProxy;
+import tourGuide.service.RewardsServiceImpl;
+import tourGuide.service.TourGuideServiceImpl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestRecordingSummary {
+
+    @Test
+    @DisplayName("Events are disabled outside a recording enabling them")
+    public void eventsDisabledByDefault() {
+
+        //THEN
+        assertFalse(new TrackerCycleEvent().isEnabled());
+        assertFalse(new LocationFetchEvent().isEnabled());
+        assertFalse(new RewardsCalculationEvent().isEnabled());
+        assertFalse(new ProxyCallEvent().isEnabled());
+    }
+
+    @Test
+    @DisplayName("Summarize the tracking, rewards and proxy call events of a recording by stage")
+    public void summarizeRecording() throws Exception {
+
+        //GIVEN
+        AttractionBean attraction = new AttractionBean("Disneyland", "Anaheim", "CA", 33.817595D, -117.922008D);
+        GpsUtilProxy gpsUtil = mock(GpsUtilProxy.class);
+        when(gpsUtil.getAttractions()).thenReturn(Collections.singletonList(attraction));
+        when(gpsUtil.getUserLocation(any(UUID.class))).thenAnswer(invocation ->
+                new VisitedLocationBean(invocation.getArgument(0), new LocationBean(attraction.latitude, attraction.longitude), new Date()));
+        RewardCentralProxy rewardCentralFeignClient = mock(RewardCentralProxy.class);
+        when(rewardCentralFeignClient.getRewards(any(UUID.class), any(UUID.class))).thenReturn(100);
+        RewardCentralProxy rewardCentral = new ResilientRewardCentralProxy(rewardCentralFeignClient, BulkheadRegistry.ofDefaults(),
+                new AdaptiveConcurrencyLimiter(ResilienceConfiguration.REWARD_CENTRAL, 10, 1, 100, 200, 1000),
+                CircuitBreakerRegistry.ofDefaults(), 10, new SimpleMeterRegistry());
+        InternalTestHelper.setInternalUserNumber(0);
+        RewardsServiceImpl rewardsService = new RewardsServiceImpl(gpsUtil, rewardCentral);
+        TourGuideServiceImpl tourGuideService = new TourGuideServiceImpl(gpsUtil, rewardsService);
+        tourGuideService.tracker.stopTracking();
+        tourGuideService.refreshAttractionZones();
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        Path recordingFile = Files.createTempFile("tourGuide", ".jfr");
+
+        //WHEN
+        try (Recording recording = new Recording()) {
+            for (String event : new String[]{LocationFetchEvent.NAME, RewardsCalculationEvent.NAME, ProxyCallEvent.NAME}) {
+                recording.enable(event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            tourGuideService.trackUserLocation(user).get();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (user.getUserRewards().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+        RecordingSummary summary = RecordingSummary.summarize(recordingFile);
+        Files.delete(recordingFile);
+        rewardsService.shutdown();
+
+        //THEN
+        assertEquals(1, summary.getStage("location fetch").getCount());
+        assertEquals(1, summary.getStage("rewards calculation").getCount());
+        assertEquals(1, summary.getStage("rewards calculation").getCounter("locations"));
+        assertEquals(1, summary.getStage("rewards calculation").getCounter("attractions"));
+        assertEquals(1, summary.getStage("rewards calculation").getCounter("lookups"));
+        assertEquals(1, summary.getStage("proxy reward-central getRewards SUCCESS").getCount());
+        assertNull(summary.getStage("tracker cycle"));
+    }
+}
@@ -0,0 +1,109 @@
+package tourGuide.proxies;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import tourGuide.exceptions.ConcurrencyLimitExceededException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestAdaptiveConcurrencyLimiter {
+
+    @Test
+    @DisplayName("Raise the limit while the calls stay under the target latency")
+    public void increaseLimitUnderTargetLatency() {
+
+        //GIVEN
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 10, 1000, 100);
+
+        //WHEN
+        for (int i = 0; i < 100; i++) {
+            concurrencyLimiter.call(() -> "ok");
+        }
+
+        //THEN
+        assertTrue(concurrencyLimiter.getLimit() > 1);
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Lower the limit when the calls exceed the target latency")
+    public void decreaseLimitOverTargetLatency() {
+
+        //GIVEN
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter("test", 10, 1, 10, 1, 100);
+
+        //WHEN
+        for (int i = 0; i < 5; i++) {
+            concurrencyLimiter.call(() -> {
+                sleep(5);
+                return "slow";
+            });
+        }
+
+        //THEN
+        assertTrue(concurrencyLimiter.getLimit() < 10);
+    }
+
+    @Test
+    @DisplayName("Give the slot back when the call throws an error")
+    public void releaseSlotOnError() {
+
+        //GIVEN
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 1, 1000, 50);
+
+        //WHEN
+        try {
+            concurrencyLimiter.call(() -> {
+                throw new StackOverflowError();
+            });
+        } catch (StackOverflowError e) {
+            // expected
+        }
+
+        //THEN
+        assertEquals(0, concurrencyLimiter.getInFlight());
+        assertEquals("ok", concurrencyLimiter.call(() -> "ok"));
+    }
+
+    @Test(expected = ConcurrencyLimitExceededException.class)
+    @DisplayName("Reject a call when no slot is freed within the maximum wait")
+    public void rejectCallOverLimit() throws InterruptedException {
+
+        //GIVEN
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 1, 1000, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        executorService.submit(() -> concurrencyLimiter.call(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "blocking";
+        }));
+        started.await();
+
+        //WHEN
+        try {
+            concurrencyLimiter.call(() -> "rejected");
+        } finally {
+            release.countDown();
+            executorService.shutdown();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
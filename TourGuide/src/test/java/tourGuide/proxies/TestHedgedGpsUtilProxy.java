@@ -0,0 +1,96 @@
+package tourGuide.proxies;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TestHedgedGpsUtilProxy {
+
+    private final UUID userId = UUID.randomUUID();
+    private final VisitedLocationBean slowLocation = new VisitedLocationBean(userId, new LocationBean(1.0, 1.0), new Date());
+    private final VisitedLocationBean fastLocation = new VisitedLocationBean(userId, new LocationBean(2.0, 2.0), new Date());
+    private final GpsUtilProxy gpsUtilProxy = mock(GpsUtilProxy.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HedgedGpsUtilProxy hedgedGpsUtilProxy;
+
+    @After
+    public void tearDown() {
+        if (hedgedGpsUtilProxy != null) hedgedGpsUtilProxy.shutdown();
+    }
+
+    @Test
+    @DisplayName("Send a second attempt when the first one is slow and keep the first answer")
+    public void getUserLocationHedgesSlowCall() {
+
+        //GIVEN
+        AtomicInteger calls = new AtomicInteger();
+        when(gpsUtilProxy.getUserLocation(any(UUID.class))).thenAnswer(invocation -> {
+            if (calls.getAndIncrement() == 0) {
+                Thread.sleep(2000);
+                return slowLocation;
+            }
+            return fastLocation;
+        });
+        hedgedGpsUtilProxy = new HedgedGpsUtilProxy(gpsUtilProxy, true, 0.95, 20, 5, meterRegistry);
+
+        //WHEN
+        VisitedLocationBean visitedLocation = hedgedGpsUtilProxy.getUserLocation(userId);
+
+        //THEN
+        assertSame(fastLocation, visitedLocation);
+        assertEquals(1, meterRegistry.get("tour.guide.gps.util.hedges.sent").counter().count(), 0);
+        assertEquals(1, meterRegistry.get("tour.guide.gps.util.hedges.won").counter().count(), 0);
+    }
+
+    @Test
+    @DisplayName("Send a single attempt when the first one answers in time")
+    public void getUserLocationWithoutHedge() {
+
+        //GIVEN
+        when(gpsUtilProxy.getUserLocation(userId)).thenReturn(fastLocation);
+        hedgedGpsUtilProxy = new HedgedGpsUtilProxy(gpsUtilProxy, true, 0.95, 1000, 5, meterRegistry);
+
+        //WHEN
+        VisitedLocationBean visitedLocation = hedgedGpsUtilProxy.getUserLocation(userId);
+
+        //THEN
+        assertSame(fastLocation, visitedLocation);
+        verify(gpsUtilProxy, times(1)).getUserLocation(userId);
+        assertEquals(0, meterRegistry.get("tour.guide.gps.util.hedges.sent").counter().count(), 0);
+    }
+
+    @Test
+    @DisplayName("Skip the second attempt when every hedging thread is busy")
+    public void getUserLocationSkipsHedgeWhenFull() {
+
+        //GIVEN
+        AtomicInteger calls = new AtomicInteger();
+        when(gpsUtilProxy.getUserLocation(any(UUID.class))).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            Thread.sleep(200);
+            return slowLocation;
+        });
+        hedgedGpsUtilProxy = new HedgedGpsUtilProxy(gpsUtilProxy, true, 0.95, 20, 5, 1, meterRegistry);
+
+        //WHEN
+        VisitedLocationBean visitedLocation = hedgedGpsUtilProxy.getUserLocation(userId);
+
+        //THEN
+        assertSame(slowLocation, visitedLocation);
+        assertEquals(1, calls.get());
+        assertEquals(0, meterRegistry.get("tour.guide.gps.util.hedges.sent").counter().count(), 0);
+        assertEquals(1, meterRegistry.get("tour.guide.gps.util.hedges.skipped").counter().count(), 0);
+    }
+}
@@ -0,0 +1,173 @@
+package tourGuide.proxies;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import feign.Request;
+import feign.Response;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.configuration.ResilienceConfiguration;
+import tourGuide.exceptions.ServiceUnavailableException;
+import tourGuide.index.LocationUpdateIndex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TestResilientProxies {
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID attractionId = UUID.randomUUID();
+    private GpsUtilProxy gpsUtilFeignClient;
+    private RewardCentralProxy rewardCentralFeignClient;
+    private LocationUpdateIndex locationUpdateIndex;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private SimpleMeterRegistry meterRegistry;
+    private ResilientGpsUtilProxy gpsUtilProxy;
+    private ResilientRewardCentralProxy rewardCentralProxy;
+
+    @Before
+    public void setUp() {
+        gpsUtilFeignClient = mock(GpsUtilProxy.class);
+        rewardCentralFeignClient = mock(RewardCentralProxy.class);
+        locationUpdateIndex = new LocationUpdateIndex();
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+        meterRegistry = new SimpleMeterRegistry();
+        gpsUtilProxy = new ResilientGpsUtilProxy(gpsUtilFeignClient, locationUpdateIndex, bulkheadRegistry,
+                new AdaptiveConcurrencyLimiter(ResilienceConfiguration.GPS_UTIL, 10, 1, 100, 200, 1000), circuitBreakerRegistry,
+                () -> new HttpMessageConverters(new MappingJackson2HttpMessageConverter(new ObjectMapper().registerModule(new ParameterNamesModule()))), meterRegistry);
+        rewardCentralProxy = new ResilientRewardCentralProxy(rewardCentralFeignClient, bulkheadRegistry,
+                new AdaptiveConcurrencyLimiter(ResilienceConfiguration.REWARD_CENTRAL, 10, 1, 100, 200, 1000), circuitBreakerRegistry, 10, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Serve the last known location while the GpsUtil breaker is open")
+    public void getUserLocationWhileBreakerOpen() {
+
+        //GIVEN
+        VisitedLocationBean lastLocation = new VisitedLocationBean(userId, new LocationBean(33.8, -117.9), new Date());
+        locationUpdateIndex.update(userId, lastLocation);
+        circuitBreakerRegistry.circuitBreaker(ResilienceConfiguration.GPS_UTIL).transitionToOpenState();
+
+        //WHEN
+        VisitedLocationBean visitedLocation = gpsUtilProxy.getUserLocation(userId);
+
+        //THEN
+        assertSame(lastLocation, visitedLocation);
+        verify(gpsUtilFeignClient, never()).getUserLocation(any(UUID.class));
+    }
+
+    @Test(expected = ServiceUnavailableException.class)
+    @DisplayName("Fail when the GpsUtil breaker is open and the user was never located")
+    public void getUserLocationWhileBreakerOpenWithoutLastLocation() {
+
+        //GIVEN
+        circuitBreakerRegistry.circuitBreaker(ResilienceConfiguration.GPS_UTIL).transitionToOpenState();
+
+        //WHEN
+        gpsUtilProxy.getUserLocation(userId);
+    }
+
+    @Test
+    @DisplayName("Serve the points last received while the RewardCentral breaker is open")
+    public void getRewardsWhileBreakerOpen() {
+
+        //GIVEN
+        when(rewardCentralFeignClient.getRewards(attractionId, userId)).thenReturn(250);
+        rewardCentralProxy.getRewards(attractionId, userId);
+        circuitBreakerRegistry.circuitBreaker(ResilienceConfiguration.REWARD_CENTRAL).transitionToOpenState();
+
+        //WHEN
+        int rewardPoints = rewardCentralProxy.getRewards(attractionId, userId);
+
+        //THEN
+        assertEquals(250, rewardPoints);
+        verify(rewardCentralFeignClient, times(1)).getRewards(attractionId, userId);
+    }
+
+    @Test
+    @DisplayName("Keep the attractions received while GpsUtil reports them unchanged")
+    public void getAttractionsNotModified() {
+
+        //GIVEN
+        String attractionsJson = "[{\"attractionName\":\"Disneyland\",\"city\":\"Anaheim\",\"state\":\"CA\",\"latitude\":33.817595,\"longitude\":-117.922008}]";
+        when(gpsUtilFeignClient.getAttractionsIfNoneMatch(null)).thenReturn(response(200, "\"v1\"", attractionsJson));
+        when(gpsUtilFeignClient.getAttractionsIfNoneMatch("\"v1\"")).thenReturn(response(304, "\"v1\"", null));
+
+        //WHEN
+        List<AttractionBean> attractions = gpsUtilProxy.getAttractions();
+        List<AttractionBean> unchangedAttractions = gpsUtilProxy.getAttractions();
+
+        //THEN
+        assertEquals(1, attractions.size());
+        assertEquals("Disneyland", attractions.get(0).getAttractionName());
+        assertSame(attractions, unchangedAttractions);
+        verify(gpsUtilFeignClient, times(1)).getAttractionsIfNoneMatch("\"v1\"");
+    }
+
+    @Test
+    @DisplayName("Time the proxy calls by method and outcome")
+    public void timeCallsByOutcome() {
+
+        //GIVEN
+        when(rewardCentralFeignClient.getRewards(attractionId, userId)).thenReturn(250);
+        rewardCentralProxy.getRewards(attractionId, userId);
+        circuitBreakerRegistry.circuitBreaker(ResilienceConfiguration.REWARD_CENTRAL).transitionToOpenState();
+
+        //WHEN
+        rewardCentralProxy.getRewards(attractionId, userId);
+        try {
+            rewardCentralProxy.getRewards(UUID.randomUUID(), userId);
+        } catch (ServiceUnavailableException e) {
+            // no points known for this attraction
+        }
+
+        //THEN
+        assertEquals(1, timerCount("getRewards", ResilientProxySupport.Outcome.SUCCESS));
+        assertEquals(1, timerCount("getRewards", ResilientProxySupport.Outcome.FALLBACK));
+        assertEquals(1, timerCount("getRewards", ResilientProxySupport.Outcome.REJECTED));
+        assertEquals(0, timerCount("getRewards", ResilientProxySupport.Outcome.ERROR));
+    }
+
+    private long timerCount(String method, ResilientProxySupport.Outcome outcome) {
+        return meterRegistry.get(ResilientProxySupport.REQUESTS_METRIC)
+                .tag("service", ResilienceConfiguration.REWARD_CENTRAL)
+                .tag("method", method)
+                .tag("outcome", outcome.name())
+                .timer().count();
+    }
+
+    private Response response(int status, String eTag, String body) {
+        Map<String, Collection<String>> headers = new HashMap<>();
+        headers.put(HttpHeaders.ETAG, Collections.singletonList(eTag));
+        headers.put(HttpHeaders.CONTENT_TYPE, Collections.singletonList(MediaType.APPLICATION_JSON_VALUE));
+        return Response.builder()
+                .status(status)
+                .headers(headers)
+                .body(body, StandardCharsets.UTF_8)
+                .request(Request.create(Request.HttpMethod.GET, "/attractions", Collections.emptyMap(), null, StandardCharsets.UTF_8))
+                .build();
+    }
+}
@@ -0,0 +1,224 @@
+package tourGuide.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.helpers.NOPAppender;
+import feign.Response;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.slf4j.LoggerFactory;
+import tourGuide.beans.AttractionBean;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.model.user.User;
+import tourGuide.model.user.UserReward;
+import tourGuide.proxies.GpsUtilProxy;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bytes allocated per operation on the hot paths, measured with the allocation counter of the calling thread.
+ * The budgets don't depend on the catalog or history size, an operation allocating per attraction or per location exceeds them.
+ * The tourGuide loggers stay at the DEBUG level of application.properties so the log calls are paid for,
+ * only their output is discarded.
+ */
+public class TestAllocationBudgets {
+
+    private static final int WARMUP_OPERATIONS = 20_000;
+    private static final int MEASURED_OPERATIONS = 10_000;
+    // an evaluation tests every location against every attraction, fewer of them are enough to reach the compiled code
+    private static final int REWARDS_EVALUATION_OPERATIONS = 2_000;
+
+    private static final long DISTANCE_BUDGET = 0;
+    private static final long NEARBY_ATTRACTIONS_BUDGET = 512;
+    private static final long REWARDS_EVALUATION_BUDGET = 256;
+    private static final long DUPLICATE_REWARD_BUDGET = 64;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final ch.qos.logback.classic.Logger TOUR_GUIDE_LOGGER =
+            ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger("tourGuide");
+    private static final NOPAppender<ILoggingEvent> DISCARDING_APPENDER = new NOPAppender<>();
+    private static Level initialLevel;
+
+    // results are written here so the measured operations can't be optimized away
+    private static volatile Object sink;
+    private static volatile double distanceSink;
+
+    private final List<AttractionBean> attractions = new ArrayList<>();
+    private final StubGpsUtilProxy gpsUtil = new StubGpsUtilProxy(attractions);
+    private RewardsServiceImpl rewardsService;
+    private TourGuideServiceImpl tourGuideService;
+
+    @BeforeClass
+    public static void discardLogOutput() {
+        initialLevel = TOUR_GUIDE_LOGGER.getLevel();
+        DISCARDING_APPENDER.setContext(TOUR_GUIDE_LOGGER.getLoggerContext());
+        DISCARDING_APPENDER.start();
+        TOUR_GUIDE_LOGGER.setLevel(Level.DEBUG);
+        TOUR_GUIDE_LOGGER.addAppender(DISCARDING_APPENDER);
+        TOUR_GUIDE_LOGGER.setAdditive(false);
+    }
+
+    @AfterClass
+    public static void restoreLogOutput() {
+        TOUR_GUIDE_LOGGER.setAdditive(true);
+        TOUR_GUIDE_LOGGER.detachAppender(DISCARDING_APPENDER);
+        TOUR_GUIDE_LOGGER.setLevel(initialLevel);
+        DISCARDING_APPENDER.stop();
+    }
+
+    @Before
+    public void init() {
+        InternalTestHelper.setInternalUserNumber(0);
+        rewardsService = new RewardsServiceImpl(gpsUtil, (attractionId, userId) -> 1);
+        tourGuideService = new TourGuideServiceImpl(gpsUtil, rewardsService);
+        tourGuideService.tracker.stopTracking();
+    }
+
+    @Test
+    @DisplayName("Distance between two locations doesn't allocate")
+    public void getDistanceWithinBudget() {
+
+        //GIVEN
+        LocationBean location = new LocationBean(33.817595D, -117.922008D);
+        VisitedLocationBean visitedLocation = new VisitedLocationBean(UUID.randomUUID(), location, new Date());
+        AttractionBean attraction = new AttractionBean("name", "city", "state", 33.917595D, -117.922008D);
+
+        //WHEN
+        long allocatedBytes = allocatedBytesPerOperation(() -> distanceSink = rewardsService.getDistance(attraction, location));
+        long nearAllocatedBytes = allocatedBytesPerOperation(() -> sink = rewardsService.nearAttraction(visitedLocation, attraction) ? attraction : null);
+
+        //THEN
+        assertTrue("getDistance allocated " + allocatedBytes + " bytes per call", allocatedBytes <= DISTANCE_BUDGET);
+        assertTrue("nearAttraction allocated " + nearAllocatedBytes + " bytes per call", nearAllocatedBytes <= DISTANCE_BUDGET);
+    }
+
+    @Test
+    @DisplayName("Closest attractions allocate the same whatever the catalog size")
+    public void getNearByAttractionsWithinBudget() {
+
+        //GIVEN
+        VisitedLocationBean visitedLocation = new VisitedLocationBean(UUID.randomUUID(), new LocationBean(33.817595D, -117.922008D), new Date());
+
+        //WHEN
+        attractions.addAll(randomAttractions(26));
+        long smallCatalogBytes = allocatedBytesPerOperation(() -> sink = tourGuideService.getNearByAttractions(visitedLocation));
+        attractions.addAll(randomAttractions(974));
+        long largeCatalogBytes = allocatedBytesPerOperation(() -> sink = tourGuideService.getNearByAttractions(visitedLocation));
+
+        //THEN
+        assertEquals(5, tourGuideService.getNearByAttractions(visitedLocation).size());
+        assertTrue("getNearByAttractions allocated " + smallCatalogBytes + " bytes per call for 26 attractions",
+                smallCatalogBytes <= NEARBY_ATTRACTIONS_BUDGET);
+        assertTrue("getNearByAttractions allocated " + largeCatalogBytes + " bytes per call for 1000 attractions",
+                largeCatalogBytes <= NEARBY_ATTRACTIONS_BUDGET);
+    }
+
+    @Test
+    @DisplayName("Rewards evaluation allocates the same whatever the catalog and history size")
+    public void calculateRewardsWithinBudget() {
+
+        //GIVEN
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        attractions.addAll(randomAttractions(1000));
+        // far from every attraction, no reward lookup is scheduled
+        VisitedLocationBean[] history = new VisitedLocationBean[10];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = new VisitedLocationBean(user.getUserId(), new LocationBean(-89D, 0D), new Date());
+        }
+        user.addUserReward(new UserReward(history[0], attractions.get(0), 10));
+
+        //WHEN
+        long allocatedBytes = allocatedBytesPerOperation(() -> rewardsService.calculateRewards(user, history, attractions),
+                REWARDS_EVALUATION_OPERATIONS, REWARDS_EVALUATION_OPERATIONS);
+
+        //THEN
+        assertEquals(1, user.getUserRewards().size());
+        assertTrue("the rewards evaluation allocated " + allocatedBytes + " bytes per call for 10 locations and 1000 attractions",
+                allocatedBytes <= REWARDS_EVALUATION_BUDGET);
+    }
+
+    @Test
+    @DisplayName("Rejecting an already rewarded attraction doesn't copy the rewards")
+    public void addDuplicateUserRewardWithinBudget() {
+
+        //GIVEN
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        VisitedLocationBean visitedLocation = new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), new Date());
+        List<AttractionBean> rewardedAttractions = randomAttractions(100);
+        rewardedAttractions.forEach(attraction -> user.addUserReward(new UserReward(visitedLocation, attraction, 10)));
+        UserReward duplicate = new UserReward(visitedLocation, rewardedAttractions.get(99), 10);
+
+        //WHEN
+        long allocatedBytes = allocatedBytesPerOperation(() -> sink = user.addUserReward(duplicate));
+
+        //THEN
+        assertEquals(1000, user.getRewardPointsTotal());
+        assertTrue("addUserReward allocated " + allocatedBytes + " bytes per rejected reward", allocatedBytes <= DUPLICATE_REWARD_BUDGET);
+    }
+
+    private static long allocatedBytesPerOperation(Runnable operation) {
+        return allocatedBytesPerOperation(operation, WARMUP_OPERATIONS, MEASURED_OPERATIONS);
+    }
+
+    private static long allocatedBytesPerOperation(Runnable operation, int warmupOperations, int measuredOperations) {
+        for (int i = 0; i < warmupOperations; i++) {
+            operation.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < measuredOperations; i++) {
+            operation.run();
+        }
+        return (THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore) / measuredOperations;
+    }
+
+    private static List<AttractionBean> randomAttractions(int count) {
+        Random random = new Random(count);
+        List<AttractionBean> randomAttractions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            randomAttractions.add(new AttractionBean("attraction" + i + "-" + count, "city", "state",
+                    random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180));
+        }
+        return randomAttractions;
+    }
+
+    /**
+     * Serves a fixed catalog, a Mockito mock would allocate on every invocation
+     */
+    private static class StubGpsUtilProxy implements GpsUtilProxy {
+        private final List<AttractionBean> attractions;
+
+        StubGpsUtilProxy(List<AttractionBean> attractions) {
+            this.attractions = attractions;
+        }
+
+        @Override
+        public VisitedLocationBean getUserLocation(UUID userId) {
+            return new VisitedLocationBean(userId, new LocationBean(0D, 0D), new Date());
+        }
+
+        @Override
+        public List<AttractionBean> getAttractions() {
+            return attractions;
+        }
+
+        @Override
+        public Response getAttractionsIfNoneMatch(String eTag) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package tourGuide.service;
 
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -8,15 +12,21 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.LoggerFactory;
 import org.springframework.test.context.junit4.SpringRunner;
 import tourGuide.beans.AttractionBean;
 import tourGuide.beans.LocationBean;
 import tourGuide.beans.VisitedLocationBean;
+import tourGuide.exceptions.ServiceUnavailableException;
 import tourGuide.helper.InternalTestHelper;
+import tourGuide.index.RewardLeaderboardIndex;
+import tourGuide.model.Dto.LeaderboardDto;
 import tourGuide.model.user.User;
 import tourGuide.model.user.UserReward;
 import tourGuide.proxies.GpsUtilProxy;
 import tourGuide.proxies.RewardCentralProxy;
+import tourGuide.stream.UpdateEventBroadcaster;
+import tourGuide.tracker.TripDealsPrecomputer;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -25,6 +35,7 @@ import java.util.UUID;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 
 @RunWith(SpringRunner.class)
@@ -69,6 +80,34 @@ public class TestRewardsService {
         assertEquals(gpsUtil.getAttractions().size(), user.getUserRewards().size());
     }
 
+    @Test
+    @DisplayName("Log and skip the rewards calculation when GpsUtil is unavailable")
+    public void calculateRewardsWithoutAttractions() throws InterruptedException {
+
+        //GIVEN
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        Logger rewardsLogger = (Logger) LoggerFactory.getLogger(RewardsServiceImpl.class);
+        rewardsLogger.addAppender(appender);
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        user.addToVisitedLocations(new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), new Date()));
+        doThrow(new ServiceUnavailableException("GpsUtil unavailable")).when(gpsUtil).getAttractions();
+
+        //WHEN
+        rewardsService.calculateRewards(user);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (appender.list.stream().noneMatch(event -> event.getLevel() == Level.ERROR) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        rewardsLogger.detachAppender(appender);
+        tourGuideService.tracker.stopTracking();
+
+        //THEN
+        assertTrue(user.getUserRewards().isEmpty());
+        assertTrue(appender.list.stream().anyMatch(event -> event.getLevel() == Level.ERROR
+                && event.getFormattedMessage().equals("Rewards calculation skipped for user name : jon : GpsUtil unavailable")));
+    }
+
 	@Test
     @DisplayName("Get user reward")
 	public void userGetRewards() {
@@ -136,4 +175,62 @@ public class TestRewardsService {
         Mockito.verify(rewardCentralProxy, times(1)).getRewards(attractionBean.getAttractionId(), user.getUserId());
     }
 
+    @Test
+    @DisplayName("Keep the running reward points total of a user without counting an attraction twice")
+    public void addUserRewardUpdatesTotal() {
+
+        //GIVEN
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        AttractionBean attraction1 = new AttractionBean("name1", "city", "state", 1.0, 2.0);
+        AttractionBean attraction2 = new AttractionBean("name2", "city", "state", 1.0, 2.0);
+        VisitedLocationBean visitedLocationBean = new VisitedLocationBean(user.getUserId(), new LocationBean(1.0, 2.0), new Date());
+
+        //WHEN
+        user.addUserReward(new UserReward(visitedLocationBean, attraction1, 100));
+        user.addUserReward(new UserReward(visitedLocationBean, attraction2, 50));
+        user.addUserReward(new UserReward(visitedLocationBean, attraction1, 100));
+        tourGuideService.tracker.stopTracking();
+
+        //THEN
+        assertEquals(2, user.getUserRewards().size());
+        assertEquals(150, user.getRewardPointsTotal());
+    }
+
+    @Test
+    @DisplayName("Get the leaderboard pages ranked by total reward points")
+    public void getLeaderboard() {
+
+        //GIVEN
+        RewardLeaderboardIndex rewardLeaderboardIndex = new RewardLeaderboardIndex();
+        RewardsServiceImpl leaderboardRewardsService = new RewardsServiceImpl(gpsUtil, rewardCentralProxy, new UpdateEventBroadcaster(),
+                new TripDealsPrecomputer(new TripPricerServiceImpl()), rewardLeaderboardIndex);
+        AttractionBean attraction1 = new AttractionBean("name1", "city", "state", 1.0, 2.0);
+        AttractionBean attraction2 = new AttractionBean("name2", "city", "state", 1.0, 2.0);
+        User jon = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        User jane = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+        User jim = new User(UUID.randomUUID(), "jim", "000", "jim@tourGuide.com");
+        jon.addUserReward(new UserReward(null, attraction1, 100));
+        rewardLeaderboardIndex.update(jon);
+        jane.addUserReward(new UserReward(null, attraction1, 300));
+        rewardLeaderboardIndex.update(jane);
+        jim.addUserReward(new UserReward(null, attraction1, 200));
+        rewardLeaderboardIndex.update(jim);
+        jon.addUserReward(new UserReward(null, attraction2, 400));
+        rewardLeaderboardIndex.update(jon);
+
+        //WHEN
+        LeaderboardDto firstPage = leaderboardRewardsService.getLeaderboard(0, 2);
+        LeaderboardDto secondPage = leaderboardRewardsService.getLeaderboard(1, 2);
+        tourGuideService.tracker.stopTracking();
+
+        //THEN
+        assertEquals(3, firstPage.getTotalUsers());
+        assertEquals(2, firstPage.getEntries().size());
+        assertEquals("jon", firstPage.getEntries().get(0).getUserName());
+        assertEquals(500, firstPage.getEntries().get(0).getRewardPoints());
+        assertEquals("jane", firstPage.getEntries().get(1).getUserName());
+        assertEquals(1, secondPage.getEntries().size());
+        assertEquals("jim", secondPage.getEntries().get(0).getUserName());
+        assertEquals(3, secondPage.getEntries().get(0).getRank());
+    }
 }
@@ -1,5 +1,6 @@
 package tourGuide.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -15,18 +16,40 @@ import tourGuide.beans.VisitedLocationBean;
 import tourGuide.exceptions.AttractionNotFoundException;
 import tourGuide.exceptions.UserNotFoundException;
 import tourGuide.helper.InternalTestHelper;
+import tourGuide.index.AttractionOccupancyIndex;
+import tourGuide.index.LocationUpdateIndex;
+import tourGuide.index.UserLocationGridIndex;
+import tourGuide.ingestion.LocationIngestionPipeline;
+import tourGuide.model.Dto.AttractionOccupancyDto;
+import tourGuide.model.Dto.CurrentLocationsDto;
 import tourGuide.model.Dto.NearbyAttractionListByUserDto;
+import tourGuide.model.Dto.UserLocationsPageDto;
 import tourGuide.model.user.User;
 import tourGuide.proxies.GpsUtilProxy;
+import tourGuide.proxies.HedgedGpsUtilProxy;
 import tourGuide.proxies.RewardCentralProxy;
+import tourGuide.stream.UpdateEventBroadcaster;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(SpringRunner.class)
@@ -46,6 +69,8 @@ public class TestTourGuideService {
     public void init() {
         InternalTestHelper.setInternalUserNumber(0);
         tourGuideService = new TourGuideServiceImpl(gpsUtil, rewardsService);
+        // a cycle calling the mocks while a test stubs them would make the stubbing fail at random
+        tourGuideService.tracker.stopTracking();
         rewardsService = new RewardsServiceImpl(gpsUtil, rewardCentralProxy);
     }
 
@@ -85,6 +110,36 @@ public class TestTourGuideService {
         assertEquals(visitedLocation.userId, user.getUserId());
     }
 
+    @Test
+    @DisplayName("Get a stale user location at once and refresh it in the background")
+    public void getStaleUserLocation() throws ExecutionException, InterruptedException {
+
+        //GIVEN
+        tourGuideService.tracker.stopTracking();
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        tourGuideService.addUser(user);
+        Date dayAgo = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+        VisitedLocationBean staleLocation = new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), dayAgo);
+        user.addToVisitedLocations(staleLocation);
+        VisitedLocationBean refreshedLocation = new VisitedLocationBean(user.getUserId(), new LocationBean(43.582767D, -110.821999D), new Date());
+        doReturn(refreshedLocation).when(gpsUtil).getUserLocation(user.getUserId());
+
+        //WHEN
+        VisitedLocationBean servedLocation = tourGuideService.getUserLocation(user);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (user.getLastVisitedLocation() != refreshedLocation && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        VisitedLocationBean nextServedLocation = tourGuideService.getUserLocation(user);
+
+        //THEN
+        assertEquals(staleLocation, servedLocation);
+        assertTrue(tourGuideService.isStale(servedLocation));
+        assertEquals(refreshedLocation, nextServedLocation);
+        assertFalse(tourGuideService.isStale(nextServedLocation));
+        verify(gpsUtil, times(1)).getUserLocation(user.getUserId());
+    }
+
     @Test
     @DisplayName("Get user location with an no existing user")
     public void getUserLocationWithNoExistingUser() {
@@ -153,6 +208,79 @@ public class TestTourGuideService {
         assertEquals(user.getUserId(), visitedLocation.userId);
     }
 
+    @Test
+    @DisplayName("Concurrent tracks of a user share a single GpsUtil call")
+    public void trackUserConcurrently() throws Exception {
+
+        //GIVEN
+        tourGuideService.tracker.stopTracking();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        tourGuideService = new TourGuideServiceImpl(gpsUtil, new HedgedGpsUtilProxy(gpsUtil), rewardsService, new LocationUpdateIndex(),
+                new UserLocationGridIndex(), new AttractionOccupancyIndex(), new UpdateEventBroadcaster(), new LocationIngestionPipeline(),
+                TourGuideServiceImpl.DEFAULT_LOCATION_MAX_AGE, meterRegistry);
+        tourGuideService.tracker.stopTracking();
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        tourGuideService.addUser(user);
+        CountDownLatch callersStarted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            callersStarted.await(5, TimeUnit.SECONDS);
+            return new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), new Date());
+        }).when(gpsUtil).getUserLocation(user.getUserId());
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        //WHEN
+        List<Future<CompletableFuture<VisitedLocationBean>>> calls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            calls.add(callers.submit(() -> tourGuideService.trackUserLocation(user)));
+        }
+        List<CompletableFuture<VisitedLocationBean>> tracks = new ArrayList<>();
+        for (Future<CompletableFuture<VisitedLocationBean>> call : calls) {
+            tracks.add(call.get());
+        }
+        callersStarted.countDown();
+        Set<VisitedLocationBean> trackedLocations = new HashSet<>();
+        for (CompletableFuture<VisitedLocationBean> track : tracks) {
+            trackedLocations.add(track.get(5, TimeUnit.SECONDS));
+        }
+        tourGuideService.trackUserLocation(user).get(5, TimeUnit.SECONDS);
+        callers.shutdown();
+
+        //THEN
+        assertEquals(1, trackedLocations.size());
+        assertEquals(2, user.getVisitedLocations().size());
+        verify(gpsUtil, times(2)).getUserLocation(user.getUserId());
+        assertEquals(2, meterRegistry.get("tour.guide.track.location.started").counter().count(), 0);
+        assertEquals(199, meterRegistry.get("tour.guide.track.location.deduplicated").counter().count(), 0);
+    }
+
+    @Test
+    @DisplayName("Count a track answered with the last known location as stale")
+    public void trackUserWithLastKnownLocation() throws Exception {
+
+        //GIVEN
+        tourGuideService.tracker.stopTracking();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LocationUpdateIndex locationUpdateIndex = new LocationUpdateIndex();
+        tourGuideService = new TourGuideServiceImpl(gpsUtil, new HedgedGpsUtilProxy(gpsUtil), rewardsService, locationUpdateIndex,
+                new UserLocationGridIndex(), new AttractionOccupancyIndex(), new UpdateEventBroadcaster(), new LocationIngestionPipeline(),
+                TourGuideServiceImpl.DEFAULT_LOCATION_MAX_AGE, meterRegistry);
+        tourGuideService.tracker.stopTracking();
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        tourGuideService.addUser(user);
+        doReturn(new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), new Date())).when(gpsUtil).getUserLocation(user.getUserId());
+        VisitedLocationBean lastKnownLocation = tourGuideService.trackUserLocation(user).get(5, TimeUnit.SECONDS);
+        // the fallback of the resilient proxy while GpsUtil is unavailable
+        doAnswer(invocation -> locationUpdateIndex.getLatest(user.getUserId())).when(gpsUtil).getUserLocation(user.getUserId());
+
+        //WHEN
+        VisitedLocationBean staleLocation = tourGuideService.trackUserLocation(user).get(5, TimeUnit.SECONDS);
+
+        //THEN
+        assertSame(lastKnownLocation, staleLocation);
+        assertEquals(1, user.getVisitedLocations().size());
+        assertEquals(1, meterRegistry.get("tour.guide.track.location.stale").counter().count(), 0);
+    }
+
     @Test
     @DisplayName("Get nearby attractions")
     public void getNearbyAttractions() {
@@ -230,6 +358,232 @@ public class TestTourGuideService {
         assertTrue(allCurrentLocations.containsValue(user.getLastVisitedLocation().locationBean));
     }
 
+    @Test
+    @DisplayName("Get every user's location for a cursor issued before a restart or a timestamp")
+    public void getCurrentLocationsSinceStaleCursor() throws ExecutionException, InterruptedException {
+
+        //GIVEN
+        tourGuideService.tracker.stopTracking();
+        tourGuideService.internalUserMap.clear();
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        tourGuideService.addUser(user);
+        doReturn(new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), new Date())).when(gpsUtil).getUserLocation(user.getUserId());
+        tourGuideService.trackUserLocation(user).get();
+        // the index of the previous run had recorded more updates than this one
+        long cursorBeforeRestart = new LocationUpdateIndex().cursorOf(1000);
+
+        //WHEN
+        CurrentLocationsDto afterRestart = tourGuideService.getCurrentLocationsSince(cursorBeforeRestart);
+        CurrentLocationsDto sinceTimestamp = tourGuideService.getCurrentLocationsSince(System.currentTimeMillis());
+        CurrentLocationsDto all = tourGuideService.getCurrentLocationsSince(0);
+
+        //THEN
+        assertEquals(all.getCurrentLocations().keySet(), afterRestart.getCurrentLocations().keySet());
+        assertTrue(afterRestart.getCurrentLocations().containsKey(user.getUserId().toString()));
+        assertEquals(all.getCursor(), afterRestart.getCursor());
+        assertEquals(all.getCurrentLocations().keySet(), sinceTimestamp.getCurrentLocations().keySet());
+        assertEquals(all.getCursor(), sinceTimestamp.getCursor());
+        assertTrue(tourGuideService.getCurrentLocationsSince(all.getCursor()).getCurrentLocations().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Get current locations recorded since a previous call, whatever their timestamp")
+    public void getCurrentLocationsSince() throws ExecutionException, InterruptedException {
+
+        //GIVEN
+        // stopped first, the locations indexed by its cycle would be returned too
+        tourGuideService.tracker.stopTracking();
+        tourGuideService.internalUserMap.clear();
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        User user2 = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+        tourGuideService.addUser(user);
+        tourGuideService.addUser(user2);
+        long now = System.currentTimeMillis();
+        doReturn(new VisitedLocationBean(user.getUserId(), new LocationBean(33.817595D, -117.922008D), new Date(now))).when(gpsUtil).getUserLocation(user.getUserId());
+        // fetched before the first location but recorded after it
+        doReturn(new VisitedLocationBean(user2.getUserId(), new LocationBean(43.582767D, -110.821999D), new Date(now - 1000L))).when(gpsUtil).getUserLocation(user2.getUserId());
+        // the internal users are already indexed
+        long initialCursor = tourGuideService.getCurrentLocationsSince(0).getCursor();
+        tourGuideService.trackUserLocation(user).get();
+
+        //WHEN
+        CurrentLocationsDto firstLocations = tourGuideService.getCurrentLocationsSince(initialCursor);
+        tourGuideService.trackUserLocation(user2).get();
+        CurrentLocationsDto currentLocations = tourGuideService.getCurrentLocationsSince(firstLocations.getCursor());
+        CurrentLocationsDto noLocations = tourGuideService.getCurrentLocationsSince(currentLocations.getCursor());
+
+        //THEN
+        assertEquals(1, firstLocations.getCurrentLocations().size());
+        assertTrue(firstLocations.getCurrentLocations().containsKey(user.getUserId().toString()));
+        assertEquals(1, currentLocations.getCurrentLocations().size());
+        assertTrue(currentLocations.getCurrentLocations().containsKey(user2.getUserId().toString()));
+        assertTrue(currentLocations.getCursor() > firstLocations.getCursor());
+        assertTrue(noLocations.getCurrentLocations().isEmpty());
+        assertEquals(currentLocations.getCursor(), noLocations.getCursor());
+    }
+
+    @Test
+    @DisplayName("Get users within a bounding box")
+    public void getUsersWithinBoundingBox() throws ExecutionException, InterruptedException {
+
+        //GIVEN
+        User inside = trackedUser("inside", 43.582767D, -110.821999D);
+        User inside2 = trackedUser("inside2", 43.7D, -110.7D);
+        trackedUser("outside", 45.0D, -110.821999D);
+        User east = trackedUser("east", 0D, 179.95D);
+        User west = trackedUser("west", 0D, -179.95D);
+
+        //WHEN
+        UserLocationsPageDto firstPage = tourGuideService.getUsersWithinBoundingBox(43.5D, 44.0D, -111.0D, -110.5D, 0, 1);
+        UserLocationsPageDto secondPage = tourGuideService.getUsersWithinBoundingBox(43.5D, 44.0D, -111.0D, -110.5D, 1, 1);
+        UserLocationsPageDto acrossAntimeridian = tourGuideService.getUsersWithinBoundingBox(-1D, 1D, 179.9D, -179.9D, 0, 10);
+        tourGuideService.tracker.stopTracking();
+
+        //THEN
+        assertEquals(2, firstPage.getTotalUsers());
+        List<String> ordered = new ArrayList<>(Arrays.asList(inside.getUserId().toString(), inside2.getUserId().toString()));
+        Collections.sort(ordered);
+        assertEquals(ordered.get(0), firstPage.getEntries().get(0).getUserId());
+        assertEquals(ordered.get(1), secondPage.getEntries().get(0).getUserId());
+        assertEquals(2, acrossAntimeridian.getTotalUsers());
+        assertTrue(acrossAntimeridian.getEntries().stream().anyMatch(entry -> entry.getUserId().equals(east.getUserId().toString())));
+        assertTrue(acrossAntimeridian.getEntries().stream().anyMatch(entry -> entry.getUserId().equals(west.getUserId().toString())));
+    }
+
+    @Test
+    @DisplayName("Get users within a radius, closest first")
+    public void getUsersWithinRadius() throws ExecutionException, InterruptedException {
+
+        //GIVEN
+        tourGuideService.tracker.stopTracking();
+        tourGuideService = new TourGuideServiceImpl(gpsUtil, rewardsService);
+        tourGuideService.tracker.stopTracking();
+        User atYellowstone = trackedUser("atYellowstone", 43.582767D, -110.821999D);
+        User threeMilesAway = trackedUser("threeMilesAway", 43.626D, -110.821999D);
+        trackedUser("twentyMilesAway", 43.872D, -110.821999D);
+        User east = trackedUser("east", 0D, 179.99D);
+        User west = trackedUser("west", 0D, -179.99D);
+
+        //WHEN
+        UserLocationsPageDto nearYellowstone = tourGuideService.getUsersWithinRadius(43.582767D, -110.821999D, 5D, 0, 10);
+        UserLocationsPageDto acrossAntimeridian = tourGuideService.getUsersWithinRadius(0D, 180D, 5D, 0, 10);
+        tourGuideService.tracker.stopTracking();
+
+        //THEN
+        assertEquals(2, nearYellowstone.getTotalUsers());
+        assertEquals(atYellowstone.getUserId().toString(), nearYellowstone.getEntries().get(0).getUserId());
+        assertEquals(threeMilesAway.getUserId().toString(), nearYellowstone.getEntries().get(1).getUserId());
+        assertTrue(nearYellowstone.getEntries().get(1).getDistance() > 2.5D && nearYellowstone.getEntries().get(1).getDistance() < 3.5D);
+        assertEquals(2, acrossAntimeridian.getTotalUsers());
+        assertTrue(acrossAntimeridian.getEntries().stream().anyMatch(entry -> entry.getUserId().equals(east.getUserId().toString())));
+        assertTrue(acrossAntimeridian.getEntries().stream().anyMatch(entry -> entry.getUserId().equals(west.getUserId().toString())));
+    }
+
+    @Test
+    @DisplayName("Get users near an attraction and the occupancy of every attraction")
+    public void getUsersNearAttraction() throws ExecutionException, InterruptedException {
+
+        //GIVEN
+        tourGuideService.tracker.stopTracking();
+        tourGuideService = new TourGuideServiceImpl(gpsUtil, rewardsService);
+        tourGuideService.tracker.stopTracking();
+        AttractionBean yellowstone = new AttractionBean("Yellowstone", "Park", "WY", 43.582767D, -110.821999D);
+        AttractionBean dateLine = new AttractionBean("DateLine", "Ocean", "NA", 0D, 179.99D);
+        AttractionBean faraway = new AttractionBean("Faraway", "city", "state", -40D, 20D);
+        doReturn(Arrays.asList(yellowstone, dateLine, faraway)).when(gpsUtil).getAttractions();
+        User trackedBeforeCatalog = trackedUser("trackedBeforeCatalog", 43.6D, -110.821999D);
+        tourGuideService.refreshAttractionZones();
+        User atYellowstone = trackedUser("atYellowstone", 43.582767D, -110.821999D);
+        trackedUser("twentyMilesAway", 43.872D, -110.821999D);
+        User acrossDateLine = trackedUser("acrossDateLine", 0D, -179.99D);
+
+        //WHEN
+        UserLocationsPageDto nearYellowstone = tourGuideService.getUsersNearAttraction("Yellowstone", 0, 10);
+        UserLocationsPageDto nearDateLine = tourGuideService.getUsersNearAttraction("DateLine", 0, 10);
+        List<AttractionOccupancyDto> occupancy = tourGuideService.getAttractionOccupancy();
+
+        //THEN
+        assertEquals(2, nearYellowstone.getTotalUsers());
+        assertEquals(atYellowstone.getUserId().toString(), nearYellowstone.getEntries().get(0).getUserId());
+        assertEquals(trackedBeforeCatalog.getUserId().toString(), nearYellowstone.getEntries().get(1).getUserId());
+        assertEquals(acrossDateLine.getUserId().toString(), nearDateLine.getEntries().get(0).getUserId());
+        assertEquals(Arrays.asList("Yellowstone", "DateLine", "Faraway"),
+                occupancy.stream().map(AttractionOccupancyDto::getAttractionName).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(2, 1, 0), occupancy.stream().map(AttractionOccupancyDto::getNearbyUsers).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Users move between attraction zones when they move and when the catalog changes")
+    public void attractionZonesFollowUpdates() throws ExecutionException, InterruptedException {
+
+        //GIVEN
+        tourGuideService.tracker.stopTracking();
+        tourGuideService = new TourGuideServiceImpl(gpsUtil, rewardsService);
+        tourGuideService.tracker.stopTracking();
+        doReturn(Collections.singletonList(new AttractionBean("Moving", "city", "state", 10D, 10D))).when(gpsUtil).getAttractions();
+        tourGuideService.refreshAttractionZones();
+        User user = trackedUser("user", 10D, 10D);
+        doReturn(new VisitedLocationBean(user.getUserId(), new LocationBean(20D, 20D), new Date())).when(gpsUtil).getUserLocation(user.getUserId());
+
+        //WHEN
+        tourGuideService.trackUserLocation(user).get();
+        int afterMove = tourGuideService.getUsersNearAttraction("Moving", 0, 10).getTotalUsers();
+        doReturn(Collections.singletonList(new AttractionBean("Moving", "city", "state", 20D, 20D))).when(gpsUtil).getAttractions();
+        tourGuideService.refreshAttractionZones();
+        int afterCatalogChange = tourGuideService.getUsersNearAttraction("Moving", 0, 10).getTotalUsers();
+
+        //THEN
+        assertEquals(0, afterMove);
+        assertEquals(1, afterCatalogChange);
+    }
+
+    @Test
+    @DisplayName("Arriving in the zone of an attraction triggers a single reward lookup")
+    public void rewardOnZoneEntry() throws ExecutionException, InterruptedException {
+
+        //GIVEN
+        tourGuideService.tracker.stopTracking();
+        tourGuideService = new TourGuideServiceImpl(gpsUtil, rewardsService);
+        tourGuideService.tracker.stopTracking();
+        AttractionBean yellowstone = new AttractionBean("Yellowstone", "Park", "WY", 43.582767D, -110.821999D);
+        doReturn(Collections.singletonList(yellowstone)).when(gpsUtil).getAttractions();
+        tourGuideService.refreshAttractionZones();
+        User user = trackedUser("user", 0D, 0D);
+        doReturn(100).when(rewardCentralProxy).getRewards(yellowstone.attractionId, user.getUserId());
+        doReturn(new VisitedLocationBean(user.getUserId(), new LocationBean(43.6D, -110.821999D), new Date())).when(gpsUtil).getUserLocation(user.getUserId());
+
+        //WHEN
+        tourGuideService.trackUserLocation(user).get();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (user.getUserRewards().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        tourGuideService.trackUserLocation(user).get();
+        Thread.sleep(100);
+
+        //THEN
+        assertEquals(1, user.getUserRewards().size());
+        assertEquals(100, user.getRewardPointsTotal());
+        verify(rewardCentralProxy, times(1)).getRewards(yellowstone.attractionId, user.getUserId());
+    }
+
+    @Test
+    @DisplayName("Get users near an unknown attraction")
+    public void getUsersNearUnknownAttraction() {
+
+        //GIVEN
+        tourGuideService.tracker.stopTracking();
+        // a cycle started before the tracker stopped may have loaded the attractions already
+        clearInvocations(gpsUtil);
+        doReturn(Collections.singletonList(new AttractionBean("Yellowstone", "Park", "WY", 43.582767D, -110.821999D))).when(gpsUtil).getAttractions();
+        tourGuideService.refreshAttractionZones();
+
+        //THEN
+        assertThrows(AttractionNotFoundException.class, () -> tourGuideService.getUsersNearAttraction("unknown", 0, 10));
+        assertThrows(AttractionNotFoundException.class, () -> tourGuideService.getUsersNearAttraction("unknown", 0, 10));
+        verify(gpsUtil, times(1)).getAttractions();
+    }
+
     @Test
     @DisplayName("Get attraction by name")
     public void getAttraction() {
@@ -268,4 +622,12 @@ public class TestTourGuideService {
         //THEN
         assertThrows(AttractionNotFoundException.class, () -> tourGuideService.getAttraction("unknown"));
     }
+
+    private User trackedUser(String userName, double latitude, double longitude) throws ExecutionException, InterruptedException {
+        User user = new User(UUID.randomUUID(), userName, "000", userName + "@tourGuide.com");
+        tourGuideService.addUser(user);
+        doReturn(new VisitedLocationBean(user.getUserId(), new LocationBean(latitude, longitude), new Date())).when(gpsUtil).getUserLocation(user.getUserId());
+        tourGuideService.trackUserLocation(user).get();
+        return user;
+    }
 }
@@ -15,6 +15,8 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 public class TestTripPricerService {
 
@@ -65,4 +67,25 @@ public class TestTripPricerService {
         //THEN
         assertEquals(7, user.getUserPreferences().getTripDuration());
     }
+
+    @Test
+    @DisplayName("Serve the cached trip deals until the user's preferences change")
+    public void getTripDealsCachedUntilPreferencesUpdate() {
+
+        //GIVEN
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        AttractionBean attractionBean = new AttractionBean("Disneyland", "Anaheim", "CA", 33.817595D, -117.922008D);
+        List<Provider> providers = tripPricerService.getTripDeals(user, attractionBean);
+
+        //WHEN
+        List<Provider> cachedProviders = tripPricerService.getTripDeals(user, attractionBean);
+        tripPricerService.updateUserPreferences(user, UserPreferences.builder().numberOfAdults(2).numberOfChildren(1).tripDuration(3).build());
+        List<Provider> updatedProviders = tripPricerService.getTripDeals(user, attractionBean);
+        tourGuideService.tracker.stopTracking();
+
+        //THEN
+        assertSame(providers, cachedProviders);
+        assertNotSame(providers, updatedProviders);
+        assertSame(updatedProviders, user.getTripDeals());
+    }
 }
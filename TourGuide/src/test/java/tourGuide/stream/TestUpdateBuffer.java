@@ -0,0 +1,106 @@
+package tourGuide.stream;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import tourGuide.beans.LocationBean;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestUpdateBuffer {
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID userId2 = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Drop the oldest event when the buffer is full")
+    public void dropOldest() {
+
+        //GIVEN
+        UpdateBuffer buffer = new UpdateBuffer(2, OverflowPolicy.DROP_OLDEST);
+
+        //WHEN
+        buffer.offer(location(userId, 1.0));
+        buffer.offer(location(userId, 2.0));
+        buffer.offer(location(userId, 3.0));
+        List<UpdateEvent> events = buffer.drain(10);
+
+        //THEN
+        assertEquals(2, events.size());
+        assertEquals(2.0, events.get(0).getLocation().latitude, 0);
+        assertEquals(3.0, events.get(1).getLocation().latitude, 0);
+        assertEquals(1, buffer.getDropped());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Drop the new event when the buffer is full")
+    public void dropNewest() {
+
+        //GIVEN
+        UpdateBuffer buffer = new UpdateBuffer(2, OverflowPolicy.DROP_NEWEST);
+
+        //WHEN
+        buffer.offer(location(userId, 1.0));
+        buffer.offer(location(userId, 2.0));
+        buffer.offer(location(userId, 3.0));
+        List<UpdateEvent> events = buffer.drain(10);
+
+        //THEN
+        assertEquals(2, events.size());
+        assertEquals(1.0, events.get(0).getLocation().latitude, 0);
+        assertEquals(2.0, events.get(1).getLocation().latitude, 0);
+        assertEquals(1, buffer.getDropped());
+    }
+
+    @Test
+    @DisplayName("Coalesce the locations of a same user and keep the rewards")
+    public void coalesce() {
+
+        //GIVEN
+        UpdateBuffer buffer = new UpdateBuffer(10, OverflowPolicy.COALESCE);
+
+        //WHEN
+        buffer.offer(location(userId, 1.0));
+        buffer.offer(location(userId2, 5.0));
+        buffer.offer(reward(userId, "Disneyland"));
+        buffer.offer(reward(userId, "Jackson Hole"));
+        buffer.offer(location(userId, 2.0));
+        List<UpdateEvent> events = buffer.drain(10);
+
+        //THEN
+        assertEquals(4, events.size());
+        assertEquals(userId, events.get(0).getUserId());
+        assertEquals(2.0, events.get(0).getLocation().latitude, 0);
+        assertEquals(1, buffer.getDropped());
+    }
+
+    @Test
+    @DisplayName("Drain at most the requested number of events")
+    public void drainBatch() {
+
+        //GIVEN
+        UpdateBuffer buffer = new UpdateBuffer(10, OverflowPolicy.DROP_OLDEST);
+        buffer.offer(location(userId, 1.0));
+        buffer.offer(location(userId, 2.0));
+        buffer.offer(location(userId, 3.0));
+
+        //WHEN
+        List<UpdateEvent> events = buffer.drain(2);
+
+        //THEN
+        assertEquals(2, events.size());
+        assertEquals(1, buffer.size());
+    }
+
+    private UpdateEvent location(UUID userId, double latitude) {
+        return UpdateEvent.builder().type(UpdateEvent.Type.LOCATION).userId(userId).location(new LocationBean(latitude, 0.0)).build();
+    }
+
+    private UpdateEvent reward(UUID userId, String attractionName) {
+        return UpdateEvent.builder().type(UpdateEvent.Type.REWARD).userId(userId).attractionName(attractionName).rewardPoints(100).build();
+    }
+}
@@ -0,0 +1,159 @@
+package tourGuide.stream;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import tourGuide.beans.LocationBean;
+import tourGuide.beans.VisitedLocationBean;
+import tourGuide.model.user.User;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestUpdateEventBroadcaster {
+
+    private final User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+    @Test
+    @DisplayName("Emit only the requested updates to a reactive subscriber, the others waiting in its buffer under the overflow policy")
+    public void streamRequestedUpdates() throws Exception {
+
+        //GIVEN
+        UpdateEventBroadcaster broadcaster = new UpdateEventBroadcaster(2, 60000, 1);
+        List<UpdateEvent> received = new CopyOnWriteArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        BaseSubscriber<UpdateEvent> subscriber = new BaseSubscriber<UpdateEvent>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(UpdateEvent event) {
+                received.add(event);
+            }
+
+            @Override
+            protected void hookOnError(Throwable error) {
+                failure.set(error);
+            }
+        };
+        broadcaster.stream(null, null, OverflowPolicy.DROP_OLDEST).subscribe(subscriber);
+
+        //WHEN
+        publishLocation(broadcaster, 1);
+        waitUntil(() -> received.size() == 1);
+        publishLocation(broadcaster, 2);
+        publishLocation(broadcaster, 3);
+        publishLocation(broadcaster, 4);
+        Thread.sleep(100);
+        int receivedWithoutDemand = received.size();
+        subscriber.request(10);
+        waitUntil(() -> received.size() == 3);
+        subscriber.dispose();
+        int subscribersAfterCancel = broadcaster.getSubscriberCount();
+        broadcaster.shutdown();
+
+        //THEN
+        assertEquals(1, receivedWithoutDemand);
+        assertEquals(Arrays.asList(1.0, 3.0, 4.0),
+                received.stream().map(event -> event.getLocation().latitude).collect(Collectors.toList()));
+        assertNull(failure.get());
+        assertEquals(0, subscribersAfterCancel);
+    }
+
+    @Test
+    @DisplayName("Keep delivering to the other SSE subscribers while a client stalls, then drop the stalled one")
+    public void dropStalledSseSubscriber() throws Exception {
+
+        //GIVEN
+        ExecutorService deliveryExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService sendExecutor = Executors.newCachedThreadPool();
+        CountDownLatch unblock = new CountDownLatch(1);
+        List<UpdateEvent> stalledReceived = new CopyOnWriteArrayList<>();
+        SseUpdateSink stalledSink = new SseUpdateSink(event -> {
+            stalledReceived.add(event);
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, error -> { }, sendExecutor, 200);
+        UpdateBuffer stalledBuffer = new UpdateBuffer(2, OverflowPolicy.DROP_OLDEST);
+        UpdateSubscriber stalled = new UpdateSubscriber(null, null, stalledBuffer, stalledSink, deliveryExecutor);
+        stalledSink.listen(stalled::resume, stalled::close);
+        List<UpdateEvent> received = new CopyOnWriteArrayList<>();
+        SseUpdateSink sink = new SseUpdateSink(received::add, error -> { }, sendExecutor, 200);
+        UpdateSubscriber subscriber = new UpdateSubscriber(null, null, new UpdateBuffer(2, OverflowPolicy.DROP_OLDEST), sink, deliveryExecutor);
+        sink.listen(subscriber::resume, subscriber::close);
+
+        //WHEN
+        for (int i = 1; i <= 5; i++) {
+            int sent = i;
+            stalled.publish(location(i, 0));
+            subscriber.publish(location(i, 0));
+            waitUntil(() -> received.size() == sent);
+        }
+        int bufferedWhileStalled = stalledBuffer.size();
+        Thread.sleep(300);
+        stalled.publish(location(6, 0));
+        boolean stalledClosed = stalled.isClosed();
+        unblock.countDown();
+        deliveryExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+
+        //THEN
+        assertEquals(5, received.size());
+        assertEquals(1, stalledReceived.size());
+        assertEquals(2, bufferedWhileStalled);
+        assertEquals(2, stalled.getDropped());
+        assertTrue(stalledClosed);
+        assertFalse(subscriber.isClosed());
+    }
+
+    @Test
+    @DisplayName("Accept the locations of a bounding box crossing the antimeridian, its west limit greater than its east limit")
+    public void acceptBoundingBoxAcrossAntimeridian() {
+
+        //GIVEN
+        UpdateSubscriber subscriber = new UpdateSubscriber(null, new double[]{-10, 10, 170, -170},
+                new UpdateBuffer(1, OverflowPolicy.DROP_OLDEST), null, Runnable::run);
+
+        //THEN
+        assertTrue(subscriber.accepts(location(0, 175)));
+        assertTrue(subscriber.accepts(location(0, -175)));
+        assertFalse(subscriber.accepts(location(0, 0)));
+        assertFalse(subscriber.accepts(location(20, 175)));
+    }
+
+    private UpdateEvent location(double latitude, double longitude) {
+        return UpdateEvent.builder().type(UpdateEvent.Type.LOCATION).userId(user.getUserId()).location(new LocationBean(latitude, longitude)).build();
+    }
+
+    private void publishLocation(UpdateEventBroadcaster broadcaster, double latitude) {
+        broadcaster.publishLocation(user, new VisitedLocationBean(user.getUserId(), new LocationBean(latitude, 0), new Date()));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package tourGuide.tracker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+import tourGuide.beans.AttractionBean;
+import tourGuide.model.user.User;
+import tourGuide.service.TripPricerService;
+import tourGuide.service.TripPricerServiceImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class TestTripDealsPrecomputer {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Precompute the most recently active users first and drop the least recent when the queue is full")
+    public void precomputeMostRecentFirst() throws InterruptedException {
+
+        //GIVEN
+        TripPricerService tripPricerService = mock(TripPricerService.class);
+        List<String> precomputedUserNames = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> precomputedUserNames.add(((User) invocation.getArgument(0)).getUserName()))
+                .when(tripPricerService).precomputeTripDeals(any(User.class));
+        TripDealsPrecomputer tripDealsPrecomputer = new TripDealsPrecomputer(tripPricerService, 2, 1, meterRegistry);
+        User jon = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        User jane = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+        User jim = new User(UUID.randomUUID(), "jim", "000", "jim@tourGuide.com");
+
+        //WHEN
+        tripDealsPrecomputer.markActive(jon);
+        tripDealsPrecomputer.markActive(jane);
+        tripDealsPrecomputer.markActive(jon);
+        tripDealsPrecomputer.markActive(jim);
+        int queueSize = tripDealsPrecomputer.getQueueSize();
+        tripDealsPrecomputer.start();
+        waitUntil(() -> precomputedUserNames.size() == 2);
+        tripDealsPrecomputer.stop();
+
+        //THEN
+        assertEquals(2, queueSize);
+        assertEquals(1, meterRegistry.get("tour.guide.trip.deals.precompute.dropped").counter().count(), 0);
+        assertEquals("jim", precomputedUserNames.get(0));
+        assertEquals("jon", precomputedUserNames.get(1));
+    }
+
+    @Test
+    @DisplayName("Serve warm trip deals once they are precomputed")
+    public void getTripDealsAfterPrecompute() throws InterruptedException {
+
+        //GIVEN
+        TripPricerServiceImpl tripPricerService = new TripPricerServiceImpl(1000, 60000, 60000, meterRegistry);
+        TripDealsPrecomputer tripDealsPrecomputer = new TripDealsPrecomputer(tripPricerService, 10, 1, meterRegistry);
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        AttractionBean attractionBean = new AttractionBean("Disneyland", "Anaheim", "CA", 33.817595D, -117.922008D);
+        tripDealsPrecomputer.start();
+
+        //WHEN
+        tripDealsPrecomputer.markActive(user);
+        waitUntil(() -> !user.getTripDeals().isEmpty());
+        tripPricerService.getTripDeals(user, attractionBean);
+        tripPricerService.getTripDeals(user, attractionBean);
+        tripDealsPrecomputer.stop();
+
+        //THEN
+        assertFalse(user.getTripDeals().isEmpty());
+        assertEquals(1, meterRegistry.get("tour.guide.trip.deals.precompute.hits").counter().count(), 0);
+        assertEquals(0, meterRegistry.get("tour.guide.trip.deals.precompute.misses").counter().count(), 0);
+    }
+
+    @Test
+    @DisplayName("Count as precompute hits neither the deals a request loaded nor their later reads")
+    public void getTripDealsLoadedOnDemand() {
+
+        //GIVEN
+        TripPricerServiceImpl tripPricerService = new TripPricerServiceImpl(1000, 60000, 60000, meterRegistry);
+        User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+        AttractionBean attractionBean = new AttractionBean("Disneyland", "Anaheim", "CA", 33.817595D, -117.922008D);
+
+        //WHEN
+        tripPricerService.getTripDeals(user, attractionBean);
+        tripPricerService.precomputeTripDeals(user);
+        tripPricerService.getTripDeals(user, attractionBean);
+        tripPricerService.shutdown();
+
+        //THEN
+        assertFalse(user.getTripDeals().isEmpty());
+        assertEquals(0, meterRegistry.get("tour.guide.trip.deals.precompute.hits").counter().count(), 0);
+        assertEquals(1, meterRegistry.get("tour.guide.trip.deals.precompute.misses").counter().count(), 0);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}